@@ -0,0 +1,336 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.request;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Responses of one endpoint keyed by business key, served by a single catch-all stub.
+ * <p>
+ * The key is read once per request, either from the last path segment or from the JSON body with a
+ * streaming parser. With a {@code keyField} only that field is considered and the scenario is found with
+ * one hash lookup however many scenarios there are. Without one, the string values of the body are
+ * matched the way the old {@code matching(".*key.*")} stubs matched the body: a value that equals a
+ * scenario key wins, and only when none does, the first value that contains one, so
+ * {@code businesskey-ok-123} is answered like {@code businesskey-ok}. A value containing several keys
+ * picks the longest. Containment rolls a hash over each value's windows of every scenario key length and
+ * compares only windows whose hash equals a key's, without copying them, so its cost grows with the number
+ * of distinct key lengths, not of scenarios. Path keys match exactly.
+ * <p>
+ * Catalogues can also be loaded from a classpath JSON file:
+ * <pre>
+ * {
+ *   "name": "osapi-inside-download",
+ *   "method": "POST",
+ *   "urlPath": "/api/v3.0.0/files/inside-download",
+ *   "keySource": "body",
+ *   "keyField": "reference",
+ *   "scenarios": [
+ *     { "key": "reference-ok-xml", "status": 200,
+ *       "headers": { "Content-Type": "application/xml" },
+ *       "body": "&lt;test/&gt;", "fixedDelayMilliseconds": 0 }
+ *   ]
+ * }
+ * </pre>
+ * Instead of {@code body}, a scenario can name a {@code bodyFile} (classpath location, copied into the
+ * scenario) or a {@code fixture} id of the {@link MockFixtureStore} (streamed, for large bodies).
+ */
+public class BusinessKeyScenarioCatalogue {
+
+    public enum KeySource {
+        BODY, PATH
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ObjectMapper CATALOGUE_READER = new ObjectMapper();
+
+    private final String name;
+    private final String method;
+    private final String urlPathPattern;
+    private final KeySource keySource;
+    private final String keyField;
+    private final Map<String, ResponseDefinition> scenarios = new ConcurrentHashMap<>();
+    // scenario keys grouped by length, longest first, for containment matching without a keyField;
+    // dropped on every change and rebuilt by the next request that needs it
+    private volatile KeyWindow[] keyWindows;
+
+    public BusinessKeyScenarioCatalogue(String name, String method, String urlPathPattern, KeySource keySource, String keyField) {
+        this.name = name;
+        this.method = method;
+        this.urlPathPattern = urlPathPattern;
+        this.keySource = keySource;
+        this.keyField = keyField;
+    }
+
+    public BusinessKeyScenarioCatalogue scenario(String key, ResponseDefinitionBuilder response) {
+        scenarios.put(key, response.build());
+        keyWindows = null;
+        return this;
+    }
+
+    /**
+     * Adds the scenarios of another catalogue for the same endpoint, replacing those with the same key.
+     *
+     * @throws IllegalArgumentException if the other catalogue reads its key differently or serves another endpoint
+     */
+    public void merge(BusinessKeyScenarioCatalogue other) {
+        if (!method.equalsIgnoreCase(other.method) || !urlPathPattern.equals(other.urlPathPattern)
+                || keySource != other.keySource || !Objects.equals(keyField, other.keyField)) {
+            throw new IllegalArgumentException("Scenario catalogue '" + name + "' (" + describe()
+                + ") cannot take the scenarios of a catalogue with " + other.describe());
+        }
+        scenarios.putAll(other.scenarios);
+        keyWindows = null;
+    }
+
+    private String describe() {
+        return method + " " + urlPathPattern + ", key from " + keySource.name().toLowerCase(Locale.ROOT)
+            + (keyField == null ? "" : " field " + keyField);
+    }
+
+    private KeyWindow[] keyWindows() {
+        KeyWindow[] windows = keyWindows;
+        if (windows == null) {
+            Map<Integer, List<String>> keysByLength = new TreeMap<>(Comparator.reverseOrder());
+            for (String key : scenarios.keySet()) {
+                if (!key.isEmpty()) {
+                    keysByLength.computeIfAbsent(key.length(), length -> new ArrayList<>()).add(key);
+                }
+            }
+            windows = keysByLength.values().stream().map(KeyWindow::new).toArray(KeyWindow[]::new);
+            keyWindows = windows;
+        }
+        return windows;
+    }
+
+    public ResponseDefinition find(String key) {
+        return key == null ? null : scenarios.get(key);
+    }
+
+    /**
+     * Responses of all scenarios, in no particular order.
+     */
+    public Collection<ResponseDefinition> responses() {
+        return Collections.unmodifiableCollection(scenarios.values());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return scenarios.size();
+    }
+
+    /**
+     * The catch-all stub that hands every request of the endpoint to {@link BusinessKeyScenarioTransformer}.
+     */
+    public MappingBuilder toStub() {
+        return request(method, urlPathMatching(urlPathPattern))
+            .willReturn(aResponse()
+                .withTransformers(BusinessKeyScenarioTransformer.NAME)
+                .withTransformerParameters(Parameters.one(BusinessKeyScenarioTransformer.CATALOGUE_PARAMETER, name)));
+    }
+
+    public String extractKey(Request request) {
+        if (keySource == KeySource.PATH) {
+            String url = request.getUrl();
+            int end = url.indexOf('?');
+            end = end < 0 ? url.length() : end;
+            int start = url.lastIndexOf('/', end - 1) + 1;
+            return start < end ? url.substring(start, end) : null;
+        }
+        byte[] body = request.getBody();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        if (keyField != null) {
+            return readField(body, keyField);
+        }
+        List<String> values = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.VALUE_STRING) {
+                    String value = parser.getText();
+                    if (scenarios.containsKey(value)) {
+                        return value;
+                    }
+                    values.add(value);
+                }
+            }
+        } catch (IOException e) {
+            // not JSON, no scenario applies
+            return null;
+        }
+        KeyWindow[] windows = keyWindows();
+        for (String value : values) {
+            String key = containedKey(value, windows);
+            if (key != null) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private static String containedKey(String value, KeyWindow[] windows) {
+        for (KeyWindow window : windows) {
+            int length = window.length;
+            if (length > value.length()) {
+                continue;
+            }
+            // String.hashCode of value[start, start + length), rolled one character at a time
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + value.charAt(i);
+            }
+            for (int start = 0; ; start++) {
+                String key = window.find(value, start, hash);
+                if (key != null) {
+                    return key;
+                }
+                int end = start + length;
+                if (end == value.length()) {
+                    break;
+                }
+                hash = 31 * (hash - window.leadingFactor * value.charAt(start)) + value.charAt(end);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the first string value of {@code field} in a JSON body, or {@code null} if there is none.
+     */
+    public static String readField(byte[] body, String field) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && field.equals(parser.currentName())
+                        && parser.nextToken() == JsonToken.VALUE_STRING) {
+                    return parser.getText();
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static BusinessKeyScenarioCatalogue load(String classpathLocation) {
+        try (InputStream in = new ClassPathResource(classpathLocation).getInputStream()) {
+            JsonNode root = CATALOGUE_READER.readTree(in);
+            String name = root.path("name").asText();
+            String urlPath = root.path("urlPath").asText();
+            if (name.isBlank() || urlPath.isBlank()) {
+                throw new IllegalArgumentException("Scenario catalogue " + classpathLocation + " needs a name and a urlPath");
+            }
+            BusinessKeyScenarioCatalogue catalogue = new BusinessKeyScenarioCatalogue(
+                name,
+                root.path("method").asText("POST"),
+                urlPath,
+                KeySource.valueOf(root.path("keySource").asText("body").toUpperCase(Locale.ROOT)),
+                root.hasNonNull("keyField") ? root.get("keyField").asText() : null);
+            for (JsonNode scenario : root.path("scenarios")) {
+                ResponseDefinitionBuilder response = aResponse().withStatus(scenario.path("status").asInt(200));
+                Iterator<Map.Entry<String, JsonNode>> headers = scenario.path("headers").fields();
+                while (headers.hasNext()) {
+                    Map.Entry<String, JsonNode> header = headers.next();
+                    response.withHeader(header.getKey(), header.getValue().asText());
+                }
+                if (scenario.hasNonNull("fixture")) {
+                    // streamed from the fixture store when served, not copied into the scenario
+                    response.withTransformers(MockFixtureTransformer.NAME)
+                        .withTransformerParameter(MockFixtureTransformer.FIXTURE_PARAMETER, scenario.get("fixture").asText());
+                } else if (scenario.hasNonNull("bodyFile")) {
+                    String bodyFile = scenario.get("bodyFile").asText();
+                    MockFixtureStore.Fixture fixture = MockFixtureStore.shared().get(bodyFile);
+                    if (fixture != null) {
+                        response.withBody(fixture.bytes());
+                    } else {
+                        try (InputStream body = new ClassPathResource(bodyFile).getInputStream()) {
+                            response.withBody(body.readAllBytes());
+                        }
+                    }
+                } else if (scenario.hasNonNull("body")) {
+                    response.withBody(scenario.get("body").asText());
+                }
+                if (scenario.path("fixedDelayMilliseconds").asInt() > 0) {
+                    response.withFixedDelay(scenario.get("fixedDelayMilliseconds").asInt());
+                }
+                catalogue.scenario(scenario.path("key").asText(), response);
+            }
+            return catalogue;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load scenario catalogue: " + classpathLocation, e);
+        }
+    }
+
+    /**
+     * Scenario keys of one length, sorted by hash code so a window's hash is looked up without boxing.
+     */
+    private static final class KeyWindow {
+        private final int length;
+        // 31^(length - 1), the weight of a window's first character in its hash
+        private final int leadingFactor;
+        private final int[] hashes;
+        private final String[] keys;
+
+        private KeyWindow(List<String> keys) {
+            this.keys = keys.stream().sorted(Comparator.comparingInt(String::hashCode)).toArray(String[]::new);
+            this.hashes = Arrays.stream(this.keys).mapToInt(String::hashCode).toArray();
+            this.length = this.keys[0].length();
+            int factor = 1;
+            for (int i = 1; i < length; i++) {
+                factor *= 31;
+            }
+            this.leadingFactor = factor;
+        }
+
+        private String find(String value, int start, int hash) {
+            int index = Arrays.binarySearch(hashes, hash);
+            if (index < 0) {
+                return null;
+            }
+            while (index > 0 && hashes[index - 1] == hash) {
+                index--;
+            }
+            for (; index < hashes.length && hashes[index] == hash; index++) {
+                if (value.regionMatches(start, keys[index], 0, length)) {
+                    return keys[index];
+                }
+            }
+            return null;
+        }
+    }
+}
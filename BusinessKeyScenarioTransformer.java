@@ -0,0 +1,83 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers the catch-all stubs of {@link BusinessKeyScenarioCatalogue}s: looks up the catalogue named
+ * by the stub's {@code catalogue} parameter and returns the scenario for the request's business key.
+ * Keys without a scenario go to the catalogue's {@link Fallback}, or get a 404 when it has none.
+ */
+public class BusinessKeyScenarioTransformer extends ResponseDefinitionTransformer {
+
+    public static final String NAME = "business-key-scenario";
+    public static final String CATALOGUE_PARAMETER = "catalogue";
+
+    private final Map<String, BusinessKeyScenarioCatalogue> catalogues = new ConcurrentHashMap<>();
+    private final Map<String, Fallback> fallbacks = new ConcurrentHashMap<>();
+
+    /**
+     * Answers requests of a catalogue's endpoint whose business key has no scenario.
+     */
+    @FunctionalInterface
+    public interface Fallback {
+        ResponseDefinition respond(Request request);
+    }
+
+    /**
+     * Registers the catalogue, or merges it into an already registered one of the same name.
+     *
+     * @return {@code true} if the catalogue is new and still needs its catch-all stub
+     */
+    public boolean register(BusinessKeyScenarioCatalogue catalogue) {
+        BusinessKeyScenarioCatalogue existing = catalogues.putIfAbsent(catalogue.getName(), catalogue);
+        if (existing != null) {
+            existing.merge(catalogue);
+            return false;
+        }
+        return true;
+    }
+
+    public void fallback(String catalogueName, Fallback fallback) {
+        fallbacks.put(catalogueName, fallback);
+    }
+
+    public BusinessKeyScenarioCatalogue catalogue(String name) {
+        return catalogues.get(name);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+
+    @Override
+    public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files,
+                                        Parameters parameters) {
+        String catalogueName = parameters == null ? null : parameters.getString(CATALOGUE_PARAMETER, null);
+        BusinessKeyScenarioCatalogue catalogue = catalogueName == null ? null : catalogues.get(catalogueName);
+        if (catalogue == null) {
+            return responseDefinition;
+        }
+        String key = catalogue.extractKey(request);
+        ResponseDefinition scenario = catalogue.find(key);
+        if (scenario == null) {
+            Fallback fallback = fallbacks.get(catalogueName);
+            if (fallback != null) {
+                return fallback.respond(request);
+            }
+            return new ResponseDefinition(404, "No scenario in catalogue '" + catalogueName + "' for business key '" + key + "'");
+        }
+        return scenario;
+    }
+}
@@ -0,0 +1,270 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the Ewyrys bearer token until shortly before it expires.
+ * <p>
+ * The expiry is read from the JWT {@code exp} claim (falling back to a configured TTL for opaque tokens).
+ * Inside the refresh-ahead window the token is renewed in the background while callers keep using the
+ * still-valid one; only when no valid token is left do callers block, and even then just one of them fetches:
+ * callers that waited for that fetch take its token, or its failure, instead of fetching again. After a failed
+ * fetch no new one is attempted for {@code failureBackoff}, doubled with each further failure in a row.
+ * The token is renewed ahead of expiry only while it is being used; an idle client lets it lapse.
+ */
+public class EwyrysAccessTokenCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EwyrysAccessTokenCache.class);
+    private static final ObjectMapper JWT_READER = new ObjectMapper();
+    private static final int MAX_BACKOFF_DOUBLINGS = 6;
+
+    private final Supplier<String> tokenSupplier;
+    private final Duration refreshAhead;
+    private final Duration defaultTtl;
+    private final Duration failureBackoff;
+    private final Clock clock;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean backgroundRefreshPending = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private volatile ScheduledFuture<?> scheduledRefresh;
+    private volatile CachedToken current;
+    private volatile FetchOutcome lastFetch = new FetchOutcome(null, null, Instant.MIN, 0);
+    private volatile boolean used;
+
+    private final Timer fetchTimer;
+    private final Counter blockingRefreshes;
+    private final Counter backgroundRefreshes;
+    private final Counter refreshFailures;
+
+    public EwyrysAccessTokenCache(Supplier<String> tokenSupplier, Duration refreshAhead, Duration defaultTtl,
+                                  Duration failureBackoff, MeterRegistry meterRegistry) {
+        this(tokenSupplier, refreshAhead, defaultTtl, failureBackoff, meterRegistry, Clock.systemUTC());
+    }
+
+    EwyrysAccessTokenCache(Supplier<String> tokenSupplier, Duration refreshAhead, Duration defaultTtl,
+                           Duration failureBackoff, MeterRegistry meterRegistry, Clock clock) {
+        this.tokenSupplier = tokenSupplier;
+        this.refreshAhead = refreshAhead;
+        this.defaultTtl = defaultTtl;
+        this.failureBackoff = failureBackoff;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ewyrys-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.fetchTimer = Timer.builder("ewyrys.client.token.fetch")
+            .description("Time spent fetching a new Ewyrys API access token")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        this.blockingRefreshes = Counter.builder("ewyrys.client.token.refresh")
+            .tag("trigger", "blocking")
+            .description("Ewyrys API token refreshes")
+            .register(meterRegistry);
+        this.backgroundRefreshes = Counter.builder("ewyrys.client.token.refresh")
+            .tag("trigger", "background")
+            .description("Ewyrys API token refreshes")
+            .register(meterRegistry);
+        this.refreshFailures = Counter.builder("ewyrys.client.token.refresh.failures")
+            .description("Failed Ewyrys API token refreshes")
+            .register(meterRegistry);
+    }
+
+    public String getToken() {
+        // read before the token, so a fetch that completes in between is recognised by refreshBlocking
+        FetchOutcome seen = lastFetch;
+        CachedToken token = current;
+        Instant now = clock.instant();
+        if (token != null && now.isBefore(token.expiresAt())) {
+            if (!used) {
+                used = true;
+            }
+            if (!now.isBefore(token.refreshAt()) && !now.isBefore(seen.retryAt())) {
+                triggerBackgroundRefresh();
+            }
+            return token.value();
+        }
+        return refreshBlocking(seen);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Waits until the refresh scheduled last, and the background refresh it may have triggered, have run.
+     */
+    void awaitScheduledRefresh(long timeout, TimeUnit unit) throws Exception {
+        ScheduledFuture<?> refresh = scheduledRefresh;
+        if (refresh != null) {
+            refresh.get(timeout, unit);
+        }
+        // the single scheduler thread runs this after anything queued before it
+        scheduler.submit(() -> { }).get(timeout, unit);
+    }
+
+    private String refreshBlocking(FetchOutcome seen) {
+        refreshLock.lock();
+        try {
+            FetchOutcome last = lastFetch;
+            if (last == seen && clock.instant().isBefore(last.retryAt())) {
+                // still backing off after the last failure
+                throw last.failure();
+            }
+            if (last == seen) {
+                blockingRefreshes.increment();
+                last = fetch();
+            }
+            // either our own fetch or one that completed while we were waiting for the lock
+            if (last.failure() != null) {
+                throw last.failure();
+            }
+            used = true;
+            return last.token().value();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void triggerBackgroundRefresh() {
+        if (backgroundRefreshPending.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::backgroundRefresh);
+            } catch (RuntimeException e) {
+                backgroundRefreshPending.set(false);
+                logger.warn("Could not schedule Ewyrys API token refresh", e);
+            }
+        }
+    }
+
+    private void scheduledRefresh() {
+        // an idle client lets the token lapse, its next call fetches one on demand
+        if (used) {
+            triggerBackgroundRefresh();
+        }
+    }
+
+    private void backgroundRefresh() {
+        refreshLock.lock();
+        try {
+            CachedToken token = current;
+            Instant now = clock.instant();
+            if ((token != null && now.isBefore(token.refreshAt())) || now.isBefore(lastFetch.retryAt())) {
+                return;
+            }
+            backgroundRefreshes.increment();
+            FetchOutcome outcome = fetch();
+            if (outcome.failure() != null) {
+                logger.warn("Background refresh of Ewyrys API token failed, keeping the current token until it expires",
+                    outcome.failure());
+                schedule(outcome.retryAt());
+            }
+        } finally {
+            backgroundRefreshPending.set(false);
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Fetches a token and publishes the outcome; must be called with the refresh lock held.
+     */
+    private FetchOutcome fetch() {
+        FetchOutcome previous = lastFetch;
+        String value;
+        long start = System.nanoTime();
+        try {
+            value = tokenSupplier.get();
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            int failures = previous.consecutiveFailures() + 1;
+            Duration backoff = failureBackoff.multipliedBy(1L << Math.min(failures - 1, MAX_BACKOFF_DOUBLINGS));
+            FetchOutcome failed = new FetchOutcome(null, e, clock.instant().plus(backoff), failures);
+            lastFetch = failed;
+            return failed;
+        } finally {
+            fetchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        Instant now = clock.instant();
+        Instant expiresAt = readExpiry(value).orElse(now.plus(defaultTtl));
+        Duration lifetime = Duration.between(now, expiresAt);
+        // short-lived tokens are refreshed halfway through instead of immediately
+        Duration ahead = lifetime.isNegative() ? Duration.ZERO
+            : refreshAhead.compareTo(lifetime.dividedBy(2)) < 0 ? refreshAhead : lifetime.dividedBy(2);
+        CachedToken token = new CachedToken(value, expiresAt, expiresAt.minus(ahead));
+        used = false;
+        current = token;
+        FetchOutcome fetched = new FetchOutcome(token, null, Instant.MIN, 0);
+        lastFetch = fetched;
+        // a token issued already expired (clock skew) is not renewed in a loop, callers fetch on demand
+        if (token.refreshAt().isAfter(now)) {
+            schedule(token.refreshAt());
+        }
+        return fetched;
+    }
+
+    private void schedule(Instant refreshAt) {
+        ScheduledFuture<?> previous = scheduledRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        long delay = Math.max(0, Duration.between(clock.instant(), refreshAt).toMillis());
+        try {
+            scheduledRefresh = scheduler.schedule(this::scheduledRefresh, delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // scheduler already shut down, callers will refresh on demand
+            scheduledRefresh = null;
+        }
+    }
+
+    private static Optional<Instant> readExpiry(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int first = token.indexOf('.');
+        int second = first < 0 ? -1 : token.indexOf('.', first + 1);
+        if (second < 0) {
+            return Optional.empty();
+        }
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(token.substring(first + 1, second));
+            JsonNode exp = JWT_READER.readTree(payload).get("exp");
+            return exp != null && exp.canConvertToLong()
+                ? Optional.of(Instant.ofEpochSecond(exp.asLong()))
+                : Optional.empty();
+        } catch (Exception e) {
+            logger.debug("Ewyrys API token is not a readable JWT, using default TTL");
+            return Optional.empty();
+        }
+    }
+
+    private record CachedToken(String value, Instant expiresAt, Instant refreshAt) {
+    }
+
+    /**
+     * The last fetch, successful or not; {@code retryAt} is when the next fetch may be attempted. Compared by
+     * identity: each fetch publishes a new instance.
+     */
+    private record FetchOutcome(CachedToken token, RuntimeException failure, Instant retryAt, int consecutiveFailures) {
+    }
+}
@@ -0,0 +1,29 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown without contacting Ewyrys when the resilience layer sheds the call.
+ */
+public class EwyrysApiCallRejectedException extends RestClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        /** Recent calls failed too often, Ewyrys is given time to recover. */
+        CIRCUIT_OPEN,
+        /** The adaptive concurrency limit is reached. */
+        CONCURRENCY_LIMIT
+    }
+
+    private final Reason reason;
+
+    public EwyrysApiCallRejectedException(Reason reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,185 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count-based circuit breaker over the last {@code windowSize} Ewyrys calls.
+ * <p>
+ * Opens when at least {@code minimumCalls} were recorded and the share of failures (5xx and timeouts)
+ * reaches {@code failureRateThreshold} percent. After {@code openDuration} it lets
+ * {@code halfOpenCalls} trial calls through; it closes again if all of them succeed.
+ * <p>
+ * While closed, calls share one permission and record their outcome in a lock-free window, so they
+ * do not serialise on the breaker; only state transitions and the trial calls of the half-open state lock.
+ */
+public class EwyrysApiCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * A granted permission, tagged with the state it was granted in. {@code period} changes on every state
+     * transition, so the outcome of a call admitted before a transition is not taken for one admitted after it.
+     */
+    public record Permission(State state, long period) {
+    }
+
+    private final int failureRateThreshold;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final long openDurationNanos;
+    private final int halfOpenCalls;
+
+    // the shared permission while closed; replaced, under the lock, on every transition
+    private volatile Permission current = new Permission(State.CLOSED, 0);
+    // outcomes of the closed period current.period(), if closed
+    private volatile Window window;
+    private volatile long openedAt;
+    private int halfOpenPermitted;
+    private int halfOpenSucceeded;
+
+    public EwyrysApiCircuitBreaker(int failureRateThreshold, int windowSize, int minimumCalls, Duration openDuration,
+                                   int halfOpenCalls) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openDurationNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.window = new Window(0, windowSize);
+    }
+
+    /**
+     * @return the permission to pass to {@link #onResult} or {@link #releasePermission}, or {@code null}
+     * when the call is rejected
+     */
+    public Permission tryAcquirePermission() {
+        Permission permission = current;
+        if (permission.state() == State.CLOSED) {
+            return permission;
+        }
+        if (permission.state() == State.OPEN && System.nanoTime() - openedAt < openDurationNanos) {
+            return null;
+        }
+        return tryAcquireTrialPermission();
+    }
+
+    private synchronized Permission tryAcquireTrialPermission() {
+        State state = current.state();
+        if (state == State.CLOSED) {
+            return current;
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openDurationNanos) {
+                return null;
+            }
+            transition(State.HALF_OPEN);
+            halfOpenPermitted = 0;
+            halfOpenSucceeded = 0;
+            // and hand out the first trial permit below
+        }
+        if (halfOpenPermitted >= halfOpenCalls) {
+            return null;
+        }
+        halfOpenPermitted++;
+        return current;
+    }
+
+    /**
+     * Returns a permission that was granted but not used for a call.
+     */
+    public void releasePermission(Permission permission) {
+        if (permission.state() != State.HALF_OPEN) {
+            return;
+        }
+        synchronized (this) {
+            if (isCurrent(permission) && halfOpenPermitted > 0) {
+                halfOpenPermitted--;
+            }
+        }
+    }
+
+    public void onResult(Permission permission, boolean failure) {
+        if (permission.state() == State.CLOSED) {
+            Window closedWindow = window;
+            // a call admitted in an earlier closed period says nothing about this one
+            if (closedWindow.period == permission.period() && closedWindow.record(failure)) {
+                openIfCurrent(permission);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (!isCurrent(permission)) {
+                // admitted under an earlier state: a trial of an earlier half-open period says nothing about
+                // the current one
+                return;
+            }
+            if (failure) {
+                open();
+            } else if (++halfOpenSucceeded >= halfOpenCalls) {
+                close();
+            }
+        }
+    }
+
+    public State getState() {
+        return current.state();
+    }
+
+    private synchronized void openIfCurrent(Permission permission) {
+        if (isCurrent(permission)) {
+            open();
+        }
+    }
+
+    private boolean isCurrent(Permission permission) {
+        return permission.equals(current);
+    }
+
+    private void transition(State next) {
+        current = new Permission(next, current.period() + 1);
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        transition(State.OPEN);
+    }
+
+    private void close() {
+        // the new window is in place before calls are admitted under the new period
+        window = new Window(current.period() + 1, windowSize);
+        transition(State.CLOSED);
+    }
+
+    /**
+     * Outcomes of the last calls of one closed period, in a ring written without locking. Concurrent calls
+     * may land in the ring out of order, which only blurs which of them is the oldest.
+     */
+    private final class Window {
+        private final long period;
+        // 1 for a failure
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicInteger failedCalls = new AtomicInteger();
+
+        private Window(long period, int size) {
+            this.period = period;
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        /**
+         * @return {@code true} when the failure rate has reached the threshold
+         */
+        private boolean record(boolean failure) {
+            long call = calls.getAndIncrement();
+            int outcome = failure ? 1 : 0;
+            int replaced = outcomes.getAndSet((int) (call % outcomes.length()), outcome);
+            int failed = outcome == replaced ? failedCalls.get() : failedCalls.addAndGet(outcome - replaced);
+            long recorded = Math.min(call + 1, outcomes.length());
+            return recorded >= minimumCalls && failed * 100L >= (long) failureRateThreshold * recorded;
+        }
+    }
+}
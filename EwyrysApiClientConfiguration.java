@@ -6,14 +6,22 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import java.nio.charset.StandardCharsets;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
 import org.springframework.boot.http.client.ClientHttpRequestFactorySettings;
 import org.springframework.context.annotation.Bean;
@@ -26,6 +34,7 @@ import org.springframework.http.converter.json.MappingJackson2HttpMessageConvert
 import org.springframework.web.client.RestClient;
 import pl.gov.coi.eunflowruadapterbe.ewyrys.client.api.ExtractEpucApi;
 import pl.gov.coi.eunflowruadapterbe.ewyrys.client.invoker.ApiClient;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.model.UpdateApplicationStatusRequest;
 import pl.gov.coi.eunflowruadapterbe.service.EwyrysApiSecurityService;
 
 @Configuration
@@ -51,56 +60,238 @@ public class EwyrysApiClientConfiguration {
     @Value("${ewyrysapi.fail-on-unknown-properties:true}")
     private boolean failOnUnknownProperties;
 
+    // Blackbird speeds up (de)serialization with generated accessors, other mapper settings are unchanged
+    @Value("${ewyrysapi.jackson.blackbird:false}")
+    private boolean jacksonBlackbird;
+
+    // write request bodies straight to the connection when no interceptor needs them
+    @Value("${ewyrysapi.streaming-body:false}")
+    private boolean streamingBody;
+
     @Value("${ssl.off:false}")
     private boolean sslOff;    
 
+    @Value("${ewyrysapi.pool.max-total:100}")
+    private int poolMaxTotal;
+
+    @Value("${ewyrysapi.pool.max-per-route:50}")
+    private int poolMaxPerRoute;
+
+    @Value("${ewyrysapi.pool.keep-alive-in-seconds:30}")
+    private int poolKeepAlive;
+
+    @Value("${ewyrysapi.pool.idle-eviction-in-seconds:60}")
+    private int poolIdleEviction;
+
+    @Value("${ewyrysapi.pool.http2:false}")
+    private boolean poolHttp2;
+
+    @Value("${ewyrysapi.token.refresh-ahead-in-seconds:60}")
+    private int tokenRefreshAhead;
+
+    // TTL for tokens that carry no readable "exp" claim
+    @Value("${ewyrysapi.token.default-ttl-in-seconds:300}")
+    private int tokenDefaultTtl;
+
+    // wait after a failed token fetch, doubled on each further failure in a row
+    @Value("${ewyrysapi.token.failure-backoff-in-ms:1000}")
+    private int tokenFailureBackoff;
+
+    @Value("${ewyrysapi.logging.enabled:true}")
+    private boolean loggingEnabled;
+
+    // fraction of exchanges that get logged, e.g. 0.01 for 1%
+    @Value("${ewyrysapi.logging.sample-rate:1.0}")
+    private double loggingSampleRate;
+
+    @Value("${ewyrysapi.logging.body:true}")
+    private boolean loggingBody;
+
+    @Value("${ewyrysapi.logging.body-max-length:1000}")
+    private int loggingBodyMaxLength;
+
+    @Value("${ewyrysapi.logging.response:false}")
+    private boolean loggingResponse;
+
+    @Value("${ewyrysapi.logging.redacted-headers:Authorization}")
+    private List<String> loggingRedactedHeaders;
+
+    @Value("${ewyrysapi.resilience.limiter.initial-limit:20}")
+    private int limiterInitialLimit;
+
+    @Value("${ewyrysapi.resilience.limiter.min-limit:1}")
+    private int limiterMinLimit;
+
+    @Value("${ewyrysapi.resilience.limiter.max-limit:200}")
+    private int limiterMaxLimit;
+
+    // calls slower than this shrink the concurrency limit
+    @Value("${ewyrysapi.resilience.limiter.latency-threshold-in-ms:2000}")
+    private int limiterLatencyThreshold;
+
+    @Value("${ewyrysapi.resilience.limiter.backoff-ratio:0.9}")
+    private double limiterBackoffRatio;
+
+    @Value("${ewyrysapi.resilience.circuit-breaker.failure-rate-threshold:50}")
+    private int circuitFailureRateThreshold;
+
+    @Value("${ewyrysapi.resilience.circuit-breaker.window-size:50}")
+    private int circuitWindowSize;
+
+    @Value("${ewyrysapi.resilience.circuit-breaker.minimum-calls:20}")
+    private int circuitMinimumCalls;
+
+    @Value("${ewyrysapi.resilience.circuit-breaker.open-duration-in-seconds:30}")
+    private int circuitOpenDuration;
+
+    @Value("${ewyrysapi.resilience.circuit-breaker.half-open-calls:5}")
+    private int circuitHalfOpenCalls;
+
+    // one switch for every meter of the client: request timers, token cache, pool, resilience, dedup, write-behind
+    @Value("${ewyrysapi.metrics.enabled:true}")
+    private boolean metricsEnabled;
+
+    // how long a successful result answers immediate retries of the same call (0 disables the cache)
+    @Value("${ewyrysapi.dedup.result-ttl-in-ms:2000}")
+    private int dedupResultTtl;
+
+    @Value("${ewyrysapi.dedup.max-cached-results:10000}")
+    private int dedupMaxCachedResults;
+
+    @Value("${ewyrysapi.async.max-in-flight:32}")
+    private int asyncMaxInFlight;
+
+    // virtual threads require Java 21+
+    @Value("${ewyrysapi.async.virtual-threads:false}")
+    private boolean asyncVirtualThreads;
+
+    @Value("${ewyrysapi.status-write-behind.max-pending:10000}")
+    private int writeBehindMaxPending;
+
+    @Value("${ewyrysapi.status-write-behind.batch-size:100}")
+    private int writeBehindBatchSize;
+
+    @Value("${ewyrysapi.status-write-behind.flush-interval-in-ms:200}")
+    private int writeBehindFlushInterval;
+
+    @Value("${ewyrysapi.status-write-behind.parallelism:8}")
+    private int writeBehindParallelism;
+
+    // how long enqueue waits for room when max-pending keys are queued
+    @Value("${ewyrysapi.status-write-behind.enqueue-timeout-in-ms:1000}")
+    private int writeBehindEnqueueTimeout;
+
+    @Value("${ewyrysapi.status-write-behind.max-attempts:5}")
+    private int writeBehindMaxAttempts;
+
+    // doubled on each further failure of the same update
+    @Value("${ewyrysapi.status-write-behind.retry-backoff-in-ms:500}")
+    private int writeBehindRetryBackoff;
+
+    // close waits this long for queued and in-flight updates, then logs the keys it leaves behind
+    @Value("${ewyrysapi.status-write-behind.shutdown-timeout-in-ms:10000}")
+    private int writeBehindShutdownTimeout;
+
+    // record every exchange into a binary traffic log for later replay (unset = off)
+    @Value("${ewyrysapi.traffic-log.file:}")
+    private String trafficLogFile;
+
+    @Value("${ewyrysapi.traffic-log.max-body-bytes:1048576}")
+    private int trafficLogMaxBodyBytes;
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ewyrysapi.pool.enabled", havingValue = "true")
+    EwyrysApiConnectionPool ewyrysApiConnectionPool(ObjectProvider<MeterRegistry> meterRegistry) {
+        if (sslOff) {
+            logger.warn("Pooled EWYRYS API connections trust all certificates (ssl.off=true). This is NOT recommended for production environments.");
+        }
+        EwyrysApiConnectionPool pool = EwyrysApiConnectionPool.create(new EwyrysApiConnectionPool.Settings(
+            poolMaxTotal,
+            poolMaxPerRoute,
+            Duration.ofSeconds(poolKeepAlive),
+            Duration.ofSeconds(poolIdleEviction),
+            Duration.ofSeconds(connectTimeout),
+            Duration.ofSeconds(readTimeout),
+            poolHttp2
+        ), sslOff);
+        if (metricsEnabled) {
+            meterRegistry.ifAvailable(pool::bindTo);
+        }
+        return pool;
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ewyrysapi.traffic-log.file")
+    TrafficLogWriter ewyrysApiTrafficLog() {
+        return new TrafficLogWriter(Path.of(trafficLogFile), trafficLogMaxBodyBytes);
+    }
+
+    @Bean(destroyMethod = "close")
+    EwyrysAccessTokenCache ewyrysAccessTokenCache(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new EwyrysAccessTokenCache(
+            ewyrysApiSecurityService::getEwyrysAccessToken,
+            Duration.ofSeconds(tokenRefreshAhead),
+            Duration.ofSeconds(tokenDefaultTtl),
+            Duration.ofMillis(tokenFailureBackoff),
+            meterRegistry(meterRegistry)
+        );
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "ewyrysapi.resilience.enabled", havingValue = "true")
+    EwyrysApiResilienceInterceptor ewyrysApiResilienceInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+        EwyrysApiConcurrencyLimiter limiter = new EwyrysApiConcurrencyLimiter(
+            limiterInitialLimit,
+            limiterMinLimit,
+            limiterMaxLimit,
+            Duration.ofMillis(limiterLatencyThreshold),
+            limiterBackoffRatio
+        );
+        EwyrysApiCircuitBreaker circuitBreaker = new EwyrysApiCircuitBreaker(
+            circuitFailureRateThreshold,
+            circuitWindowSize,
+            circuitMinimumCalls,
+            Duration.ofSeconds(circuitOpenDuration),
+            circuitHalfOpenCalls
+        );
+        return new EwyrysApiResilienceInterceptor(limiter, circuitBreaker, meterRegistry(meterRegistry));
+    }
+
     @Bean(name = "ewyrysApiClient")
-    ApiClient ewyrysApiClient() {
-
-        // 1. Create a logging interceptor
-        ClientHttpRequestInterceptor logging = (request, body, execution) -> {
-            logger.info("<=== EWYRYS API START ===>");
-            logger.info("{} {}", request.getMethod(), request.getURI());
-            request.getHeaders().forEach((k, v) -> {
-                if ("authorization".equalsIgnoreCase(k)) {
-                    logger.info("{}: {}", k, "[REDACTED]");
-                } else {
-                    logger.info("{}: {}", k, v);
-                }
-            });
-            // Log body only for JSON and keep it short
-            String ct = request.getHeaders().getFirst("Content-Type");
-            if (ct != null && (ct.startsWith("application/json") || ct.contains("+json"))) {
-                if (body != null && body.length < 1000) {
-                    String preview = new String(body, StandardCharsets.UTF_8);
-                    logger.info("Body: {}", preview);
-                }
-            }
-            logger.info("<=== EWYRYS API END ===>");
-            return execution.execute(request, body);
-        };
+    ApiClient ewyrysApiClient(ObjectProvider<EwyrysApiConnectionPool> connectionPool,
+                              ObjectProvider<EwyrysApiResilienceInterceptor> resilience,
+                              ObjectProvider<MeterRegistry> meterRegistryProvider,
+                              ObjectProvider<TrafficLogWriter> trafficLog,
+                              ObjectProvider<EwyrysApiSingleFlight> singleFlight,
+                              EwyrysAccessTokenCache tokenCache) {
+
+        // 0. Metrics are recorded only when a registry is available
+        MeterRegistry meterRegistry = metricsEnabled ? meterRegistryProvider.getIfAvailable() : null;
+
+        // 1. Create a logging interceptor (one line per exchange, sampled)
+        EwyrysApiLoggingInterceptor logging = new EwyrysApiLoggingInterceptor(
+            loggingSampleRate, loggingBody, loggingBodyMaxLength, loggingResponse, loggingRedactedHeaders);
 
         // 2. Create a mapper that writes dates as ISO-8601 strings
-        ObjectMapper objectMapper = new ObjectMapper()
-            .registerModule(new JavaTimeModule())
-            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.disable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS);
-        objectMapper.disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
-        objectMapper.configOverride(OffsetDateTime.class).setFormat(JsonFormat.Value.forShape(JsonFormat.Shape.STRING));
-        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, failOnUnknownProperties);
+        ObjectMapper objectMapper = createObjectMapper(failOnUnknownProperties, jacksonBlackbird);
 
         // 3. Create a JSON message converter with our mapper
-        MappingJackson2HttpMessageConverter jackson = new MappingJackson2HttpMessageConverter(objectMapper);
+        MappingJackson2HttpMessageConverter jackson = meterRegistry != null
+            ? new EwyrysApiJsonConverter(objectMapper, meterRegistry)
+            : new MappingJackson2HttpMessageConverter(objectMapper);
         jackson.setSupportedMediaTypes(List.of(
             MediaType.APPLICATION_JSON,
             MediaType.valueOf("application/problem+json"),
             MediaType.valueOf("application/*+json")
         ));
 
-        // 4. Configure timeouts
+        // 4. Configure timeouts (the pooled engine, when enabled, carries its own)
         ClientHttpRequestFactory requestFactory = null;
-        if (sslOff) {
+        EwyrysApiConnectionPool pool = connectionPool.getIfAvailable();
+        if (pool != null) {
+            requestFactory = pool.requestFactory();
+
+        } else if (sslOff) {
             logger.warn("RestClient EWYRYS API SSL verification is disabled (ssl.off=true). This is NOT recommended for production environments.");
             requestFactory = new org.springframework.http.client.SimpleClientHttpRequestFactory() {{
                 setConnectTimeout(Duration.ofSeconds(connectTimeout));
@@ -116,27 +307,123 @@ public class EwyrysApiClientConfiguration {
             requestFactory = ClientHttpRequestFactoryBuilder.detect().build(settings);
         }
 
-        RestClient restClient = RestClient.builder()
+        Timer tokenTimer = meterRegistry == null ? null : Timer.builder("ewyrys.client.token.acquire")
+            .description("Time spent obtaining the bearer token for an Ewyrys API request")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+
+        // 5. Assemble the interceptor chain
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>();
+        // duplicates are answered before they take a concurrency slot or get logged as sent
+        EwyrysApiSingleFlight deduplication = singleFlight.getIfAvailable();
+        if (deduplication != null) {
+            interceptors.add(new EwyrysApiDeduplicatingInterceptor(deduplication));
+        }
+        // resilience runs next so rejected calls fail fast without being logged as sent
+        resilience.ifAvailable(interceptors::add);
+        if (loggingEnabled) {
+            interceptors.add(logging);
+        }
+        TrafficLogWriter trafficLogWriter = trafficLog.getIfAvailable();
+        if (trafficLogWriter != null) {
+            interceptors.add(new EwyrysApiTrafficRecordingInterceptor(trafficLogWriter));
+        }
+        // metrics run last so their timer covers the exchange only
+        if (meterRegistry != null) {
+            interceptors.add(new EwyrysApiMetricsInterceptor(meterRegistry));
+        }
+
+        RestClient.Builder restClientBuilder = RestClient.builder()
             .requestInitializer(request -> {
-                String token = ewyrysApiSecurityService.getEwyrysAccessToken();
+                String token = tokenTimer != null ? tokenTimer.record(tokenCache::getToken) : tokenCache.getToken();
                 request.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer " + token);
             })
-            .requestFactory(requestFactory)
-            .requestInterceptor(logging)
             .messageConverters(list -> {
                 list.removeIf(c -> c instanceof MappingJackson2HttpMessageConverter);
                 list.add(0, jackson);
-            })
-            .build();
+            });
+
+        boolean bodyNeeded = (loggingEnabled && logging.needsBody()) || trafficLogWriter != null || deduplication != null;
+        if (streamingBody && !bodyNeeded) {
+            // RestClient buffers bodies for its own interceptors, so run them inside the request factory instead
+            restClientBuilder.requestFactory(new EwyrysApiStreamingRequestFactory(requestFactory, interceptors));
+        } else {
+            if (streamingBody) {
+                logger.info("EWYRYS API streaming body disabled because body logging (ewyrysapi.logging.body=true), traffic recording (ewyrysapi.traffic-log.file) or deduplication (ewyrysapi.dedup.enabled=true) is on");
+            }
+            restClientBuilder
+                .requestFactory(requestFactory)
+                .requestInterceptors(list -> list.addAll(interceptors));
+        }
+        RestClient restClient = restClientBuilder.build();
 
         ApiClient apiClient = new ApiClient(restClient, objectMapper, ApiClient.createDefaultDateFormat());
         apiClient.setBasePath(baseUrl);
         return apiClient;
     }
     
+    /**
+     * Registry for components that always register their meters: the application's (or the global) one,
+     * or one without backends when ewyrysapi.metrics.enabled=false, so nothing they register is published.
+     */
+    private MeterRegistry meterRegistry(ObjectProvider<MeterRegistry> meterRegistry) {
+        return metricsEnabled ? meterRegistry.getIfAvailable(() -> Metrics.globalRegistry) : new CompositeMeterRegistry();
+    }
+
+    static ObjectMapper createObjectMapper(boolean failOnUnknownProperties, boolean blackbird) {
+        ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(SerializationFeature.WRITE_DATE_TIMESTAMPS_AS_NANOSECONDS);
+        objectMapper.disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS);
+        objectMapper.configOverride(OffsetDateTime.class).setFormat(JsonFormat.Value.forShape(JsonFormat.Shape.STRING));
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, failOnUnknownProperties);
+        if (blackbird) {
+            objectMapper.registerModule(new BlackbirdModule());
+        }
+        return objectMapper;
+    }
+
     @Bean
     public ExtractEpucApi extractEpucApi(@Qualifier("ewyrysApiClient") ApiClient apiClient) {
         return new ExtractEpucApi(apiClient);
     }
 
+    // identical create-application calls of ewyrysApiClient share one exchange, see EwyrysApiDeduplicatingInterceptor
+    @Bean
+    @ConditionalOnProperty(name = "ewyrysapi.dedup.enabled", havingValue = "true")
+    public EwyrysApiSingleFlight ewyrysApiSingleFlight(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new EwyrysApiSingleFlight(
+            Duration.ofMillis(dedupResultTtl),
+            dedupMaxCachedResults,
+            meterRegistry(meterRegistry)
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    public ExtractEpucAsyncApi extractEpucAsyncApi(ExtractEpucApi extractEpucApi) {
+        return new ExtractEpucAsyncApi(extractEpucApi, asyncMaxInFlight, asyncVirtualThreads);
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ewyrysapi.status-write-behind.enabled", havingValue = "true")
+    public EwyrysApplicationStatusWriteBehind<UpdateApplicationStatusRequest> ewyrysApplicationStatusWriteBehind(
+            ExtractEpucApi extractEpucApi, ObjectProvider<MeterRegistry> meterRegistry) {
+        return new EwyrysApplicationStatusWriteBehind<>(
+            extractEpucApi::updateApplicationStatus,
+            new EwyrysApplicationStatusWriteBehind.Settings(
+                writeBehindMaxPending,
+                writeBehindBatchSize,
+                Duration.ofMillis(writeBehindFlushInterval),
+                writeBehindParallelism,
+                Duration.ofMillis(writeBehindEnqueueTimeout),
+                writeBehindMaxAttempts,
+                Duration.ofMillis(writeBehindRetryBackoff),
+                Duration.ofMillis(writeBehindShutdownTimeout)
+            ),
+            meterRegistry(meterRegistry)
+        );
+    }
+
 }
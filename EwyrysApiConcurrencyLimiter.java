@@ -0,0 +1,71 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIMD concurrency limit driven by observed latency.
+ * <p>
+ * Every call that completes within {@code latencyThreshold} while the limit is in use grows the limit
+ * by {@code 1/limit} (roughly +1 per round trip); a slow call, a 5xx or a timeout multiplies it by
+ * {@code backoffRatio}. The limit always stays between {@code minLimit} and {@code maxLimit}.
+ */
+public class EwyrysApiConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    public EwyrysApiConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                                       double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot acquired with {@link #tryAcquire()} and adjusts the limit.
+     *
+     * @param dropped whether the call failed in a way that signals overload (5xx, timeout)
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        boolean backOff = dropped || latencyNanos > latencyThresholdNanos;
+        // the new limit is derived from the one it replaces, so concurrent releases must not
+        // read the same value and overwrite each other's step
+        synchronized (this) {
+            if (backOff) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlightBefore * 2 >= limit) {
+                // only grow while the current limit is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,197 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Optional;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
+import org.apache.hc.client5.http.ssl.TrustAllStrategy;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+/**
+ * Pooled, keep-alive connection engine for the Ewyrys API client.
+ * <p>
+ * HTTP/1.1 uses an Apache HttpClient 5 pool with per-route limits, keep-alive and idle eviction. An idle
+ * connection is reused for the configured keep-alive at most, or less when the server announces a shorter
+ * {@code Keep-Alive: timeout=}, so the pool does not pick a connection the server has already closed.
+ * HTTP/2 uses the JDK client, which multiplexes requests over one connection per origin and
+ * therefore has no pool statistics to report.
+ */
+public class EwyrysApiConnectionPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EwyrysApiConnectionPool.class);
+
+    /**
+     * Shortest keep-alive HttpClient does not treat as unlimited; the connection expires before it can be reused.
+     */
+    static final Duration CLOSE_NOW = Duration.ofMillis(1);
+
+    private final ClientHttpRequestFactory requestFactory;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient httpClient;
+
+    private EwyrysApiConnectionPool(ClientHttpRequestFactory requestFactory,
+                                    PoolingHttpClientConnectionManager connectionManager,
+                                    CloseableHttpClient httpClient) {
+        this.requestFactory = requestFactory;
+        this.connectionManager = connectionManager;
+        this.httpClient = httpClient;
+    }
+
+    public static EwyrysApiConnectionPool create(Settings settings, boolean sslOff) {
+        SSLContext sslContext = sslOff ? trustAllSslContext() : null;
+
+        if (settings.http2()) {
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.connectTimeout());
+            if (sslContext != null) {
+                builder.sslContext(sslContext);
+            }
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(builder.build());
+            factory.setReadTimeout(settings.readTimeout());
+            logger.info("Ewyrys API connection engine: HTTP/2 (JDK HttpClient, multiplexed)");
+            return new EwyrysApiConnectionPool(factory, null, null);
+        }
+
+        PoolingHttpClientConnectionManagerBuilder managerBuilder = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(settings.maxTotal())
+            .setMaxConnPerRoute(settings.maxPerRoute())
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(settings.connectTimeout()))
+                .setSocketTimeout(Timeout.of(settings.readTimeout()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build());
+        if (sslContext != null) {
+            managerBuilder.setTlsSocketStrategy(new DefaultClientTlsStrategy(sslContext, NoopHostnameVerifier.INSTANCE));
+        }
+        PoolingHttpClientConnectionManager connectionManager = managerBuilder.build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy((response, context) -> {
+                Header header = response.getFirstHeader("Keep-Alive");
+                return TimeValue.of(keepAlive(header == null ? null : header.getValue(), settings.keepAlive()));
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.of(settings.idleEviction()))
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(settings.connectTimeout()))
+                .build())
+            .build();
+
+        logger.info("Ewyrys API connection engine: pooled HTTP/1.1 (maxTotal={}, maxPerRoute={}, keepAlive={}, idleEviction={})",
+            settings.maxTotal(), settings.maxPerRoute(), settings.keepAlive(), settings.idleEviction());
+        return new EwyrysApiConnectionPool(new HttpComponentsClientHttpRequestFactory(httpClient), connectionManager, httpClient);
+    }
+
+    public ClientHttpRequestFactory requestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * Current pool occupancy, or empty when running on HTTP/2.
+     */
+    public Optional<Stats> stats() {
+        if (connectionManager == null) {
+            return Optional.empty();
+        }
+        PoolStats total = connectionManager.getTotalStats();
+        return Optional.of(new Stats(total.getLeased(), total.getAvailable(), total.getPending(), total.getMax()));
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        if (connectionManager == null) {
+            return;
+        }
+        Gauge.builder("ewyrys.client.pool.leased", connectionManager, m -> m.getTotalStats().getLeased())
+            .description("Connections currently leased from the Ewyrys API pool")
+            .register(registry);
+        Gauge.builder("ewyrys.client.pool.available", connectionManager, m -> m.getTotalStats().getAvailable())
+            .description("Idle connections kept alive in the Ewyrys API pool")
+            .register(registry);
+        Gauge.builder("ewyrys.client.pool.pending", connectionManager, m -> m.getTotalStats().getPending())
+            .description("Requests waiting for a connection from the Ewyrys API pool")
+            .register(registry);
+        Gauge.builder("ewyrys.client.pool.max", connectionManager, m -> m.getTotalStats().getMax())
+            .description("Maximum number of connections in the Ewyrys API pool")
+            .register(registry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+    }
+
+    /**
+     * The {@code timeout} of a {@code Keep-Alive} header value such as {@code timeout=5, max=1000}, when it is
+     * shorter than {@code configured}; otherwise {@code configured}. HttpClient reads a non-positive keep-alive
+     * as unlimited, so the server's {@code timeout=0} becomes {@link #CLOSE_NOW} rather than zero.
+     */
+    static Duration keepAlive(String keepAliveHeader, Duration configured) {
+        if (keepAliveHeader == null) {
+            return configured;
+        }
+        for (String parameter : keepAliveHeader.split(",")) {
+            int equals = parameter.indexOf('=');
+            if (equals < 0 || !parameter.substring(0, equals).trim().equalsIgnoreCase("timeout")) {
+                continue;
+            }
+            try {
+                long seconds = Long.parseLong(parameter.substring(equals + 1).trim());
+                if (seconds >= 0 && Duration.ofSeconds(seconds).compareTo(configured) < 0) {
+                    return seconds == 0 ? CLOSE_NOW : Duration.ofSeconds(seconds);
+                }
+            } catch (NumberFormatException e) {
+                logger.debug("Ignoring malformed Keep-Alive header: {}", keepAliveHeader);
+            }
+            return configured;
+        }
+        return configured;
+    }
+
+    private static SSLContext trustAllSslContext() {
+        try {
+            return SSLContexts.custom()
+                .loadTrustMaterial(TrustAllStrategy.INSTANCE)
+                .build();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to create trust-all SSL context for Ewyrys API", e);
+        }
+    }
+
+    public record Settings(int maxTotal,
+                           int maxPerRoute,
+                           Duration keepAlive,
+                           Duration idleEviction,
+                           Duration connectTimeout,
+                           Duration readTimeout,
+                           boolean http2) {
+    }
+
+    public record Stats(int leased, int available, int pending, int max) {
+    }
+}
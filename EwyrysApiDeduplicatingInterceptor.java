@@ -0,0 +1,113 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Puts {@link EwyrysApiSingleFlight} in front of the generated Ewyrys API: create-application requests with the
+ * same URI and body share one exchange, so a retried create does not reach Ewyrys twice.
+ * <p>
+ * Status updates are always sent. They are not idempotent over time: answering a repeated update from the
+ * cache would drop the second {@code A} of {@code A -> B -> A} and leave Ewyrys at {@code B}.
+ * <p>
+ * The shared response is buffered and every caller reads its own copy. Only {@code 2xx} responses are kept
+ * for the result TTL; other statuses are handed to the calls that waited for them, like exceptions.
+ */
+public class EwyrysApiDeduplicatingInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final String CREATE_APPLICATION_PATH = "/application";
+
+    private final EwyrysApiSingleFlight singleFlight;
+
+    public EwyrysApiDeduplicatingInterceptor(EwyrysApiSingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!isCreateApplication(request)) {
+            return execution.execute(request, body);
+        }
+        try {
+            return singleFlight.execute(request.getMethod().name(), request.getURI().toString(), ByteBuffer.wrap(body),
+                () -> send(request, body, execution)).replay();
+        } catch (UnsuccessfulResponse e) {
+            return e.response.replay();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isCreateApplication(HttpRequest request) {
+        String path = request.getURI().getPath();
+        return HttpMethod.POST.equals(request.getMethod()) && path != null && path.endsWith(CREATE_APPLICATION_PATH);
+    }
+
+    private static BufferedResponse send(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) {
+        try (ClientHttpResponse response = execution.execute(request, body)) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.getHeaders());
+            BufferedResponse buffered = new BufferedResponse(response.getStatusCode(), response.getStatusText(),
+                HttpHeaders.readOnlyHttpHeaders(headers), response.getBody().readAllBytes());
+            if (!buffered.status().is2xxSuccessful()) {
+                // never cached as a result, but still shared with the calls waiting for it
+                throw new UnsuccessfulResponse(buffered);
+            }
+            return buffered;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private record BufferedResponse(HttpStatusCode status, String statusText, HttpHeaders headers, byte[] body) {
+
+        private ClientHttpResponse replay() {
+            return new ClientHttpResponse() {
+                @Override
+                public HttpStatusCode getStatusCode() {
+                    return status;
+                }
+
+                @Override
+                public String getStatusText() {
+                    return statusText;
+                }
+
+                @Override
+                public HttpHeaders getHeaders() {
+                    return headers;
+                }
+
+                @Override
+                public InputStream getBody() {
+                    return new ByteArrayInputStream(body);
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    private static final class UnsuccessfulResponse extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient BufferedResponse response;
+
+        private UnsuccessfulResponse(BufferedResponse response) {
+            super("Ewyrys API answered " + response.status().value(), null, false, false);
+            this.response = response;
+        }
+    }
+}
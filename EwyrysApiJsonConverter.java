@@ -0,0 +1,57 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Jackson converter for the Ewyrys API that times serialization and deserialization separately from
+ * the exchange itself. Deserialization time includes reading the response body from the connection.
+ */
+public class EwyrysApiJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    private final Timer serialization;
+    private final Timer deserialization;
+
+    public EwyrysApiJsonConverter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        super(objectMapper);
+        this.serialization = Timer.builder("ewyrys.client.serialization")
+            .description("Time spent writing Ewyrys API request bodies")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.deserialization = Timer.builder("ewyrys.client.deserialization")
+            .description("Time spent reading Ewyrys API response bodies")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        long start = System.nanoTime();
+        try {
+            super.writeInternal(object, type, outputMessage);
+        } finally {
+            serialization.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        long start = System.nanoTime();
+        try {
+            return super.read(type, contextClass, inputMessage);
+        } finally {
+            deserialization.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
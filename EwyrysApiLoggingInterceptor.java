@@ -0,0 +1,112 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Logs one line per Ewyrys API exchange.
+ * <p>
+ * Nothing is formatted unless INFO is enabled and the exchange is picked by the sample rate. Redacted
+ * headers keep their name but not their value; the body is only decoded for short JSON payloads.
+ */
+public class EwyrysApiLoggingInterceptor implements ClientHttpRequestInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(EwyrysApiLoggingInterceptor.class);
+
+    private final double sampleRate;
+    private final boolean logBody;
+    private final int maxBodyLength;
+    private final boolean logResponse;
+    private final Set<String> redactedHeaders;
+
+    public EwyrysApiLoggingInterceptor(double sampleRate, boolean logBody, int maxBodyLength, boolean logResponse,
+                                       Collection<String> redactedHeaders) {
+        this.sampleRate = sampleRate;
+        this.logBody = logBody;
+        this.maxBodyLength = maxBodyLength;
+        this.logResponse = logResponse;
+        this.redactedHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        this.redactedHeaders.addAll(redactedHeaders);
+    }
+
+    public boolean needsBody() {
+        return logBody;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!logger.isInfoEnabled() || !sampled()) {
+            return execution.execute(request, body);
+        }
+
+        StringBuilder line = new StringBuilder(256)
+            .append("EWYRYS API ").append(request.getMethod()).append(' ').append(request.getURI());
+        appendHeaders(line, request.getHeaders());
+        if (logBody) {
+            appendBody(line, request.getHeaders(), body);
+        }
+
+        if (!logResponse) {
+            logger.info("{}", line);
+            return execution.execute(request, body);
+        }
+
+        long start = System.nanoTime();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            line.append(" status=").append(response.getStatusCode().value());
+            return response;
+        } catch (IOException | RuntimeException e) {
+            line.append(" error=").append(e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            line.append(" latencyMs=").append((System.nanoTime() - start) / 1_000_000);
+            logger.info("{}", line);
+        }
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void appendHeaders(StringBuilder line, HttpHeaders headers) {
+        line.append(" headers={");
+        boolean first = true;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!first) {
+                line.append(", ");
+            }
+            first = false;
+            line.append(header.getKey()).append('=');
+            if (redactedHeaders.contains(header.getKey())) {
+                line.append("[REDACTED]");
+            } else {
+                line.append(header.getValue());
+            }
+        }
+        line.append('}');
+    }
+
+    private void appendBody(StringBuilder line, HttpHeaders headers, byte[] body) {
+        if (body == null || body.length == 0 || body.length >= maxBodyLength) {
+            return;
+        }
+        String ct = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        if (ct != null && (ct.startsWith("application/json") || ct.contains("+json"))) {
+            line.append(" body=").append(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Records network time and payload sizes per {@code ExtractEpucApi} operation and status class.
+ * <p>
+ * Registered last in the chain, so the timer covers the exchange itself and not the work of other
+ * interceptors; body serialization happens earlier and is timed by {@link EwyrysApiJsonConverter}.
+ * Received bytes are counted as the body is read and recorded when the response is closed.
+ */
+public class EwyrysApiMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    static final String APPLICATION_PATH = "/ewyrys-epuc/v1.0/application";
+
+    private static final List<String> OPERATIONS = List.of("createApplication", "updateApplicationStatus", "other");
+    // index 0 stands for a failed exchange, the others for the first digit of the status code
+    private static final String[] STATUS_CLASSES = {"IO_ERROR", "1xx", "2xx", "3xx", "4xx", "5xx", "6xx", "7xx", "8xx", "9xx"};
+    private static final int IO_ERROR = 0;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, OperationMeters> operations;
+
+    public EwyrysApiMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Map<String, OperationMeters> meters = new HashMap<>();
+        for (String operation : OPERATIONS) {
+            meters.put(operation, new OperationMeters(operation));
+        }
+        this.operations = Map.copyOf(meters);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        OperationMeters meters = operations.get(operationOf(request.getMethod(), request.getURI().getPath()));
+        if (body != null && body.length > 0) {
+            meters.requestBytes.record(body.length);
+        }
+
+        long start = System.nanoTime();
+        int statusClass = IO_ERROR;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            statusClass = response.getStatusCode().value() / 100;
+            return new CountingResponse(response, meters.responseBytes);
+        } finally {
+            meters.timer(statusClass).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Maps a request onto the {@code ExtractEpucApi} operation it belongs to.
+     */
+    static String operationOf(HttpMethod method, String path) {
+        int index = path == null ? -1 : path.indexOf(APPLICATION_PATH);
+        if (index >= 0) {
+            String rest = path.substring(index + APPLICATION_PATH.length());
+            if (rest.isEmpty() || "/".equals(rest)) {
+                if (HttpMethod.POST.equals(method)) {
+                    return "createApplication";
+                }
+            } else if (HttpMethod.PUT.equals(method) && rest.indexOf('/', 1) < 0) {
+                return "updateApplicationStatus";
+            }
+        }
+        return "other";
+    }
+
+    /**
+     * Meters of one operation, resolved up front so a request does not build lookup keys. Timers are
+     * registered on the first response of their status class, so unused classes are not exported.
+     */
+    private final class OperationMeters {
+        private final String operation;
+        private final DistributionSummary requestBytes;
+        private final DistributionSummary responseBytes;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(STATUS_CLASSES.length);
+
+        private OperationMeters(String operation) {
+            this.operation = operation;
+            this.requestBytes = bytes("ewyrys.client.request.bytes");
+            this.responseBytes = bytes("ewyrys.client.response.bytes");
+        }
+
+        private Timer timer(int statusClass) {
+            Timer timer = timers.get(statusClass);
+            if (timer == null) {
+                // registering is idempotent, a racing thread gets the same timer back
+                timer = Timer.builder("ewyrys.client.requests")
+                    .description("Ewyrys API network time, excluding serialization and token acquisition")
+                    .tag("operation", operation)
+                    .tag("status", STATUS_CLASSES[statusClass])
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+                timers.set(statusClass, timer);
+            }
+            return timer;
+        }
+
+        private DistributionSummary bytes(String name) {
+            return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        }
+    }
+
+    private static final class CountingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final DistributionSummary received;
+        private CountingInputStream body;
+
+        private CountingResponse(ClientHttpResponse delegate, DistributionSummary received) {
+            this.delegate = delegate;
+            this.received = received;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new CountingInputStream(delegate.getBody());
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            if (body != null) {
+                received.record(body.count);
+            }
+            delegate.close();
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
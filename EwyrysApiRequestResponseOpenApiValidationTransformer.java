@@ -1,6 +1,5 @@
 package pl.gov.coi.eunflowruadapterbe.config.mock;
 
-import com.atlassian.oai.validator.OpenApiInteractionValidator;
 import com.atlassian.oai.validator.model.SimpleResponse;
 import com.atlassian.oai.validator.report.LevelResolver;
 import com.atlassian.oai.validator.report.ValidationReport;
@@ -15,22 +14,100 @@ import org.slf4j.LoggerFactory;
 public class EwyrysApiRequestResponseOpenApiValidationTransformer extends ResponseTransformer {
 
     private static final Logger logger = LoggerFactory.getLogger(EwyrysApiRequestResponseOpenApiValidationTransformer.class);
-    private final OpenApiInteractionValidator validator;
+
+    private static final LevelResolver LEVEL_RESOLVER = LevelResolver.create()
+        .withLevel("validation.request.security.*", ValidationReport.Level.ERROR)
+        .withLevel("validation.response.security.*", ValidationReport.Level.ERROR)
+        // ignore responses with a status code not declared in the spec (e.g. 401/403 in negative flows)
+        .withLevel("validation.response.status.unknown", ValidationReport.Level.IGNORE)
+        .build();
+
+    // parsing and compiling a spec dominates startup; validators are stateless, so every transformer
+    // built for the same spec in this JVM (e.g. one per test context) shares them
+    private static final java.util.Map<String, OpenApiRouteIndex> ROUTE_INDEXES = new java.util.concurrent.ConcurrentHashMap<>();
+
+    /**
+     * STRICT validates inline and turns violations into a 400; ASYNC returns the stub response at once
+     * and validates a sample of interactions in the background, recording violations in a report store.
+     */
+    public enum Mode {
+        STRICT, ASYNC
+    }
+
+    private final OpenApiRouteIndex routeIndex;
+    private final OpenApiValidationReportCache reportCache;
+    private final Mode mode;
+    private final double sampleRate;
+    private final OpenApiViolationStore violationStore;
+    private final OpenApiValidationStatistics statistics = new OpenApiValidationStatistics();
+    private final java.util.concurrent.ThreadPoolExecutor backgroundValidation;
+    private final java.util.concurrent.atomic.LongAdder droppedValidations = new java.util.concurrent.atomic.LongAdder();
+    private final java.util.concurrent.atomic.LongAdder unmatchedRequests = new java.util.concurrent.atomic.LongAdder();
 
     public EwyrysApiRequestResponseOpenApiValidationTransformer(String classpathSpecPath) {
-        this.validator = OpenApiInteractionValidator
-            .createFor(classpathSpecPath)
-            .withLevelResolver(
-                LevelResolver.create()
-                    .withLevel("validation.request.security.*", ValidationReport.Level.ERROR)
-                    .withLevel("validation.response.security.*", ValidationReport.Level.ERROR)
-                    // ignore responses with a status code not declared in the spec (e.g. 401/403 in negative flows)
-                    .withLevel("validation.response.status.unknown", ValidationReport.Level.IGNORE)
-                .build()
-            )
-            .build();
+        this(classpathSpecPath, new OpenApiValidationReportCache(0, null), Mode.STRICT, 1.0, new OpenApiViolationStore(1));
+    }
+
+    public EwyrysApiRequestResponseOpenApiValidationTransformer(String classpathSpecPath, OpenApiValidationReportCache reportCache,
+                                                                Mode mode, double sampleRate, OpenApiViolationStore violationStore) {
+        this.reportCache = reportCache;
+        this.mode = mode;
+        this.sampleRate = sampleRate;
+        this.violationStore = violationStore;
+        this.backgroundValidation = mode == Mode.ASYNC ? newBackgroundExecutor() : null;
+        long start = System.nanoTime();
+        boolean cached = ROUTE_INDEXES.containsKey(classpathSpecPath);
+        this.routeIndex = ROUTE_INDEXES.computeIfAbsent(classpathSpecPath, location -> OpenApiRouteIndex.load(location, LEVEL_RESOLVER));
+        logger.info("Ewyrys API OpenAPI validation {} {} operations from {} in {} ms", cached ? "reused" : "compiled",
+            routeIndex.getRoutes().size(), classpathSpecPath, (System.nanoTime() - start) / 1_000_000);
     }   
 
+    OpenApiRouteIndex getRouteIndex() {
+        return routeIndex;
+    }
+
+    public OpenApiValidationReportCache getReportCache() {
+        return reportCache;
+    }
+
+    public OpenApiViolationStore getViolationStore() {
+        return violationStore;
+    }
+
+    public OpenApiValidationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Clears outcome counters, recent violations and the unmatched and dropped counts.
+     */
+    public void resetStatistics() {
+        statistics.reset();
+        violationStore.clear();
+        unmatchedRequests.reset();
+        droppedValidations.reset();
+    }
+
+    /**
+     * Interactions sampled for background validation but dropped because the queue was full.
+     */
+    public long getDroppedValidations() {
+        return droppedValidations.sum();
+    }
+
+    /**
+     * Requests passed through unvalidated because no operation of the spec matches them.
+     */
+    public long getUnmatchedRequests() {
+        return unmatchedRequests.sum();
+    }
+
+    public void shutdown() {
+        if (backgroundValidation != null) {
+            backgroundValidation.shutdownNow();
+        }
+    }
+
     @Override
     public String getName() {
         return "ewyrys-openapi-response-validator";
@@ -47,18 +124,6 @@ public class EwyrysApiRequestResponseOpenApiValidationTransformer extends Respon
         com.atlassian.oai.validator.model.Request.Method method =
             com.atlassian.oai.validator.model.Request.Method.valueOf(request.getMethod().getName());
 
-        com.atlassian.oai.validator.model.SimpleRequest.Builder reqBuilder =
-            new com.atlassian.oai.validator.model.SimpleRequest.Builder(method, request.getUrl());
-
-        for (String name : request.getAllHeaderKeys()) {
-            com.github.tomakehurst.wiremock.http.HttpHeader header = request.header(name);
-            if (header != null && !header.values().isEmpty()) {
-                for (String value : header.values()) {
-                    reqBuilder.withHeader(name, value);
-                }
-            }
-        }
-
         // Enforce Authorization: Bearer <token>
         String auth = request.getHeader("Authorization");
         boolean hasBearer = auth != null && auth.toLowerCase().startsWith("bearer ");
@@ -75,26 +140,28 @@ public class EwyrysApiRequestResponseOpenApiValidationTransformer extends Respon
                 .build();
         }          
 
-        byte[] requestBodyBytes = request.getBody();
-        if (requestBodyBytes != null && requestBodyBytes.length > 0) {
-            // ensure validator treats body as JSON when header is missing
-            String contentType = request.getHeader("Content-Type");
-            if (contentType == null || contentType.isBlank()) {
-                reqBuilder.withContentType("application/json");
-            } else {
-                reqBuilder.withContentType(contentType);
+        // the spec says nothing about URLs it does not declare, there is nothing to validate
+        OpenApiRouteIndex.Route route = routeIndex.match(method.name(), request.getUrl());
+        if (route == null) {
+            unmatchedRequests.increment();
+            return response;
+        }
+
+        if (mode == Mode.ASYNC) {
+            if (sampleRate >= 1.0 || java.util.concurrent.ThreadLocalRandom.current().nextDouble() < sampleRate) {
+                submitBackgroundValidation(route, request, response, method);
             }
-            reqBuilder.withBody(new String(requestBodyBytes, java.nio.charset.StandardCharsets.UTF_8));
+            return response;
         }
 
-        try {
+        byte[] requestBodyBytes = request.getBody();
 
-            var reportRequest = validator.validateRequest(reqBuilder.build());
+        try {
 
-            boolean hasRequestErrors = reportRequest.getMessages().stream()
-                .anyMatch(m -> m.getLevel() == com.atlassian.oai.validator.report.ValidationReport.Level.ERROR);
+            var reportRequest = validateRequest(route, request, method, requestBodyBytes);
+            boolean newRequestViolation = recordOutcome(route, false, request, 0, reportRequest);
 
-            if (hasRequestErrors) {
+            if (reportRequest.hasErrors()) {
                 StringBuilder sb = new StringBuilder("Ewyrys API OpenAPI request validation failed:");
                 for (var m : reportRequest.getMessages()) {
                     sb.append("\n- [").append(m.getLevel()).append("] ").append(m.getMessage());
@@ -102,7 +169,12 @@ public class EwyrysApiRequestResponseOpenApiValidationTransformer extends Respon
                         sb.append(" (").append(m.getContext()).append(")");
                     }
                 }
-                logger.error("!!! Ewyrys API OpenAPI request validation failed for request: " + sb.toString());
+                // every occurrence is counted in the statistics, only new kinds of violation are worth an error line
+                if (newRequestViolation) {
+                    logger.error("!!! Ewyrys API OpenAPI request validation failed for request: " + sb.toString());
+                } else {
+                    logger.debug("Ewyrys API OpenAPI request validation failed for request: {}", sb);
+                }
                 return com.github.tomakehurst.wiremock.http.Response.Builder
                         .like(response)
                         .but()
@@ -126,29 +198,10 @@ public class EwyrysApiRequestResponseOpenApiValidationTransformer extends Respon
 
         try {
             // Validate response
-            SimpleResponse.Builder resp = new SimpleResponse.Builder(response.getStatus());
-
-            for (com.github.tomakehurst.wiremock.http.HttpHeader h : response.getHeaders().all()) {
-                if (h != null && !h.values().isEmpty()) {
-                    for (String v : h.values()) {
-                        resp.withHeader(h.key(), v);
-                    }
-                }
-            }
-
-            String responseBody = response.getBodyAsString();
-            if (responseBody != null) {
-                resp.withBody(responseBody);
-            }
-
-            ValidationReport reportResponse = validator.validateResponse(
-                request.getUrl(), method, resp.build()
-            );
+            ValidationReport reportResponse = validateResponse(route, request, response, method);
+            boolean newResponseViolation = recordOutcome(route, true, request, response.getStatus(), reportResponse);
 
-            boolean hasResponseErrors = reportResponse.getMessages().stream()
-                .anyMatch(m -> m.getLevel() == com.atlassian.oai.validator.report.ValidationReport.Level.ERROR);
-
-            if (hasResponseErrors) {
+            if (reportResponse.hasErrors()) {
                 StringBuilder sb = new StringBuilder("Ewyrys API OpenAPI response validation failed:");
                 for (ValidationReport.Message m : reportResponse.getMessages()) {
                     sb.append("\n- [").append(m.getLevel()).append("] ").append(m.getMessage());
@@ -156,7 +209,11 @@ public class EwyrysApiRequestResponseOpenApiValidationTransformer extends Respon
                         sb.append(" (").append(m.getContext()).append(")");
                     }
                 }
-                logger.error("!!! Ewyrys API OpenAPI response validation failed for request: " + sb.toString());
+                if (newResponseViolation) {
+                    logger.error("!!! Ewyrys API OpenAPI response validation failed for request: " + sb.toString());
+                } else {
+                    logger.debug("Ewyrys API OpenAPI response validation failed for request: {}", sb);
+                }
                 return com.github.tomakehurst.wiremock.http.Response.Builder
                         .like(response)
                         .but()
@@ -181,4 +238,157 @@ public class EwyrysApiRequestResponseOpenApiValidationTransformer extends Respon
         return response;
 
     }
-}
\ No newline at end of file
+
+    private ValidationReport validateRequest(OpenApiRouteIndex.Route route, Request request,
+                                             com.atlassian.oai.validator.model.Request.Method method, byte[] requestBodyBytes) {
+        OpenApiValidationReportCache.Key requestKey = new OpenApiValidationReportCache.Key(
+            false, method.name(), request.getUrl(), 0,
+            headerKey(route.summary().getRequestHeaders(), request::header),
+            requestBodyBytes == null ? 0 : requestBodyBytes.length,
+            OpenApiValidationReportCache.bodyHash(requestBodyBytes));
+        return reportCache.get(requestKey,
+            () -> route.validator().validateRequest(buildValidationRequest(route, request, method, requestBodyBytes)));
+    }
+
+    private ValidationReport validateResponse(OpenApiRouteIndex.Route route, Request request, Response response,
+                                              com.atlassian.oai.validator.model.Request.Method method) {
+        com.github.tomakehurst.wiremock.http.ContentTypeHeader contentTypeHeader = response.getHeaders().getContentTypeHeader();
+        String responseContentType = contentTypeHeader.isPresent() ? contentTypeHeader.firstValue() : null;
+        // bodies the spec has no schema for are neither read nor decoded
+        byte[] responseBodyBytes = route.summary().isResponseBodyValidated(response.getStatus(), responseContentType)
+            ? response.getBody()
+            : null;
+        OpenApiValidationReportCache.Key responseKey = new OpenApiValidationReportCache.Key(
+            true, method.name(), request.getUrl(), response.getStatus(),
+            headerKey(route.summary().getResponseHeaders(), response.getHeaders()::getHeader),
+            responseBodyBytes == null ? 0 : responseBodyBytes.length,
+            OpenApiValidationReportCache.bodyHash(responseBodyBytes));
+        return reportCache.get(responseKey,
+            () -> route.validator().validateResponse(request.getUrl(), method, buildValidationResponse(route, response, responseBodyBytes)));
+    }
+
+    /**
+     * The values of the headers that reach the validator, the same ones {@link #buildValidationRequest}
+     * and {@link #buildValidationResponse} copy, so two messages share a report only if the validator
+     * would see the same headers.
+     */
+    static String headerKey(java.util.Set<String> names,
+                            java.util.function.Function<String, com.github.tomakehurst.wiremock.http.HttpHeader> headers) {
+        StringBuilder key = new StringBuilder();
+        for (String name : names) {
+            com.github.tomakehurst.wiremock.http.HttpHeader header = headers.apply(name);
+            if (header != null && header.isPresent()) {
+                for (String value : header.values()) {
+                    key.append(name).append(": ").append(value).append('\n');
+                }
+            }
+        }
+        return key.toString();
+    }
+
+    private void submitBackgroundValidation(OpenApiRouteIndex.Route route, Request request, Response response,
+                                            com.atlassian.oai.validator.model.Request.Method method) {
+        // the live request is recycled by Jetty once the response is written, validate a copy
+        Request snapshot = com.github.tomakehurst.wiremock.verification.LoggedRequest.createFrom(request);
+        try {
+            backgroundValidation.execute(() -> {
+                try {
+                    recordOutcome(route, false, snapshot, 0, validateRequest(route, snapshot, method, snapshot.getBody()));
+                    recordOutcome(route, true, snapshot, response.getStatus(), validateResponse(route, snapshot, response, method));
+                } catch (Exception e) {
+                    violationStore.add(new OpenApiViolationStore.Violation(java.time.Instant.now(), route.name(), "error",
+                        method.name(), snapshot.getUrl(), response.getStatus(), java.util.List.of(String.valueOf(e.getMessage()))));
+                }
+            });
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            droppedValidations.increment();
+        }
+    }
+
+    /**
+     * @return whether the report carries a violation not seen before for this operation
+     */
+    private boolean recordOutcome(OpenApiRouteIndex.Route route, boolean responseSide, Request request, int status,
+                                  ValidationReport report) {
+        boolean newViolation = statistics.record(route.name(), responseSide, report);
+        if (!report.hasErrors()) {
+            return false;
+        }
+        String side = responseSide ? "response" : "request";
+        java.util.List<String> messages = new java.util.ArrayList<>();
+        for (ValidationReport.Message m : report.getMessages()) {
+            if (m.getLevel() == ValidationReport.Level.ERROR) {
+                messages.add(m.getKey() + ": " + m.getMessage());
+            }
+        }
+        violationStore.add(new OpenApiViolationStore.Violation(java.time.Instant.now(), route.name(), side,
+            request.getMethod().getName(), request.getUrl(), status, messages));
+        if (mode == Mode.ASYNC) {
+            logger.debug("Ewyrys API OpenAPI {} validation failed for {} {}: {}", side, request.getMethod(), request.getUrl(), messages);
+        }
+        return newViolation;
+    }
+
+    private static java.util.concurrent.ThreadPoolExecutor newBackgroundExecutor() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        java.util.concurrent.ThreadPoolExecutor executor = new java.util.concurrent.ThreadPoolExecutor(
+            threads, threads, 0, java.util.concurrent.TimeUnit.MILLISECONDS,
+            new java.util.concurrent.ArrayBlockingQueue<>(10_000),
+            runnable -> {
+                Thread thread = new Thread(runnable, "ewyrys-openapi-validation");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    com.atlassian.oai.validator.model.Request buildValidationRequest(
+            OpenApiRouteIndex.Route route, Request request, com.atlassian.oai.validator.model.Request.Method method,
+            byte[] requestBodyBytes) {
+
+        com.atlassian.oai.validator.model.SimpleRequest.Builder reqBuilder =
+            new com.atlassian.oai.validator.model.SimpleRequest.Builder(method, request.getUrl());
+
+        // only the handful of headers the operation declares can affect validation
+        for (String name : route.summary().getRequestHeaders()) {
+            com.github.tomakehurst.wiremock.http.HttpHeader header = request.header(name);
+            if (header != null && header.isPresent()) {
+                for (String value : header.values()) {
+                    reqBuilder.withHeader(name, value);
+                }
+            }
+        }
+
+        if (requestBodyBytes != null && requestBodyBytes.length > 0) {
+            // ensure validator treats body as JSON when header is missing
+            String contentType = request.getHeader("Content-Type");
+            if (contentType == null || contentType.isBlank()) {
+                reqBuilder.withContentType("application/json");
+            } else {
+                reqBuilder.withContentType(contentType);
+            }
+            reqBuilder.withBody(requestBodyBytes);
+        }
+        return reqBuilder.build();
+    }
+
+    com.atlassian.oai.validator.model.Response buildValidationResponse(OpenApiRouteIndex.Route route, Response response,
+                                                                       byte[] responseBodyBytes) {
+        SimpleResponse.Builder resp = new SimpleResponse.Builder(response.getStatus());
+
+        for (String name : route.summary().getResponseHeaders()) {
+            com.github.tomakehurst.wiremock.http.HttpHeader h = response.getHeaders().getHeader(name);
+            if (h != null && h.isPresent()) {
+                for (String v : h.values()) {
+                    resp.withHeader(h.key(), v);
+                }
+            }
+        }
+
+        if (responseBodyBytes != null) {
+            resp.withBody(responseBodyBytes);
+        }
+        return resp.build();
+    }
+}
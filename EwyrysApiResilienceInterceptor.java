@@ -0,0 +1,82 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Fails fast with {@link EwyrysApiCallRejectedException} when the circuit is open or the adaptive
+ * concurrency limit is reached, and feeds every outcome back into both.
+ */
+public class EwyrysApiResilienceInterceptor implements ClientHttpRequestInterceptor {
+
+    private final EwyrysApiConcurrencyLimiter limiter;
+    private final EwyrysApiCircuitBreaker circuitBreaker;
+
+    private final Counter rejectedByCircuit;
+    private final Counter rejectedByLimit;
+    private final Counter failures;
+
+    public EwyrysApiResilienceInterceptor(EwyrysApiConcurrencyLimiter limiter, EwyrysApiCircuitBreaker circuitBreaker,
+                                          MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.circuitBreaker = circuitBreaker;
+
+        this.rejectedByCircuit = Counter.builder("ewyrys.client.resilience.rejected")
+            .tag("reason", "circuit_open")
+            .description("Ewyrys API calls rejected without being sent")
+            .register(meterRegistry);
+        this.rejectedByLimit = Counter.builder("ewyrys.client.resilience.rejected")
+            .tag("reason", "concurrency_limit")
+            .description("Ewyrys API calls rejected without being sent")
+            .register(meterRegistry);
+        this.failures = Counter.builder("ewyrys.client.resilience.failures")
+            .description("Ewyrys API calls counted as failures (5xx or I/O error)")
+            .register(meterRegistry);
+        Gauge.builder("ewyrys.client.resilience.limit", limiter, EwyrysApiConcurrencyLimiter::getLimit)
+            .description("Current adaptive concurrency limit")
+            .register(meterRegistry);
+        Gauge.builder("ewyrys.client.resilience.in-flight", limiter, EwyrysApiConcurrencyLimiter::getInFlight)
+            .description("Ewyrys API calls currently in flight")
+            .register(meterRegistry);
+        Gauge.builder("ewyrys.client.resilience.circuit-state", circuitBreaker, cb -> cb.getState().ordinal())
+            .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+            .register(meterRegistry);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        EwyrysApiCircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+        if (permission == null) {
+            rejectedByCircuit.increment();
+            throw new EwyrysApiCallRejectedException(EwyrysApiCallRejectedException.Reason.CIRCUIT_OPEN,
+                "Ewyrys API circuit is open, rejecting " + request.getMethod() + " " + request.getURI());
+        }
+        if (!limiter.tryAcquire()) {
+            circuitBreaker.releasePermission(permission);
+            rejectedByLimit.increment();
+            throw new EwyrysApiCallRejectedException(EwyrysApiCallRejectedException.Reason.CONCURRENCY_LIMIT,
+                "Ewyrys API concurrency limit of " + limiter.getLimit() + " reached, rejecting "
+                    + request.getMethod() + " " + request.getURI());
+        }
+
+        long start = System.nanoTime();
+        boolean failure = true;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            failure = response.getStatusCode().is5xxServerError();
+            return response;
+        } finally {
+            if (failure) {
+                failures.increment();
+            }
+            circuitBreaker.onResult(permission, failure);
+            limiter.release(System.nanoTime() - start, failure);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent identical Ewyrys calls into one HTTP exchange.
+ * <p>
+ * With {@code ewyrysapi.dedup.enabled=true} every create-application POST of {@code ewyrysApiClient} goes through it
+ * ({@link EwyrysApiDeduplicatingInterceptor}); callers can also use {@link #execute} directly.
+ * <p>
+ * Calls are identified by operation, business key and a fingerprint of the request supplied by the
+ * caller, so a retry with a different payload is sent rather than answered with the result of another
+ * one. While a call is running, identical calls wait for it and receive its result or exception. A
+ * successful result is then kept for {@code resultTtl} so that immediate retries are answered without
+ * another request. Failures are never cached.
+ * <p>
+ * Results expire in the order they were stored, as the TTL is the same for all, so a FIFO queue finds
+ * the expired ones, and the oldest one when {@code maxCachedResults} are cached, without scanning.
+ */
+public class EwyrysApiSingleFlight {
+
+    private final Duration resultTtl;
+    private final int maxCachedResults;
+
+    private final Map<CallKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final Map<CallKey, CachedResult> recentResults = new ConcurrentHashMap<>();
+    // recentResults in storage order; entries replaced or removed since stay until they reach the head
+    private final Queue<Stored> storageOrder = new ConcurrentLinkedQueue<>();
+
+    private final Counter joinedInFlight;
+    private final Counter servedFromCache;
+
+    public EwyrysApiSingleFlight(Duration resultTtl, int maxCachedResults, MeterRegistry meterRegistry) {
+        this.resultTtl = resultTtl;
+        this.maxCachedResults = maxCachedResults;
+        this.joinedInFlight = Counter.builder("ewyrys.client.dedup.suppressed")
+            .tag("source", "in_flight")
+            .description("Duplicate Ewyrys API calls that did not reach the server")
+            .register(meterRegistry);
+        this.servedFromCache = Counter.builder("ewyrys.client.dedup.suppressed")
+            .tag("source", "result_cache")
+            .description("Duplicate Ewyrys API calls that did not reach the server")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} unless an identical call is running or has just completed, e.g.
+     * {@code execute("createApplication", businessKey, request, () -> extractEpucApi.createApplication(request))}.
+     *
+     * @param fingerprint equal for identical requests and only for them, e.g. the request itself, as the
+     *                    generated models implement {@code equals} and {@code hashCode} over all fields
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String businessKey, Object fingerprint, Supplier<T> call) {
+        CallKey key = new CallKey(operation, businessKey, fingerprint);
+
+        CachedResult cached = fresh(key);
+        if (cached != null) {
+            servedFromCache.increment();
+            return (T) cached.value();
+        }
+
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            joinedInFlight.increment();
+            return (T) await(running);
+        }
+
+        // an identical call may have stored its result and left inFlight since the first look
+        cached = fresh(key);
+        if (cached != null) {
+            servedFromCache.increment();
+            mine.complete(cached.value());
+            inFlight.remove(key, mine);
+            return (T) cached.value();
+        }
+
+        try {
+            T result = call.get();
+            remember(key, result);
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private CachedResult fresh(CallKey key) {
+        CachedResult cached = recentResults.get(key);
+        if (cached != null && cached.expiresAt() - System.nanoTime() <= 0) {
+            recentResults.remove(key, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    private void remember(CallKey key, Object result) {
+        if (resultTtl.isZero() || resultTtl.isNegative() || maxCachedResults <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        Stored oldest;
+        while ((oldest = storageOrder.peek()) != null
+                && (oldest.result().expiresAt() - now <= 0 || recentResults.size() >= maxCachedResults)) {
+            // a concurrent caller may have taken it already, then this evicts the next one, which is harmless
+            Stored evicted = storageOrder.poll();
+            if (evicted != null) {
+                recentResults.remove(evicted.key(), evicted.result());
+            }
+        }
+        CachedResult cached = new CachedResult(result, now + resultTtl.toNanos());
+        recentResults.put(key, cached);
+        storageOrder.add(new Stored(key, cached));
+    }
+
+    int cachedResults() {
+        return recentResults.size();
+    }
+
+    private static Object await(CompletableFuture<Object> running) {
+        try {
+            return running.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private record CallKey(String operation, String businessKey, Object fingerprint) {
+    }
+
+    private record Stored(CallKey key, CachedResult result) {
+    }
+
+    private record CachedResult(Object value, long expiresAt) {
+    }
+}
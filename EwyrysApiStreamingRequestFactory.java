@@ -0,0 +1,115 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Runs the Ewyrys interceptor chain without buffering the request body.
+ * <p>
+ * {@code RestClient} copies every body into a {@code byte[]} as soon as interceptors are registered.
+ * This factory applies the interceptors around the underlying request instead, so the message
+ * converter writes straight to the connection. Interceptors receive an empty body array and must
+ * only rely on the request line, headers and attributes. When the underlying request cannot stream,
+ * the body is written to it only after the interceptors have run.
+ */
+public class EwyrysApiStreamingRequestFactory implements ClientHttpRequestFactory {
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final ClientHttpRequestFactory delegate;
+    private final List<ClientHttpRequestInterceptor> interceptors;
+
+    public EwyrysApiStreamingRequestFactory(ClientHttpRequestFactory delegate, List<ClientHttpRequestInterceptor> interceptors) {
+        this.delegate = delegate;
+        this.interceptors = List.copyOf(interceptors);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        return new StreamingRequest(delegate.createRequest(uri, httpMethod), interceptors);
+    }
+
+    private static final class StreamingRequest implements ClientHttpRequest, StreamingHttpOutputMessage {
+        private final ClientHttpRequest target;
+        private final List<ClientHttpRequestInterceptor> interceptors;
+        private Body pendingBody;
+
+        private StreamingRequest(ClientHttpRequest target, List<ClientHttpRequestInterceptor> interceptors) {
+            this.target = target;
+            this.interceptors = interceptors;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            return new Chain(interceptors.iterator()).execute(this, NO_BODY);
+        }
+
+        @Override
+        public void setBody(Body body) {
+            if (target instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(body);
+            } else {
+                // written in execute(), once the interceptors have had their say about the headers
+                this.pendingBody = body;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return target.getBody();
+        }
+
+        @Override
+        public HttpMethod getMethod() {
+            return target.getMethod();
+        }
+
+        @Override
+        public URI getURI() {
+            return target.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return target.getHeaders();
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return target.getAttributes();
+        }
+
+        private final class Chain implements ClientHttpRequestExecution {
+            private final Iterator<ClientHttpRequestInterceptor> remaining;
+
+            private Chain(Iterator<ClientHttpRequestInterceptor> remaining) {
+                this.remaining = remaining;
+            }
+
+            @Override
+            public ClientHttpResponse execute(HttpRequest request, byte[] body) throws IOException {
+                if (remaining.hasNext()) {
+                    return remaining.next().intercept(request, body, this);
+                }
+                // headers were mutated in place, the body is streamed by the converter
+                if (pendingBody != null) {
+                    pendingBody.writeTo(target.getBody());
+                }
+                return target.execute();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Appends every Ewyrys API exchange to a {@link TrafficLogWriter}: the request as sent, with credentials
+ * redacted, plus the response status and the time until the response arrived. Exchanges that fail
+ * without a response are recorded with status {@code 0}.
+ */
+public class EwyrysApiTrafficRecordingInterceptor implements ClientHttpRequestInterceptor {
+
+    static final String SOURCE = "ewyrys-client";
+
+    private final TrafficLogWriter trafficLog;
+
+    public EwyrysApiTrafficRecordingInterceptor(TrafficLogWriter trafficLog) {
+        this.trafficLog = trafficLog;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Instant timestamp = Instant.now();
+        long start = System.nanoTime();
+        int status = 0;
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            status = response.getStatusCode().value();
+            return response;
+        } finally {
+            trafficLog.append(new TrafficLog.Record(
+                SOURCE,
+                TimeUnit.SECONDS.toMicros(timestamp.getEpochSecond()) + timestamp.getNano() / 1000,
+                (int) Math.min(Integer.MAX_VALUE, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)),
+                status,
+                request.getMethod().name(),
+                pathAndQuery(request.getURI()),
+                headers(request),
+                ByteBuffer.wrap(body == null ? new byte[0] : body)));
+        }
+    }
+
+    private static List<TrafficLog.Header> headers(HttpRequest request) {
+        List<TrafficLog.Header> headers = new ArrayList<>();
+        for (Map.Entry<String, List<String>> header : request.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                headers.add(TrafficLog.Header.recorded(header.getKey(), value));
+            }
+        }
+        return headers;
+    }
+
+    private static String pathAndQuery(URI uri) {
+        String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+        return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+    }
+}
@@ -4,48 +4,180 @@ import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Extension;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.StreamUtils;
+import pl.gov.coi.eunflowruadapterbe.config.integration.TrafficLogWriter;
 
 @Configuration
 public class EwyrysApiWireMockConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(EwyrysApiWireMockConfig.class);
 
+    private static final String CREATE_APPLICATION_CATALOGUE = "ewyrys-create-application";
+    private static final String UPDATE_APPLICATION_STATUS_CATALOGUE = "ewyrys-update-application-status";
+    // marks the server's own warm-up requests, which the journal and the traffic log leave out
+    private static final String WARM_UP_HEADER = "X-Ewyrys-Mock-Warm-Up";
+
     @Value("${wiremock.ewyrys.port:8000}")
     private int wireMockPort;
 
     @Value("${wiremock.ewyrys.openapi-location:contract/ewyrys/rest/mrit-ru-eservices-be-api-extract-epuc-v1.0.yaml}")
     private String openApiLocation;    
 
+    // validation reports of identical interactions are reused, 0 disables the cache
+    @Value("${wiremock.ewyrys.validation-cache.max-size:10000}")
+    private int validationCacheMaxSize;
+
+    // 0 keeps cached reports until they are evicted
+    @Value("${wiremock.ewyrys.validation-cache.ttl-in-seconds:0}")
+    private int validationCacheTtl;
+
+    // strict: validate inline and answer 400 on violations; async: validate a sample in the background
+    @Value("${wiremock.ewyrys.validation-mode:strict}")
+    private String validationMode;
+
+    @Value("${wiremock.ewyrys.validation-sample-rate:1.0}")
+    private double validationSampleRate;
+
+    @Value("${wiremock.ewyrys.validation-report-store-size:1000}")
+    private int validationReportStoreSize;
+
+    // interactions replayed against the started server to JIT-prime matching and validation, 0 skips it
+    @Value("${wiremock.ewyrys.warm-up-iterations:0}")
+    private int warmUpIterations;
+
+    // extra business-key scenario catalogues (classpath JSON), see BusinessKeyScenarioCatalogue
+    @Value("${wiremock.ewyrys.scenario-catalogues:}")
+    private String[] scenarioCatalogues;
+
+    // stateful create/update-status for business keys without a scenario, see EwyrysApplicationRegistry
+    @Value("${wiremock.ewyrys.registry.enabled:false}")
+    private boolean registryEnabled;
+
+    // the registry table is allocated up front for this many applications
+    @Value("${wiremock.ewyrys.registry.max-applications:1000000}")
+    private int registryMaxApplications;
+
+    // allowed status changes, e.g. CREATED>SUBMITTED,SUBMITTED>ACCEPTED|REJECTED; empty allows any
+    @Value("${wiremock.ewyrys.registry.transitions:}")
+    private String registryTransitions;
+
+    // recent requests, queryable at /__admin/journal, in place of the disabled WireMock journal; 0 turns it off
+    @Value("${wiremock.ewyrys.journal.capacity:1000}")
+    private int journalCapacity;
+
+    @Value("${wiremock.ewyrys.journal.max-body-bytes:4096}")
+    private int journalMaxBodyBytes;
+
+    @Value("${wiremock.ewyrys.journal.max-header-chars:2048}")
+    private int journalMaxHeaderChars;
+
+    // keep journal bodies in one direct buffer allocated up front instead of on the heap
+    @Value("${wiremock.ewyrys.journal.off-heap:false}")
+    private boolean journalOffHeap;
+
+    // record every served request into a binary traffic log for later replay (empty = off)
+    @Value("${wiremock.ewyrys.traffic-log.file:}")
+    private String trafficLogFile;
+
+    @Value("${wiremock.ewyrys.traffic-log.max-body-bytes:1048576}")
+    private int trafficLogMaxBodyBytes;
+
+    private TrafficLogWriter trafficLog;
+
     private WireMockServer wireMockServer;
 
-    @Bean(destroyMethod = "stop")
+    private EwyrysApplicationRegistry applicationRegistry;
+
+    private EwyrysApiRequestResponseOpenApiValidationTransformer validationTransformer;
+
+    private final BusinessKeyScenarioTransformer scenarioTransformer = new BusinessKeyScenarioTransformer();
+
+    // the X-Delay-* headers used to select duplicate 10 s stubs; they are now default latency rules,
+    // editable at /__admin/latency-profiles
+    private final LatencyProfiles latencyProfiles = new LatencyProfiles(List.of(
+        new LatencyProfiles.Rule("create-application-delay-header", "POST", "/ewyrys-epuc/v1.0/application",
+            new LatencyProfiles.HeaderCondition("X-Delay-create-application", "true"), LatencyProfiles.Latency.fixed(10000), null),
+        new LatencyProfiles.Rule("update-application-status-delay-header", "PUT", "/ewyrys-epuc/v1.0/application/[^/]+",
+            new LatencyProfiles.HeaderCondition("X-Delay-update-application-status", "true"), LatencyProfiles.Latency.fixed(10000), null)));
+
+    // started on the bootstrap executor, in parallel with the other mock servers
+    @Bean(destroyMethod = "stop", bootstrap = Bean.Bootstrap.BACKGROUND)
     public WireMockServer completeSeApiWireMockServer() {
         try {
+            long start = System.nanoTime();
+
+            validationTransformer = new EwyrysApiRequestResponseOpenApiValidationTransformer(
+                openApiLocation,
+                new OpenApiValidationReportCache(validationCacheMaxSize, Duration.ofSeconds(validationCacheTtl)),
+                EwyrysApiRequestResponseOpenApiValidationTransformer.Mode.valueOf(validationMode.trim().toUpperCase(Locale.ROOT)),
+                validationSampleRate,
+                new OpenApiViolationStore(validationReportStoreSize));
+
+            List<Extension> extensions = new ArrayList<>(List.of(
+                validationTransformer, new OpenApiValidationAdminExtension(validationTransformer),
+                scenarioTransformer, new MockFixtureTransformer(MockFixtureStore.shared()),
+                new LatencyProfileTransformer(latencyProfiles), new LatencyProfileAdminExtension(latencyProfiles)));
+            if (journalCapacity > 0) {
+                RequestJournalRing journal = new RequestJournalRing(journalCapacity, journalMaxBodyBytes, journalOffHeap);
+                extensions.add(new RequestJournalListener(journal, journalMaxHeaderChars, Set.of("Authorization"),
+                    EwyrysApiWireMockConfig::isWarmUp));
+                extensions.add(new RequestJournalAdminExtension(journal));
+            }
+            if (!trafficLogFile.isBlank()) {
+                trafficLog = new TrafficLogWriter(Path.of(trafficLogFile.trim()), trafficLogMaxBodyBytes);
+                extensions.add(new TrafficRecordingListener(trafficLog, "ewyrys-mock", EwyrysApiWireMockConfig::isWarmUp));
+            }
+            if (registryEnabled) {
+                applicationRegistry = new EwyrysApplicationRegistry(registryMaxApplications, registryTransitions);
+                extensions.add(new EwyrysApplicationRegistryAdminExtension(applicationRegistry));
+                logger.info("Ewyrys application registry enabled for {} applications ({} bytes)",
+                    registryMaxApplications, applicationRegistry.memoryBytes());
+            }
 
             WireMockConfiguration config = WireMockConfiguration.options()
+            // the unbounded WireMock journal stays off, RequestJournalListener keeps a bounded one
             .disableRequestJournal()
             .asynchronousResponseEnabled(true)
             .port(wireMockPort)
-            .extensions(new EwyrysApiRequestResponseOpenApiValidationTransformer(openApiLocation));
+            .extensions(extensions.toArray(new Extension[0]));
+
+            long specReady = System.nanoTime();
 
             wireMockServer = new WireMockServer(config);
             wireMockServer.start();
+            long serverStarted = System.nanoTime();
 
             setupCompleteApiMocks();
+            long stubsReady = System.nanoTime();
+
+            warmUp();
 
-            logger.info("Complete Ewyrys Api WireMock started on port: {}", wireMockPort);
+            logger.info("Complete Ewyrys Api WireMock started on port: {} in {} ms (spec {} ms, server {} ms, stubs {} ms, warm-up {} ms)",
+                wireMockServer.port(), (System.nanoTime() - start) / 1_000_000, (specReady - start) / 1_000_000,
+                (serverStarted - specReady) / 1_000_000, (stubsReady - serverStarted) / 1_000_000,
+                (System.nanoTime() - stubsReady) / 1_000_000);
             return wireMockServer;
         } catch (Exception e) {
             logger.error("Failed to start Complete Ewyrys Api WireMock on port: {}", wireMockPort, e);
@@ -59,130 +191,220 @@ public class EwyrysApiWireMockConfig {
             wireMockServer.stop();
             logger.info("SeApi WireMock stopped");
         }
+        if (validationTransformer != null) {
+            validationTransformer.shutdown();
+        }
+        if (trafficLog != null) {
+            try {
+                trafficLog.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close traffic log {}", trafficLogFile, e);
+            }
+        }
     }
 
     private void setupCompleteApiMocks() {
 
-        // Mock for GET /ewyrys-api/entries
+        registerApplicationScenarios(applicationRegistry);
+        wireMockServer.stubFor(scenarioTransformer.catalogue(CREATE_APPLICATION_CATALOGUE).toStub());
+        wireMockServer.stubFor(scenarioTransformer.catalogue(UPDATE_APPLICATION_STATUS_CATALOGUE).toStub());
+
+        if (scenarioCatalogues != null) {
+            for (String location : scenarioCatalogues) {
+                if (!location.isBlank()) {
+                    registerCatalogue(BusinessKeyScenarioCatalogue.load(location.trim()));
+                }
+            }
+        }
+
+        logger.info("Setup complete Ewyrys Api WireMock with all endpoint categories");
+    }
+
+    /**
+     * Registers the create-application and update-status catalogues with the scenario transformer and, with a
+     * registry, the fallbacks that track business keys without a scenario. The catch-all stubs are left to the caller.
+     */
+    BusinessKeyScenarioTransformer registerApplicationScenarios(EwyrysApplicationRegistry registry) {
+        applicationRegistry = registry;
+
         setupCreateApplicationEndpoints();
 
         setupUpdateApplicationStatusEndpoints();
 
-        logger.info("Setup complete Ewyrys Api WireMock with all endpoint categories");
+        if (applicationRegistry != null) {
+            scenarioTransformer.fallback(CREATE_APPLICATION_CATALOGUE, this::createRegisteredApplication);
+            scenarioTransformer.fallback(UPDATE_APPLICATION_STATUS_CATALOGUE, this::updateRegisteredApplication);
+        }
+        return scenarioTransformer;
     }
 
     private void setupCreateApplicationEndpoints() {
-        wireMockServer.stubFor(post(urlPathMatching("/ewyrys-epuc/v1.0/application"))
-            .withRequestBody(matching(".*(businesskey-ok).*"))
-            .willReturn(aResponse()
-                .withStatus(HttpStatus.CREATED.value())
-                .withHeader("Content-Type", "application/json")
-            ));
-
-        wireMockServer.stubFor(post(urlPathMatching("/ewyrys-epuc/v1.0/application"))
-            .withRequestBody(matching(".*(businesskey-ok).*"))
-            .withHeader("X-Delay-create-application", matching("true"))
-            .willReturn(aResponse()
+        // one catch-all stub; the scenario is picked by the business key found in the body. With the registry
+        // only the businessKey field counts and must equal a scenario key, as the update reads its key from
+        // the path exactly: businesskey-ok-42 is a registry key, not businesskey-ok
+        String keyField = applicationRegistry != null ? "businessKey" : null;
+        scenarioTransformer.register(new BusinessKeyScenarioCatalogue(CREATE_APPLICATION_CATALOGUE, "POST",
+                "/ewyrys-epuc/v1.0/application", BusinessKeyScenarioCatalogue.KeySource.BODY, keyField)
+            .scenario("businesskey-ok", aResponse()
                 .withStatus(HttpStatus.CREATED.value())
-                .withHeader("Content-Type", "application/json")
-                .withFixedDelay(10000)
-            ));            
-
-        wireMockServer.stubFor(post(urlPathMatching("/ewyrys-epuc/v1.0/application"))
-            .withRequestBody(matching(".*(businesskey-conflict).*"))
-            .willReturn(aResponse()
+                .withHeader("Content-Type", "application/json"))
+            .scenario("businesskey-conflict", aResponse()
                 .withStatus(HttpStatus.CONFLICT.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/createApplication/post-create-application-conflict.json"))
-            )); 
-            
-        wireMockServer.stubFor(post(urlPathMatching("/ewyrys-epuc/v1.0/application"))
-            .withRequestBody(matching(".*(businesskey-forbidden).*"))
-            .willReturn(aResponse()
+                .withBody(fixtureBody("ewyrys/createApplication/post-create-application-conflict.json")))
+            .scenario("businesskey-forbidden", aResponse()
                 .withStatus(HttpStatus.FORBIDDEN.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/createApplication/post-create-application-forbidden.json"))
-            )); 
-            
-         wireMockServer.stubFor(post(urlPathMatching("/ewyrys-epuc/v1.0/application"))
-            .withRequestBody(matching(".*(businesskey-internal-server-error).*"))
-            .willReturn(aResponse()
+                .withBody(fixtureBody("ewyrys/createApplication/post-create-application-forbidden.json")))
+            .scenario("businesskey-internal-server-error", aResponse()
                 .withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/createApplication/post-create-application-internal-server-error.json"))
-            )); 
-            
-        wireMockServer.stubFor(post(urlPathMatching("/ewyrys-epuc/v1.0/application"))
-            .withRequestBody(matching(".*(businesskey-unauthorized).*"))
-            .willReturn(aResponse()
+                .withBody(fixtureBody("ewyrys/createApplication/post-create-application-internal-server-error.json")))
+            .scenario("businesskey-unauthorized", aResponse()
                 .withStatus(HttpStatus.UNAUTHORIZED.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/createApplication/post-create-application-unauthorized.json"))
-            ));             
+                .withBody(fixtureBody("ewyrys/createApplication/post-create-application-unauthorized.json"))));
 
     }
 
     private void setupUpdateApplicationStatusEndpoints() {
-            wireMockServer.stubFor(put(urlPathMatching("/ewyrys-epuc/v1.0/application/businesskey-ok"))
-                .willReturn(aResponse()
-                    .withStatus(HttpStatus.NO_CONTENT.value())
-                    .withHeader("Content-Type", "application/json")
-                ));
-
-        wireMockServer.stubFor(put(urlPathMatching("/ewyrys-epuc/v1.0/application/businesskey-ok"))
-            .withHeader("X-Delay-update-application-status", matching("true"))
-            .willReturn(aResponse()
+        // the business key is the last path segment
+        scenarioTransformer.register(new BusinessKeyScenarioCatalogue(UPDATE_APPLICATION_STATUS_CATALOGUE, "PUT",
+                "/ewyrys-epuc/v1.0/application/[^/]+", BusinessKeyScenarioCatalogue.KeySource.PATH, null)
+            .scenario("businesskey-ok", aResponse()
                 .withStatus(HttpStatus.NO_CONTENT.value())
-                .withHeader("Content-Type", "application/json")
-                .withFixedDelay(10000)
-            ));
-
-        wireMockServer.stubFor(put(urlPathMatching("/ewyrys-epuc/v1.0/application/businesskey-notfound"))
-            .willReturn(aResponse()
+                .withHeader("Content-Type", "application/json"))
+            .scenario("businesskey-notfound", aResponse()
                 .withStatus(HttpStatus.NOT_FOUND.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/updateApplicationStatus/put-update-application-status-notfound.json"))
-            ));
-
-        wireMockServer.stubFor(put(urlPathMatching("/ewyrys-epuc/v1.0/application/businesskey-internal-server-error"))
-            .willReturn(aResponse()
+                .withBody(fixtureBody("ewyrys/updateApplicationStatus/put-update-application-status-notfound.json")))
+            .scenario("businesskey-internal-server-error", aResponse()
                 .withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/updateApplicationStatus/put-update-application-status-internal-server-error.json"))
-            ));
-            
-        wireMockServer.stubFor(put(urlPathMatching("/ewyrys-epuc/v1.0/application/businesskey-unauthorized"))
-            .willReturn(aResponse()
+                .withBody(fixtureBody("ewyrys/updateApplicationStatus/put-update-application-status-internal-server-error.json")))
+            .scenario("businesskey-unauthorized", aResponse()
                 .withStatus(HttpStatus.UNAUTHORIZED.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/updateApplicationStatus/put-update-application-status-unauthorized.json"))
-            ));
-            
-           wireMockServer.stubFor(put(urlPathMatching("/ewyrys-epuc/v1.0/application/businesskey-forbidden"))
-            .willReturn(aResponse()
+                .withBody(fixtureBody("ewyrys/updateApplicationStatus/put-update-application-status-unauthorized.json")))
+            .scenario("businesskey-forbidden", aResponse()
                 .withStatus(HttpStatus.FORBIDDEN.value())
                 .withHeader("Content-Type", "application/json")
-                .withBody(loadResponseFromFile("wiremock/responses/ewyrys/updateApplicationStatus/put-update-application-status-forbidden.json"))
-            )); 
+                .withBody(fixtureBody("ewyrys/updateApplicationStatus/put-update-application-status-forbidden.json"))));
 
     }
 
     /**
-     * Loads a response from a specified file in the classpath.
-     *
-     * @param filePath the path of the file to load
-     * @return the content of the file as a String
+     * Registers the catalogue with the scenario transformer and adds its catch-all stub, or merges it
+     * into the catalogue already serving the same endpoint.
+     */
+    private void registerCatalogue(BusinessKeyScenarioCatalogue catalogue) {
+        if (scenarioTransformer.register(catalogue)) {
+            wireMockServer.stubFor(catalogue.toStub());
+        }
+    }
+
+    /**
+     * Creates the application in the registry: answered like {@code businesskey-ok}, or like
+     * {@code businesskey-conflict} when the business key was created before.
+     */
+    private ResponseDefinition createRegisteredApplication(Request request) {
+        String businessKey = BusinessKeyScenarioCatalogue.readField(request.getBody(), "businessKey");
+        if (businessKey == null) {
+            return new ResponseDefinition(400, "Request body has no businessKey");
+        }
+        BusinessKeyScenarioCatalogue catalogue = scenarioTransformer.catalogue(CREATE_APPLICATION_CATALOGUE);
+        return switch (applicationRegistry.create(businessKey)) {
+            case CREATED -> catalogue.find("businesskey-ok");
+            case DUPLICATE -> catalogue.find("businesskey-conflict");
+            default -> new ResponseDefinition(503, "Application registry is full ("
+                + applicationRegistry.maxApplications() + " applications), see wiremock.ewyrys.registry.max-applications");
+        };
+    }
+
+    /**
+     * Changes the status of a registered application: answered like {@code businesskey-ok}, like
+     * {@code businesskey-notfound} for a business key that was never created, or with a 409 when the
+     * configured transitions do not allow the change.
      */
-    private String loadResponseFromFile(String filePath) {
+    private ResponseDefinition updateRegisteredApplication(Request request) {
+        BusinessKeyScenarioCatalogue catalogue = scenarioTransformer.catalogue(UPDATE_APPLICATION_STATUS_CATALOGUE);
+        String businessKey = catalogue.extractKey(request);
+        String status = BusinessKeyScenarioCatalogue.readField(request.getBody(), "status");
+        if (businessKey == null || status == null) {
+            return new ResponseDefinition(400, "Request has no business key or no status");
+        }
         try {
-            ClassPathResource resource = new ClassPathResource(filePath);
-            try (InputStream inputStream = resource.getInputStream()) {
-                return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+            return switch (applicationRegistry.updateStatus(businessKey, status)) {
+                case UPDATED -> catalogue.find("businesskey-ok");
+                case UNKNOWN -> catalogue.find("businesskey-notfound");
+                default -> new ResponseDefinition(409, "Status of application '" + businessKey + "' cannot change from "
+                    + applicationRegistry.status(businessKey) + " to " + status);
+            };
+        } catch (IllegalArgumentException e) {
+            return new ResponseDefinition(400, e.getMessage());
+        }
+    }
+
+    /**
+     * Sends {@code warmUpIterations} create-application and update-status interactions to the server.
+     * Each create body differs in trailing whitespace only, so the validation report cache does not
+     * short-circuit the validator. Statistics and cached reports of the warm-up are discarded afterwards;
+     * the journal and the traffic log never record it. Listeners run after the response is written, so
+     * clearing them afterwards could miss the last warm-up requests.
+     */
+    private void warmUp() {
+        if (warmUpIterations <= 0) {
+            return;
+        }
+        HttpClient client = HttpClient.newHttpClient();
+        String baseUrl = "http://localhost:" + wireMockServer.port() + "/ewyrys-epuc/v1.0/application";
+        int failures = 0;
+        for (int i = 0; i < warmUpIterations; i++) {
+            try {
+                client.send(warmUpRequest(baseUrl, "POST", "{\"businessKey\":\"businesskey-ok\"}" + " ".repeat(i % 256)),
+                    HttpResponse.BodyHandlers.discarding());
+                client.send(warmUpRequest(baseUrl + "/businesskey-ok", "PUT", "{\"status\":\"SUBMITTED\"}"),
+                    HttpResponse.BodyHandlers.discarding());
+            } catch (IOException e) {
+                failures++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
             }
-        } catch (IOException e) {
-            logger.error("Failed to load response file: {}", filePath, e);
-            return createFallbackErrorResponse(filePath);
         }
+        if (failures > 0) {
+            logger.warn("Ewyrys Api WireMock warm-up: {} of {} iterations failed", failures, warmUpIterations);
+        }
+        validationTransformer.resetStatistics();
+        validationTransformer.getReportCache().clear();
+    }
+
+    private static boolean isWarmUp(LoggedRequest request) {
+        return request.containsHeader(WARM_UP_HEADER);
+    }
+
+    private static HttpRequest warmUpRequest(String url, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+            .header("Content-Type", "application/json")
+            .header("Authorization", "Bearer warm-up")
+            .header(WARM_UP_HEADER, "true")
+            .method(method, HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    /**
+     * Returns the body of a fixture from the shared {@link MockFixtureStore}, as stored, without decoding it.
+     *
+     * @param fixtureId the path of the fixture below {@code wiremock/responses/}
+     * @return the fixture bytes, or a fallback error body if the fixture does not exist
+     */
+    private byte[] fixtureBody(String fixtureId) {
+        MockFixtureStore.Fixture fixture = MockFixtureStore.shared().get(fixtureId);
+        if (fixture == null) {
+            logger.error("Failed to load response file: {}{}", MockFixtureStore.ROOT, fixtureId);
+            return createFallbackErrorResponse(MockFixtureStore.ROOT + fixtureId).getBytes(StandardCharsets.UTF_8);
+        }
+        return fixture.bytes();
     }
 
     /**
@@ -202,4 +424,4 @@ public class EwyrysApiWireMockConfig {
             """, filePath, java.time.Instant.now().toString());
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
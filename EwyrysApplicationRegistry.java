@@ -0,0 +1,237 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Applications created against the Ewyrys mock, with their current status, in a fixed-size lock-free table.
+ * <p>
+ * Each application takes one {@code long} slot of an open-addressing table (linear probing): the upper
+ * 56 bits are a fingerprint of the business key, the lowest byte the interned status. Business keys
+ * themselves are not kept, so memory is {@code 8 bytes / load factor} per application whatever the key
+ * length, allocated once up front for {@code maxApplications}. Slots are claimed and updated with CAS
+ * only and never removed (except by {@link #clear()}), which keeps concurrent creates of the same key
+ * from both succeeding. Two keys with the same 56-bit fingerprint are treated as the same application;
+ * with ten million keys that happens with a probability below 0.1%, which is acceptable for a mock.
+ * <p>
+ * Statuses are interned to codes on first use, at most 255 distinct ones. The status of a new
+ * application is {@link #INITIAL_STATUS}. Without configured transitions any status change is allowed.
+ */
+public class EwyrysApplicationRegistry {
+
+    public static final String INITIAL_STATUS = "CREATED";
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final long STATUS_MASK = 0xFFL;
+    private static final int MAX_STATUSES = 256;
+
+    public enum Outcome {
+        CREATED, DUPLICATE, UPDATED, UNKNOWN, INVALID_TRANSITION, FULL
+    }
+
+    private final AtomicLongArray slots;
+    private final int mask;
+    private final int maxApplications;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final Map<String, Integer> statusCodes = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> statusNames = new AtomicReferenceArray<>(MAX_STATUSES);
+    private final AtomicInteger nextStatusCode = new AtomicInteger();
+    // bit (from * 256 + to) is set for an allowed transition; null allows all of them
+    private final BitSet transitions;
+
+    /**
+     * @param transitions allowed status changes, e.g. {@code CREATED>SUBMITTED,SUBMITTED>ACCEPTED|REJECTED};
+     *                    blank allows any change
+     */
+    public EwyrysApplicationRegistry(int maxApplications, String transitions) {
+        if (maxApplications <= 0 || maxApplications > (1 << 30) * MAX_LOAD_FACTOR) {
+            throw new IllegalArgumentException("maxApplications must be between 1 and " + (int) ((1 << 30) * MAX_LOAD_FACTOR));
+        }
+        int capacity = Integer.highestOneBit((int) Math.ceil(maxApplications / MAX_LOAD_FACTOR) - 1) << 1;
+        this.slots = new AtomicLongArray(Math.max(2, capacity));
+        this.mask = slots.length() - 1;
+        this.maxApplications = maxApplications;
+        intern(INITIAL_STATUS);
+        this.transitions = parseTransitions(transitions);
+    }
+
+    public Outcome create(String businessKey) {
+        long fingerprint = fingerprint(businessKey);
+        // reserve room first, so the table never fills beyond its load factor
+        if (size.incrementAndGet() > maxApplications) {
+            size.decrementAndGet();
+            return find(fingerprint) >= 0 ? Outcome.DUPLICATE : Outcome.FULL;
+        }
+        long created = fingerprint | statusCode(INITIAL_STATUS);
+        for (int i = index(fingerprint); ; i = (i + 1) & mask) {
+            long slot = slots.get(i);
+            if (slot == 0) {
+                if (slots.compareAndSet(i, 0, created)) {
+                    return Outcome.CREATED;
+                }
+                // lost the slot to another insert, look at what it holds now
+                slot = slots.get(i);
+            }
+            if ((slot & ~STATUS_MASK) == fingerprint) {
+                size.decrementAndGet();
+                return Outcome.DUPLICATE;
+            }
+        }
+    }
+
+    public Outcome updateStatus(String businessKey, String status) {
+        long fingerprint = fingerprint(businessKey);
+        int i = find(fingerprint);
+        if (i < 0) {
+            return Outcome.UNKNOWN;
+        }
+        int to = statusCode(status);
+        while (true) {
+            long slot = slots.get(i);
+            int from = (int) (slot & STATUS_MASK);
+            if (transitions != null && !transitions.get(from * MAX_STATUSES + to)) {
+                return Outcome.INVALID_TRANSITION;
+            }
+            if (slots.compareAndSet(i, slot, fingerprint | to)) {
+                return Outcome.UPDATED;
+            }
+        }
+    }
+
+    /**
+     * @return the current status, or {@code null} if the application was never created
+     */
+    public String status(String businessKey) {
+        int i = find(fingerprint(businessKey));
+        return i < 0 ? null : statusNames.get((int) (slots.get(i) & STATUS_MASK));
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int maxApplications() {
+        return maxApplications;
+    }
+
+    public long memoryBytes() {
+        return (long) slots.length() * Long.BYTES;
+    }
+
+    /**
+     * Forgets every application; statuses stay interned. Creates running concurrently may survive.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.getAndSet(i, 0) != 0) {
+                size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Sizes, memory and the number of applications per status. Counting walks the whole table.
+     */
+    public Map<String, Object> snapshot() {
+        long[] perStatus = new long[MAX_STATUSES];
+        for (int i = 0; i < slots.length(); i++) {
+            long slot = slots.get(i);
+            if (slot != 0) {
+                perStatus[(int) (slot & STATUS_MASK)]++;
+            }
+        }
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        for (int code = 0; code < MAX_STATUSES; code++) {
+            if (perStatus[code] > 0) {
+                statuses.put(statusNames.get(code), perStatus[code]);
+            }
+        }
+        int applications = size.get();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("applications", applications);
+        body.put("maxApplications", maxApplications);
+        body.put("slots", slots.length());
+        body.put("memoryBytes", memoryBytes());
+        body.put("bytesPerApplication", applications == 0 ? null : (double) memoryBytes() / applications);
+        body.put("bytesPerApplicationAtCapacity", (double) memoryBytes() / maxApplications);
+        body.put("statuses", statuses);
+        return body;
+    }
+
+    private int find(long fingerprint) {
+        for (int i = index(fingerprint); ; i = (i + 1) & mask) {
+            long slot = slots.get(i);
+            if (slot == 0) {
+                return -1;
+            }
+            if ((slot & ~STATUS_MASK) == fingerprint) {
+                return i;
+            }
+        }
+    }
+
+    private int index(long fingerprint) {
+        return (int) (fingerprint >>> 32) & mask;
+    }
+
+    private int statusCode(String status) {
+        Integer code = statusCodes.get(status);
+        return code != null ? code : intern(status);
+    }
+
+    private int intern(String status) {
+        return statusCodes.computeIfAbsent(status, s -> {
+            int code = nextStatusCode.getAndIncrement();
+            if (code >= MAX_STATUSES) {
+                nextStatusCode.decrementAndGet();
+                throw new IllegalArgumentException("More than " + MAX_STATUSES + " distinct application statuses");
+            }
+            statusNames.set(code, s);
+            return code;
+        });
+    }
+
+    private BitSet parseTransitions(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return null;
+        }
+        BitSet allowed = new BitSet(MAX_STATUSES * MAX_STATUSES);
+        for (String transition : spec.split(",")) {
+            int arrow = transition.indexOf('>');
+            if (arrow < 0) {
+                throw new IllegalArgumentException("Invalid status transition '" + transition.trim() + "', expected FROM>TO");
+            }
+            int from = intern(transition.substring(0, arrow).trim());
+            for (String to : transition.substring(arrow + 1).split("\\|")) {
+                allowed.set(from * MAX_STATUSES + intern(to.trim()));
+            }
+        }
+        return allowed;
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 key, finalised with the MurmurHash3 mixer; the lowest byte is cleared
+     * for the status and the result is never 0, which marks an empty slot.
+     */
+    private static long fingerprint(String businessKey) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : businessKey.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb3fe1a85ec53L;
+        hash ^= hash >>> 33;
+        hash &= ~STATUS_MASK;
+        return hash == 0 ? STATUS_MASK + 1 : hash;
+    }
+}
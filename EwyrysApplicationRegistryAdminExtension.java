@@ -0,0 +1,48 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.admin.Router;
+import com.github.tomakehurst.wiremock.extension.AdminApiExtension;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.util.Map;
+
+/**
+ * Exposes the {@link EwyrysApplicationRegistry} of the Ewyrys mock on its admin API:
+ * <ul>
+ *     <li>{@code GET /__admin/ewyrys/applications} - tracked applications, memory used and counts per status</li>
+ *     <li>{@code GET /__admin/ewyrys/applications/{businessKey}} - status of one application, 404 if unknown</li>
+ *     <li>{@code DELETE /__admin/ewyrys/applications} - forgets all applications</li>
+ * </ul>
+ */
+public class EwyrysApplicationRegistryAdminExtension implements AdminApiExtension {
+
+    private static final String PATH = "/ewyrys/applications";
+
+    private final EwyrysApplicationRegistry registry;
+
+    public EwyrysApplicationRegistryAdminExtension(EwyrysApplicationRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public String getName() {
+        return "ewyrys-application-registry-admin";
+    }
+
+    @Override
+    public void contributeAdminApiRoutes(Router router) {
+        router.add(RequestMethod.GET, PATH, (admin, serveEvent, pathParams) ->
+            ResponseDefinition.okForJson(registry.snapshot()));
+        router.add(RequestMethod.GET, PATH + "/{businessKey}", (admin, serveEvent, pathParams) -> {
+            String businessKey = pathParams.get("businessKey");
+            String status = registry.status(businessKey);
+            return status == null
+                ? ResponseDefinition.notFound()
+                : ResponseDefinition.okForJson(Map.of("businessKey", businessKey, "status", status));
+        });
+        router.add(RequestMethod.DELETE, PATH, (admin, serveEvent, pathParams) -> {
+            registry.clear();
+            return ResponseDefinition.okEmptyJson();
+        });
+    }
+}
@@ -0,0 +1,349 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind pipeline for application status updates.
+ * <p>
+ * Only the latest pending status per business key is kept; an update that arrives while an older one
+ * is still queued replaces it. Queued keys are flushed every {@code flushInterval}, or earlier once
+ * {@code batchSize} keys are waiting, with at most {@code parallelism} PUTs in flight. Updates for a key
+ * that is currently being sent wait for the next flush, so a key never has two PUTs racing each other.
+ * When {@code maxPending} keys are queued, {@link #enqueue} blocks for up to {@code enqueueTimeout}.
+ * <p>
+ * A failed update is queued again after {@code retryBackoff}, doubled on each further failure, unless a
+ * newer status for the key arrived meanwhile; the key stays in flight until then, so the retry cannot
+ * overwrite a newer update. After {@code maxAttempts} the update is dropped and counted as failed.
+ * {@link #close} stops accepting updates and sends what is still queued, retries without their backoff, for up
+ * to {@code shutdownTimeout}; keys still queued or in flight after that are logged and left behind.
+ *
+ * @param <S> status payload accepted by the sender
+ */
+public class EwyrysApplicationStatusWriteBehind<S> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EwyrysApplicationStatusWriteBehind.class);
+
+    private final BiConsumer<String, S> sender;
+    private final Settings settings;
+
+    private final Map<String, Pending<S>> pending = new ConcurrentHashMap<>();
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+    // size of order, which ConcurrentLinkedQueue can only count by walking it
+    private final AtomicInteger ordered = new AtomicInteger();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // failed updates waiting for their backoff; their keys stay in flight
+    private final Map<String, Pending<S>> retries = new ConcurrentHashMap<>();
+    // signalled whenever a key leaves inFlight, so close() waits without polling
+    private final ReentrantLock settleLock = new ReentrantLock();
+    private final Condition settledCondition = settleLock.newCondition();
+    private long settled;
+    private final Semaphore capacity;
+    private final Semaphore sendPermits;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean closed;
+
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService sendExecutor;
+
+    private final Counter enqueued;
+    private final Counter coalesced;
+    private final Counter rejected;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+
+    /**
+     * @param sender performs the actual update, e.g. {@code extractEpucApi::updateApplicationStatus}
+     */
+    public EwyrysApplicationStatusWriteBehind(BiConsumer<String, S> sender, Settings settings, MeterRegistry meterRegistry) {
+        this.sender = sender;
+        this.settings = settings;
+        this.capacity = new Semaphore(settings.maxPending());
+        this.sendPermits = new Semaphore(settings.parallelism());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "ewyrys-status-flush"));
+        this.sendExecutor = Executors.newFixedThreadPool(settings.parallelism(), r -> daemon(r, "ewyrys-status-send"));
+
+        this.enqueued = counter(meterRegistry, "ewyrys.client.status-updates.enqueued", "Status updates accepted by the write-behind queue");
+        this.coalesced = counter(meterRegistry, "ewyrys.client.status-updates.coalesced", "Status updates replaced by a later one before being sent");
+        this.rejected = counter(meterRegistry, "ewyrys.client.status-updates.rejected", "Status updates rejected because the queue stayed full");
+        this.sent = counter(meterRegistry, "ewyrys.client.status-updates.sent", "Status updates sent to Ewyrys");
+        this.retried = counter(meterRegistry, "ewyrys.client.status-updates.retried", "Failed status updates queued again");
+        this.failed = counter(meterRegistry, "ewyrys.client.status-updates.failed", "Status updates dropped after their last failed attempt");
+        Gauge.builder("ewyrys.client.status-updates.pending", pending, Map::size)
+            .description("Business keys waiting to be flushed")
+            .register(meterRegistry);
+
+        long interval = settings.flushInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::scheduledFlush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the status for the business key, replacing any status still waiting for the same key.
+     *
+     * @return {@code false} if the queue stayed full for the whole enqueue timeout, or it is closed
+     */
+    public boolean enqueue(String businessKey, S status) {
+        if (closed) {
+            rejected.increment();
+            return false;
+        }
+        Pending<S> update = new Pending<>(status, 1);
+        if (pending.computeIfPresent(businessKey, (key, older) -> update) != null) {
+            coalesced.increment();
+            return true;
+        }
+        try {
+            if (!capacity.tryAcquire(settings.enqueueTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.increment();
+            return false;
+        }
+        if (pending.put(businessKey, update) != null) {
+            // a concurrent caller queued the key first and owns its slot
+            capacity.release();
+            coalesced.increment();
+            return true;
+        }
+        addToOrder(businessKey);
+        enqueued.increment();
+        if (pending.size() >= settings.batchSize() && flushRequested.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(this::scheduledFlush);
+            } catch (RejectedExecutionException e) {
+                // closing: close() sends what is still pending
+                flushRequested.set(false);
+            }
+        }
+        return true;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Flushes whatever is still queued and waits, up to the shutdown timeout, for the in-flight updates to finish.
+     * Updates waiting for a retry are sent right away.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        // retries scheduled from now on are queued right away, see scheduleRetry
+        scheduler.shutdownNow();
+        long deadline = System.nanoTime() + settings.shutdownTimeout().toNanos();
+        while (true) {
+            long seen = settled();
+            retries.forEach(this::retryNow);
+            flush();
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                break;
+            }
+            // remaining keys are waiting for their previous update, or its retry, to complete
+            if (!awaitSettled(seen, deadline)) {
+                logger.error("Status write-behind closed after {} with updates left behind: {} queued {}, {} still being sent {}",
+                    settings.shutdownTimeout(), pending.size(), pending.keySet(), inFlight.size(), inFlight);
+                break;
+            }
+        }
+        sendExecutor.shutdown();
+        sendExecutor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private long settled() {
+        settleLock.lock();
+        try {
+            return settled;
+        } finally {
+            settleLock.unlock();
+        }
+    }
+
+    /**
+     * @return {@code false} if no key left inFlight since {@code seen} before the deadline
+     */
+    private boolean awaitSettled(long seen, long deadline) throws InterruptedException {
+        settleLock.lock();
+        try {
+            long remaining = deadline - System.nanoTime();
+            while (settled == seen) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = settledCondition.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            settleLock.unlock();
+        }
+    }
+
+    private void settle(String businessKey) {
+        inFlight.remove(businessKey);
+        settleLock.lock();
+        try {
+            settled++;
+            settledCondition.signalAll();
+        } finally {
+            settleLock.unlock();
+        }
+    }
+
+    // an exception escaping a periodic task would cancel it, and with it every later flush
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Status update flush failed, retrying on the next flush", e);
+        }
+    }
+
+    private void flush() {
+        flushRequested.set(false);
+        // keys re-queued because they are still in flight are retried on the next flush
+        int queued = ordered.get();
+        for (int i = 0; i < queued; i++) {
+            String businessKey = order.poll();
+            if (businessKey == null) {
+                break;
+            }
+            ordered.decrementAndGet();
+            if (!inFlight.add(businessKey)) {
+                addToOrder(businessKey);
+                continue;
+            }
+            Pending<S> update = pending.remove(businessKey);
+            if (update == null) {
+                settle(businessKey);
+                continue;
+            }
+            // the slot taken when the update was queued
+            capacity.release();
+            sendPermits.acquireUninterruptibly();
+            sendExecutor.execute(() -> send(businessKey, update));
+        }
+    }
+
+    private void send(String businessKey, Pending<S> update) {
+        boolean retrying = false;
+        try {
+            sender.accept(businessKey, update.status());
+            sent.increment();
+        } catch (RuntimeException e) {
+            if (update.attempt() < settings.maxAttempts()) {
+                logger.warn("Failed to send status update for business key {} (attempt {} of {}), retrying",
+                    businessKey, update.attempt(), settings.maxAttempts(), e);
+                retrying = true;
+                scheduleRetry(businessKey, new Pending<>(update.status(), update.attempt() + 1));
+            } else {
+                failed.increment();
+                logger.error("Failed to send status update {} for business key {} after {} attempts, dropping it",
+                    update.status(), businessKey, update.attempt(), e);
+            }
+        } finally {
+            sendPermits.release();
+            if (!retrying) {
+                settle(businessKey);
+            }
+        }
+    }
+
+    private void scheduleRetry(String businessKey, Pending<S> retry) {
+        retries.put(businessKey, retry);
+        if (closed) {
+            // close() is waiting for the key, no backoff
+            retryNow(businessKey, retry);
+            return;
+        }
+        long backoff = settings.retryBackoff().toMillis() << Math.min(retry.attempt() - 2, 10);
+        try {
+            scheduler.schedule(() -> retryNow(businessKey, retry), backoff, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closing: queue it right away, close() keeps flushing until nothing is pending or in flight
+            retryNow(businessKey, retry);
+        }
+    }
+
+    /**
+     * Queues the retry unless its scheduled task or {@link #close()} already did.
+     */
+    private void retryNow(String businessKey, Pending<S> retry) {
+        if (retries.remove(businessKey, retry)) {
+            requeue(businessKey, retry);
+        }
+    }
+
+    /**
+     * Queues a failed update again, unless a newer status for the key arrived while it was in flight.
+     * Runs while the key is still marked in flight, so no flush can send the key in between.
+     */
+    private void requeue(String businessKey, Pending<S> retry) {
+        try {
+            if (pending.containsKey(businessKey)) {
+                coalesced.increment();
+            } else if (!capacity.tryAcquire()) {
+                failed.increment();
+                logger.error("Dropping status update {} for business key {}: the queue is full", retry.status(), businessKey);
+            } else if (pending.putIfAbsent(businessKey, retry) != null) {
+                capacity.release();
+                coalesced.increment();
+            } else {
+                addToOrder(businessKey);
+                retried.increment();
+            }
+        } finally {
+            settle(businessKey);
+        }
+    }
+
+    private void addToOrder(String businessKey) {
+        order.add(businessKey);
+        ordered.incrementAndGet();
+    }
+
+    private static Counter counter(MeterRegistry registry, String name, String description) {
+        return Counter.builder(name).description(description).register(registry);
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * @param maxAttempts     sends per status update before it is dropped, 1 for no retries
+     * @param retryBackoff    delay before the first retry, doubled for each further one
+     * @param shutdownTimeout how long {@link #close()} waits for queued and in-flight updates
+     */
+    public record Settings(int maxPending, int batchSize, Duration flushInterval, int parallelism, Duration enqueueTimeout,
+                           int maxAttempts, Duration retryBackoff, Duration shutdownTimeout) {
+    }
+
+    private record Pending<S>(S status, int attempt) {
+    }
+}
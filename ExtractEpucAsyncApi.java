@@ -0,0 +1,208 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.api.ExtractEpucApi;
+
+/**
+ * Non-blocking facade over {@link ExtractEpucApi} with a bounded number of calls in flight.
+ * <p>
+ * Calls run on virtual threads or on a dedicated pool sized to the in-flight limit, and share
+ * the same {@code ewyrysApiClient} as the blocking API. A call takes its in-flight slot before it is
+ * handed to the executor, so submitters wait for a free slot instead of queueing work without bound.
+ * {@link #close()} lets accepted calls finish, so every future already handed out completes.
+ */
+public class ExtractEpucAsyncApi implements AutoCloseable {
+
+    // close() waits this long for accepted calls; calls still running afterwards are not interrupted
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final ExtractEpucApi api;
+    private final AsyncTaskExecutor executor;
+    private final Semaphore permits;
+    private final int maxInFlight;
+
+    public ExtractEpucAsyncApi(ExtractEpucApi api, int maxInFlight, boolean virtualThreads) {
+        this.api = api;
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight);
+        this.executor = virtualThreads ? virtualThreadExecutor() : dedicatedExecutor(maxInFlight);
+    }
+
+    /**
+     * Runs a single call, e.g. {@code submit(api -> api.createApplication(request))}. Blocks the caller while
+     * {@code maxInFlight} calls are outstanding.
+     *
+     * @throws java.util.concurrent.RejectedExecutionException when the executor does not accept the call,
+     *                                                         e.g. after {@link #close()}
+     */
+    public <T> CompletableFuture<T> submit(Function<ExtractEpucApi, T> call) {
+        permits.acquireUninterruptibly();
+        return execute(call);
+    }
+
+    public CompletableFuture<Void> run(Consumer<ExtractEpucApi> call) {
+        return submit(api -> {
+            call.accept(api);
+            return null;
+        });
+    }
+
+    /**
+     * Submits every item and completes once all of them have finished, successfully or not.
+     * Each worker takes the next item as soon as its previous one is done. The first worker waits for a
+     * slot like {@link #submit}; further ones, up to {@code maxInFlight}, only start on slots that are free
+     * right away, so at most {@code maxInFlight} items are outstanding regardless of the collection size.
+     * Results keep the iteration order of {@code items}. Completes exceptionally if no worker could be
+     * started, e.g. after {@link #close()}.
+     */
+    public <I, R> CompletableFuture<List<ItemResult<I, R>>> submitAll(Collection<I> items,
+                                                                       BiFunction<ExtractEpucApi, I, R> call) {
+        List<I> work = new ArrayList<>(items);
+        if (work.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        BulkSubmission<I, R> submission = new BulkSubmission<>(work, call);
+        int workers = Math.min(maxInFlight, work.size());
+        permits.acquireUninterruptibly();
+        for (int i = 0; i < workers; i++) {
+            if (i > 0 && !permits.tryAcquire()) {
+                break;
+            }
+            try {
+                execute(submission::drain).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        submission.done.completeExceptionally(error);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // the workers already running take over the remaining items
+                if (i == 0) {
+                    submission.done.completeExceptionally(e);
+                }
+                break;
+            }
+        }
+        return submission.done;
+    }
+
+    /**
+     * Hands a call to the executor; the caller has already taken its slot.
+     */
+    private <T> CompletableFuture<T> execute(Function<ExtractEpucApi, T> call) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.apply(api);
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int inFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (executor instanceof DisposableBean disposable) {
+            disposable.destroy();
+        } else if (executor instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private static AsyncTaskExecutor virtualThreadExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("ewyrys-async-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(TimeUnit.SECONDS.toMillis(SHUTDOWN_TIMEOUT_SECONDS));
+        return executor;
+    }
+
+    private static AsyncTaskExecutor dedicatedExecutor(int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("ewyrys-async-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        // submit holds a slot per queued call, so the queue never needs more than one entry per thread
+        executor.setQueueCapacity(threads);
+        executor.setDaemon(true);
+        // the default shutdown interrupts running calls and drops queued ones, whose futures would never complete
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(SHUTDOWN_TIMEOUT_SECONDS);
+        executor.initialize();
+        return executor;
+    }
+
+    private final class BulkSubmission<I, R> {
+        private final List<I> items;
+        private final BiFunction<ExtractEpucApi, I, R> call;
+        private final AtomicReferenceArray<ItemResult<I, R>> results;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger remaining;
+        private final CompletableFuture<List<ItemResult<I, R>>> done = new CompletableFuture<>();
+
+        private BulkSubmission(List<I> items, BiFunction<ExtractEpucApi, I, R> call) {
+            this.items = items;
+            this.call = call;
+            this.results = new AtomicReferenceArray<>(items.size());
+            this.remaining = new AtomicInteger(items.size());
+        }
+
+        /**
+         * Runs items one after another on the calling worker until none is left.
+         */
+        private Void drain(ExtractEpucApi api) {
+            int index;
+            while ((index = next.getAndIncrement()) < items.size()) {
+                I item = items.get(index);
+                try {
+                    results.set(index, ItemResult.success(item, call.apply(api, item)));
+                } catch (RuntimeException e) {
+                    results.set(index, ItemResult.failure(item, e));
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    List<ItemResult<I, R>> ordered = new ArrayList<>(items.size());
+                    for (int i = 0; i < items.size(); i++) {
+                        ordered.add(results.get(i));
+                    }
+                    done.complete(ordered);
+                }
+            }
+            return null;
+        }
+    }
+
+    public record ItemResult<I, R>(I item, R result, Throwable error) {
+
+        static <I, R> ItemResult<I, R> success(I item, R result) {
+            return new ItemResult<>(item, result, null);
+        }
+
+        static <I, R> ItemResult<I, R> failure(I item, Throwable error) {
+            return new ItemResult<>(item, null, error);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
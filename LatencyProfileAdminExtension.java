@@ -0,0 +1,85 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.github.tomakehurst.wiremock.admin.AdminTask;
+import com.github.tomakehurst.wiremock.admin.Router;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.AdminApiExtension;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runtime editing of a server's {@link LatencyProfiles}:
+ * <ul>
+ *     <li>{@code GET /__admin/latency-profiles} - rules and per-rule match and fault counts</li>
+ *     <li>{@code PUT /__admin/latency-profiles} - replaces all rules with the JSON array in the body</li>
+ *     <li>{@code POST /__admin/latency-profiles} - appends the JSON rule in the body</li>
+ *     <li>{@code DELETE /__admin/latency-profiles} - removes all rules</li>
+ *     <li>{@code POST /__admin/latency-profiles/defaults} - restores the rules the server started with</li>
+ * </ul>
+ */
+public class LatencyProfileAdminExtension implements AdminApiExtension {
+
+    private static final String PATH = "/latency-profiles";
+
+    private final LatencyProfiles profiles;
+
+    public LatencyProfileAdminExtension(LatencyProfiles profiles) {
+        this.profiles = profiles;
+    }
+
+    @Override
+    public String getName() {
+        return "latency-profile-admin";
+    }
+
+    @Override
+    public void contributeAdminApiRoutes(Router router) {
+        router.add(RequestMethod.GET, PATH, (admin, serveEvent, pathParams) -> current());
+        router.add(RequestMethod.PUT, PATH, guarded((admin, serveEvent, pathParams) -> {
+            profiles.setRules(LatencyProfiles.parseRules(serveEvent.getRequest().getBodyAsString()));
+            return current();
+        }));
+        router.add(RequestMethod.POST, PATH, guarded((admin, serveEvent, pathParams) -> {
+            profiles.addRule(LatencyProfiles.parseRule(serveEvent.getRequest().getBodyAsString()));
+            return current();
+        }));
+        router.add(RequestMethod.DELETE, PATH, (admin, serveEvent, pathParams) -> {
+            profiles.setRules(List.of());
+            return current();
+        });
+        router.add(RequestMethod.POST, PATH + "/defaults", (admin, serveEvent, pathParams) -> {
+            profiles.restoreDefaults();
+            return current();
+        });
+    }
+
+    private ResponseDefinition current() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("rules", profiles.getRules());
+        body.put("statistics", profiles.statistics());
+        try {
+            return ResponseDefinitionBuilder.responseDefinition()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody(LatencyProfiles.JSON.writeValueAsString(body))
+                .build();
+        } catch (JsonProcessingException e) {
+            return new ResponseDefinition(500, e.getMessage());
+        }
+    }
+
+    private static AdminTask guarded(AdminTask task) {
+        return (admin, serveEvent, pathParams) -> {
+            try {
+                return task.execute(admin, serveEvent, pathParams);
+            } catch (RuntimeException e) {
+                // invalid rules leave the current ones in place
+                return new ResponseDefinition(400, "Invalid latency profile: " + e.getMessage());
+            }
+        };
+    }
+}
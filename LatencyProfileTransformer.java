@@ -0,0 +1,36 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+
+/**
+ * Applies the server's {@link LatencyProfiles} to every stub response. Register it after the other
+ * response definition transformers so it sees their final output.
+ */
+public class LatencyProfileTransformer extends ResponseDefinitionTransformer {
+
+    private final LatencyProfiles profiles;
+
+    public LatencyProfileTransformer(LatencyProfiles profiles) {
+        this.profiles = profiles;
+    }
+
+    @Override
+    public String getName() {
+        return "latency-profile";
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return true;
+    }
+
+    @Override
+    public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files,
+                                        Parameters parameters) {
+        return profiles.apply(request, responseDefinition);
+    }
+}
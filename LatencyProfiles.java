@@ -0,0 +1,344 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Latency and fault rules of one mock server, applied by {@link LatencyProfileTransformer} and edited
+ * at runtime through {@link LatencyProfileAdminExtension}.
+ * <p>
+ * The first rule whose method, URL path pattern and optional request header and JSON body field match the
+ * request applies.
+ * Its latency is sampled from a fixed, uniform, lognormal or percentile-specified distribution and added
+ * to any delay the stub already has; at most one fault is injected, with the configured probabilities.
+ * Rules are swapped as a whole, so requests always see either the old or the new set; a rule keeps its
+ * statistics across edits as long as a rule of the same name remains.
+ */
+public class LatencyProfiles {
+
+    static final ObjectMapper JSON = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private final List<Rule> defaults;
+    private volatile List<CompiledRule> rules;
+
+    public LatencyProfiles(List<Rule> defaults) {
+        this.defaults = List.copyOf(defaults);
+        this.rules = compile(this.defaults, List.of());
+    }
+
+    public List<Rule> getRules() {
+        List<Rule> result = new ArrayList<>();
+        for (CompiledRule rule : rules) {
+            result.add(rule.rule);
+        }
+        return result;
+    }
+
+    public synchronized void setRules(List<Rule> newRules) {
+        rules = compile(newRules, rules);
+    }
+
+    public synchronized void addRule(Rule rule) {
+        List<Rule> updated = getRules();
+        updated.add(rule);
+        setRules(updated);
+    }
+
+    public void restoreDefaults() {
+        setRules(defaults);
+    }
+
+    /**
+     * How often each rule matched and which faults it injected, by rule name.
+     */
+    public Map<String, Map<String, Long>> statistics() {
+        Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+        for (CompiledRule rule : rules) {
+            Map<String, Long> counts = new TreeMap<>();
+            counts.put("matched", rule.counters.matched.sum());
+            counts.put("serverErrors", rule.counters.serverErrors.sum());
+            counts.put("connectionResets", rule.counters.connectionResets.sum());
+            counts.put("trickles", rule.counters.trickles.sum());
+            result.put(rule.rule.name(), counts);
+        }
+        return result;
+    }
+
+    public static List<Rule> parseRules(String json) {
+        try {
+            return List.of(JSON.readValue(json, Rule[].class));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid latency profile rules", e);
+        }
+    }
+
+    public static Rule parseRule(String json) {
+        try {
+            return JSON.readValue(json, Rule.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid latency profile rule", e);
+        }
+    }
+
+    ResponseDefinition apply(Request request, ResponseDefinition responseDefinition) {
+        return apply(request, responseDefinition, ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Applies the first matching rule; {@code roll}, between 0 and 1, picks the fault.
+     */
+    ResponseDefinition apply(Request request, ResponseDefinition responseDefinition, double roll) {
+        for (CompiledRule rule : rules) {
+            if (rule.matches(request)) {
+                return rule.apply(responseDefinition, roll);
+            }
+        }
+        return responseDefinition;
+    }
+
+    private static List<CompiledRule> compile(List<Rule> rules, List<CompiledRule> previous) {
+        Map<String, Counters> kept = new HashMap<>();
+        for (CompiledRule rule : previous) {
+            kept.putIfAbsent(rule.rule.name(), rule.counters);
+        }
+        List<CompiledRule> compiled = new ArrayList<>(rules.size());
+        for (Rule rule : rules) {
+            compiled.add(new CompiledRule(rule, kept.getOrDefault(rule.name(), new Counters())));
+        }
+        return List.copyOf(compiled);
+    }
+
+    /**
+     * @param urlPath regular expression matched against the whole URL path
+     * @param header  optional request header that must be present with this exact value
+     * @param body    optional JSON body field whose first string value must be present, with this exact value if given
+     */
+    public record Rule(String name, String method, String urlPath, HeaderCondition header, BodyCondition body,
+                       Latency latency, Faults faults) {
+
+        public Rule(String name, String method, String urlPath, HeaderCondition header, Latency latency, Faults faults) {
+            this(name, method, urlPath, header, null, latency, faults);
+        }
+    }
+
+    public record HeaderCondition(String name, String value) {
+    }
+
+    public record BodyCondition(String field, String value) {
+    }
+
+    /**
+     * {@code type} is one of {@code fixed} ({@code ms}), {@code uniform} ({@code minMs}, {@code maxMs}),
+     * {@code lognormal} ({@code medianMs}, {@code sigma}) or {@code percentiles} (percentile to milliseconds,
+     * e.g. {@code {"50": 80, "99": 900, "100": 3000}}, interpolated linearly in between).
+     */
+    public record Latency(String type, Long ms, Long minMs, Long maxMs, Double medianMs, Double sigma,
+                          Map<String, Long> percentiles) {
+
+        public static Latency fixed(long ms) {
+            return new Latency("fixed", ms, null, null, null, null, null);
+        }
+    }
+
+    /**
+     * Probabilities between 0 and 1 that add up to at most 1. {@code trickleChunks} and {@code trickleDurationMs} shape the
+     * slowly dribbled body; the server error uses {@code serverErrorStatus}, 503 by default.
+     */
+    public record Faults(Double serverErrorRate, Integer serverErrorStatus, Double connectionResetRate,
+                         Double trickleRate, Integer trickleChunks, Integer trickleDurationMs) {
+    }
+
+    private static final class Counters {
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+        private final LongAdder connectionResets = new LongAdder();
+        private final LongAdder trickles = new LongAdder();
+    }
+
+    private static final class CompiledRule {
+        private final Rule rule;
+        private final Pattern urlPath;
+        private final LatencySampler latency;
+        private final double resetRate;
+        private final double serverErrorRate;
+        private final double trickleRate;
+        private final Counters counters;
+
+        private CompiledRule(Rule rule, Counters counters) {
+            if (rule.name() == null) {
+                throw new IllegalArgumentException("Latency profile rule needs a name");
+            }
+            this.rule = rule;
+            this.counters = counters;
+            this.urlPath = rule.urlPath() == null ? null : Pattern.compile(rule.urlPath());
+            this.latency = rule.latency() == null ? null : new LatencySampler(rule.latency());
+            Faults faults = rule.faults();
+            this.resetRate = probability(rule, "connectionResetRate", faults == null ? null : faults.connectionResetRate());
+            this.serverErrorRate = probability(rule, "serverErrorRate", faults == null ? null : faults.serverErrorRate());
+            this.trickleRate = probability(rule, "trickleRate", faults == null ? null : faults.trickleRate());
+            // at most one fault per request, so the bands must fit between 0 and 1
+            if (resetRate + serverErrorRate + trickleRate > 1 + 1e-9) {
+                throw new IllegalArgumentException("Fault probabilities of latency profile rule '" + rule.name()
+                    + "' add up to more than 1: " + faults);
+            }
+        }
+
+        private static double probability(Rule rule, String name, Double value) {
+            if (value == null) {
+                return 0;
+            }
+            if (!(value >= 0 && value <= 1)) {
+                throw new IllegalArgumentException(name + " of latency profile rule '" + rule.name()
+                    + "' must be between 0 and 1, was " + value);
+            }
+            return value;
+        }
+
+        private boolean matches(Request request) {
+            if (rule.method() != null && !rule.method().equalsIgnoreCase(request.getMethod().getName())) {
+                return false;
+            }
+            if (urlPath != null) {
+                String url = request.getUrl();
+                int query = url.indexOf('?');
+                if (!urlPath.matcher(query < 0 ? url : url.substring(0, query)).matches()) {
+                    return false;
+                }
+            }
+            HeaderCondition header = rule.header();
+            if (header != null && !(header.value() == null
+                    ? request.containsHeader(header.name())
+                    : header.value().equals(request.getHeader(header.name())))) {
+                return false;
+            }
+            BodyCondition body = rule.body();
+            if (body == null) {
+                return true;
+            }
+            String value = BusinessKeyScenarioCatalogue.readField(request.getBody(), body.field());
+            return body.value() == null ? value != null : body.value().equals(value);
+        }
+
+        private ResponseDefinition apply(ResponseDefinition responseDefinition, double roll) {
+            counters.matched.increment();
+            int delay = responseDefinition.getFixedDelayMilliseconds() == null ? 0 : responseDefinition.getFixedDelayMilliseconds();
+            if (latency != null) {
+                delay = (int) Math.min(Integer.MAX_VALUE, delay + latency.sample());
+            }
+
+            Faults faults = rule.faults();
+            if (roll < resetRate + serverErrorRate && roll >= resetRate) {
+                counters.serverErrors.increment();
+                // a fresh definition, so stub transformers cannot replace the error body
+                return ResponseDefinitionBuilder.responseDefinition()
+                    .withStatus(faults.serverErrorStatus() == null ? 503 : faults.serverErrorStatus())
+                    .withHeader("Content-Type", "application/json")
+                    .withBody("{\"error\":\"INJECTED_FAULT\",\"message\":\"Fault injected by latency profile '" + rule.name() + "'\"}")
+                    .withFixedDelay(delay)
+                    .build();
+            }
+
+            ResponseDefinitionBuilder builder = ResponseDefinitionBuilder.like(responseDefinition).withFixedDelay(delay);
+            if (roll < resetRate) {
+                counters.connectionResets.increment();
+                builder.withFault(Fault.CONNECTION_RESET_BY_PEER);
+            } else if (roll < resetRate + serverErrorRate + trickleRate) {
+                counters.trickles.increment();
+                builder.withChunkedDribbleDelay(
+                    faults.trickleChunks() == null ? 10 : faults.trickleChunks(),
+                    faults.trickleDurationMs() == null ? 5000 : faults.trickleDurationMs());
+            }
+            return builder.build();
+        }
+    }
+
+    static final class LatencySampler {
+        private final Latency latency;
+        private final String type;
+        private final double[] quantiles;
+        private final double[] values;
+
+        LatencySampler(Latency latency) {
+            this.latency = latency;
+            this.type = latency.type() == null ? "" : latency.type().toLowerCase(Locale.ROOT);
+            boolean valid = switch (type) {
+                case "fixed" -> latency.ms() != null;
+                case "uniform" -> latency.minMs() != null && latency.maxMs() != null && latency.minMs() <= latency.maxMs();
+                case "lognormal" -> latency.medianMs() != null && latency.sigma() != null;
+                case "percentiles" -> latency.percentiles() != null && !latency.percentiles().isEmpty();
+                default -> false;
+            };
+            if (!valid) {
+                throw new IllegalArgumentException("Incomplete or unknown latency distribution: " + latency);
+            }
+            if (type.equals("percentiles")) {
+                TreeMap<Double, Long> points = new TreeMap<>();
+                points.put(0.0, latency.minMs() == null ? 0 : latency.minMs());
+                latency.percentiles().forEach((percentile, ms) -> {
+                    double quantile = Double.parseDouble(percentile) / 100.0;
+                    if (!(quantile > 0 && quantile <= 1) || ms == null || ms < 0) {
+                        throw new IllegalArgumentException("Percentile " + percentile
+                            + " must be above 0 and at most 100, with a latency of at least 0 ms, was " + ms);
+                    }
+                    points.put(quantile, ms);
+                });
+                quantiles = new double[points.size()];
+                values = new double[points.size()];
+                int i = 0;
+                for (Map.Entry<Double, Long> point : points.entrySet()) {
+                    quantiles[i] = point.getKey();
+                    values[i] = point.getValue();
+                    if (i > 0 && values[i] < values[i - 1]) {
+                        throw new IllegalArgumentException("Percentile latencies must not decrease as the percentile grows: "
+                            + latency.percentiles() + (latency.minMs() == null ? "" : ", minMs " + latency.minMs()));
+                    }
+                    i++;
+                }
+            } else {
+                quantiles = null;
+                values = null;
+            }
+        }
+
+        long sample() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return switch (type) {
+                case "fixed" -> latency.ms();
+                case "uniform" -> random.nextLong(latency.minMs(), latency.maxMs() + 1);
+                case "lognormal" -> Math.round(latency.medianMs() * Math.exp(latency.sigma() * random.nextGaussian()));
+                case "percentiles" -> interpolate(random.nextDouble());
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + latency.type());
+            };
+        }
+
+        long interpolate(double quantile) {
+            for (int i = 1; i < quantiles.length; i++) {
+                if (quantile <= quantiles[i]) {
+                    double fraction = (quantile - quantiles[i - 1]) / (quantiles[i] - quantiles[i - 1]);
+                    return Math.round(values[i - 1] + fraction * (values[i] - values[i - 1]));
+                }
+            }
+            // above the highest percentile given
+            return Math.round(values[values.length - 1]);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.common.InputStreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+/**
+ * Index of the mock response fixtures under {@code wiremock/responses/}, built once per JVM.
+ * <p>
+ * Fixtures are addressed by their path below that root, e.g.
+ * {@code ewyrys/createApplication/post-create-application-conflict.json}. Small fixtures are kept as
+ * bytes exactly as stored, never decoded into Strings; larger ones are memory-mapped when they are
+ * plain files, or streamed from the classpath when packaged in a jar or too large for one mapping
+ * (over 2 GiB), so they do not occupy the heap.
+ * Content type and length are worked out while indexing.
+ */
+public final class MockFixtureStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MockFixtureStore.class);
+
+    public static final String ROOT = "wiremock/responses/";
+    private static final long DEFAULT_PRELOAD_LIMIT = 1L << 20;
+
+    private static volatile MockFixtureStore shared;
+
+    private final Map<String, Fixture> fixtures = new HashMap<>();
+
+    MockFixtureStore(String root, long preloadLimit) {
+        long start = System.nanoTime();
+        long preloadedBytes = 0;
+        int mapped = 0;
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources("classpath*:" + root + "**/*")) {
+                if (!resource.isReadable() || resource.getFilename() == null || resource.getFilename().isEmpty()) {
+                    continue;
+                }
+                String url = resource.getURL().toString();
+                String id = url.substring(url.indexOf(root) + root.length());
+                if (fixtures.containsKey(id)) {
+                    // the first classpath entry wins, as with ClassPathResource
+                    continue;
+                }
+                Fixture fixture = index(id, resource, preloadLimit);
+                fixtures.put(id, fixture);
+                if (fixture.bytes != null) {
+                    preloadedBytes += fixture.length;
+                } else if (fixture.mapped != null) {
+                    mapped++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to index mock fixtures under " + root, e);
+        }
+        logger.info("Indexed {} mock fixtures under {} in {} ms ({} bytes preloaded, {} memory-mapped)",
+            fixtures.size(), root, (System.nanoTime() - start) / 1_000_000, preloadedBytes, mapped);
+    }
+
+    public static MockFixtureStore shared() {
+        MockFixtureStore store = shared;
+        if (store == null) {
+            synchronized (MockFixtureStore.class) {
+                store = shared;
+                if (store == null) {
+                    store = new MockFixtureStore(ROOT, DEFAULT_PRELOAD_LIMIT);
+                    shared = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * @param idOrPath fixture id, or its full classpath location starting with {@link #ROOT}
+     * @return the fixture, or {@code null} if there is none
+     */
+    public Fixture get(String idOrPath) {
+        return fixtures.get(idOrPath.startsWith(ROOT) ? idOrPath.substring(ROOT.length()) : idOrPath);
+    }
+
+    public Map<String, Fixture> all() {
+        return Collections.unmodifiableMap(fixtures);
+    }
+
+    private static Fixture index(String id, Resource resource, long preloadLimit) throws IOException {
+        long length = resource.contentLength();
+        String contentType = contentTypeOf(id);
+        if (length <= preloadLimit) {
+            try (InputStream in = resource.getInputStream()) {
+                byte[] bytes = in.readAllBytes();
+                return new Fixture(id, contentType, bytes.length, bytes, null, null);
+            }
+        }
+        // a single mapping holds at most Integer.MAX_VALUE bytes
+        if (resource.isFile() && length <= Integer.MAX_VALUE) {
+            try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                // the mapping stays valid after the channel is closed
+                return new Fixture(id, contentType, length, null, channel.map(FileChannel.MapMode.READ_ONLY, 0, length), null);
+            }
+        }
+        return new Fixture(id, contentType, length, null, null, resource);
+    }
+
+    private static String contentTypeOf(String id) {
+        String name = id.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return "application/json";
+        }
+        if (name.endsWith(".xml")) {
+            return "application/xml";
+        }
+        String guessed = URLConnection.guessContentTypeFromName(name);
+        return guessed != null ? guessed : "application/octet-stream";
+    }
+
+    public static final class Fixture implements InputStreamSource {
+        private final String id;
+        private final String contentType;
+        private final long length;
+        private final byte[] bytes;
+        private final ByteBuffer mapped;
+        private final Resource resource;
+
+        private Fixture(String id, String contentType, long length, byte[] bytes, ByteBuffer mapped, Resource resource) {
+            this.id = id;
+            this.contentType = contentType;
+            this.length = length;
+            this.bytes = bytes;
+            this.mapped = mapped;
+            this.resource = resource;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        /**
+         * Whether the fixture is held on the heap and {@link #bytes()} is free.
+         */
+        public boolean isPreloaded() {
+            return bytes != null;
+        }
+
+        /**
+         * The content as bytes. Preloaded fixtures return the shared array, which must not be modified;
+         * large ones are read in full, prefer {@link #getStream()} for those.
+         */
+        public byte[] bytes() {
+            if (bytes != null) {
+                return bytes;
+            }
+            try (InputStream in = getStream()) {
+                return in.readAllBytes();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read mock fixture " + id, e);
+            }
+        }
+
+        @Override
+        public InputStream getStream() {
+            if (bytes != null) {
+                return new ByteArrayInputStream(bytes);
+            }
+            if (mapped != null) {
+                return new ByteBufferInputStream(mapped.duplicate());
+            }
+            try {
+                return resource.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open mock fixture " + id, e);
+            }
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformer;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves the {@link MockFixtureStore} fixture named by the stub's {@code fixture} parameter as the body,
+ * streamed rather than copied into the stub. Adds the fixture's {@code Content-Type} unless the stub
+ * sets one, and its {@code Content-Length}.
+ */
+public class MockFixtureTransformer extends ResponseTransformer {
+
+    public static final String NAME = "fixture";
+    public static final String FIXTURE_PARAMETER = "fixture";
+
+    private final MockFixtureStore store;
+
+    public MockFixtureTransformer(MockFixtureStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+
+    @Override
+    public Response transform(Request request, Response response, FileSource files, Parameters parameters) {
+        String id = parameters.getString(FIXTURE_PARAMETER);
+        MockFixtureStore.Fixture fixture = store.get(id);
+        if (fixture == null) {
+            return Response.Builder.like(response)
+                .but()
+                .status(500)
+                .headers(new HttpHeaders(new HttpHeader("Content-Type", "text/plain; charset=UTF-8")))
+                .body("Mock fixture not found: " + id)
+                .build();
+        }
+
+        List<HttpHeader> headers = new ArrayList<>();
+        for (HttpHeader header : response.getHeaders().all()) {
+            if (!header.keyEquals("Content-Length")) {
+                headers.add(header);
+            }
+        }
+        if (!response.getHeaders().getContentTypeHeader().isPresent()) {
+            headers.add(new HttpHeader("Content-Type", fixture.contentType()));
+        }
+        headers.add(new HttpHeader("Content-Length", String.valueOf(fixture.length())));
+
+        return Response.Builder.like(response)
+            .but()
+            .headers(new HttpHeaders(headers))
+            .body(fixture)
+            .build();
+    }
+}
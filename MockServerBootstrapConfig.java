@@ -0,0 +1,43 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Executor for beans declared with {@code @Bean(bootstrap = Bean.Bootstrap.BACKGROUND)}, which lets the
+ * WireMock servers start in parallel during context refresh. The refresh still waits for all of them
+ * before the context is handed out.
+ * <p>
+ * The bootstrap executor is context-wide, so an executor the application already defines under that
+ * name is left in place and used instead. The check runs once every configuration class has been
+ * parsed, so it does not depend on the order in which they are registered.
+ */
+@Configuration
+public class MockServerBootstrapConfig {
+
+    @Bean
+    public static BeanDefinitionRegistryPostProcessor mockServerBootstrapExecutorRegistrar() {
+        return registry -> {
+            String name = ConfigurableApplicationContext.BOOTSTRAP_EXECUTOR_BEAN_NAME;
+            boolean defined = registry instanceof BeanFactory beanFactory
+                ? beanFactory.containsBean(name)
+                : registry.containsBeanDefinition(name);
+            if (!defined) {
+                registry.registerBeanDefinition(name, BeanDefinitionBuilder
+                    .genericBeanDefinition(SimpleAsyncTaskExecutor.class, MockServerBootstrapConfig::bootstrapExecutor)
+                    .getBeanDefinition());
+            }
+        };
+    }
+
+    private static SimpleAsyncTaskExecutor bootstrapExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("mock-bootstrap-");
+        executor.setDaemon(true);
+        return executor;
+    }
+}
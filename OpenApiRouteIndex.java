@@ -0,0 +1,263 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.atlassian.oai.validator.OpenApiInteractionValidator;
+import com.atlassian.oai.validator.report.LevelResolver;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.Paths;
+import io.swagger.v3.oas.models.servers.Server;
+import io.swagger.v3.oas.models.servers.ServerVariable;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Method and path lookup for the operations of an OpenAPI spec, compiled once into a segment trie.
+ * <p>
+ * Each operation gets its own validator built from a copy of the spec that holds only that operation,
+ * so the validator no longer scans every path of the spec to find it, and its own {@link OpenApiSpecSummary}
+ * listing the headers and bodies that operation can look at. Literal segments win over templated ones,
+ * as the OpenAPI spec requires.
+ */
+public class OpenApiRouteIndex {
+
+    private static final Pattern PATH_VARIABLE = Pattern.compile("\\{[^}/]+}");
+
+    private final Node root = new Node();
+    private final List<String> basePaths = new ArrayList<>();
+    private final List<Route> routes = new ArrayList<>();
+
+    OpenApiRouteIndex(OpenAPI api, LevelResolver levelResolver) {
+        addBasePaths(api.getServers());
+        if (api.getPaths() == null) {
+            return;
+        }
+        for (Map.Entry<String, PathItem> path : api.getPaths().entrySet()) {
+            PathItem pathItem = path.getValue();
+            for (Map.Entry<PathItem.HttpMethod, Operation> operation : pathItem.readOperationsMap().entrySet()) {
+                OpenAPI single = singleOperation(api, path.getKey(), pathItem, operation.getKey(), operation.getValue());
+                Route route = new Route(operation.getKey().name(), path.getKey(), operation.getValue().getOperationId(),
+                    OpenApiInteractionValidator.createFor(single).withLevelResolver(levelResolver).build(),
+                    new OpenApiSpecSummary(single));
+                root.insert(path.getKey(), route);
+                routes.add(route);
+            }
+        }
+    }
+
+    public static OpenApiRouteIndex load(String specLocation, LevelResolver levelResolver) {
+        return new OpenApiRouteIndex(parse(specLocation), levelResolver);
+    }
+
+    static OpenAPI parse(String specLocation) {
+        ParseOptions options = new ParseOptions();
+        options.setResolve(true);
+        OpenAPI api = new OpenAPIV3Parser().read(specLocation, null, options);
+        if (api == null) {
+            throw new IllegalStateException("Unable to parse OpenAPI spec: " + specLocation);
+        }
+        return api;
+    }
+
+    /**
+     * The operation declared for this method and URL, or {@code null} when the spec has none.
+     *
+     * @param url request URL as seen by WireMock, query string included
+     */
+    public Route match(String method, String url) {
+        int query = url.indexOf('?');
+        String path = query < 0 ? url : url.substring(0, query);
+        String upperMethod = method.toUpperCase(Locale.ROOT);
+        for (String basePath : basePaths) {
+            if (!path.startsWith(basePath)
+                || (path.length() > basePath.length() && path.charAt(basePath.length()) != '/')) {
+                continue;
+            }
+            Route route = root.find(path, basePath.length() + 1, upperMethod);
+            if (route != null) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    public List<Route> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    private void addBasePaths(List<Server> servers) {
+        if (servers != null) {
+            for (Server server : servers) {
+                String basePath = basePath(server);
+                if (!basePaths.contains(basePath)) {
+                    basePaths.add(basePath);
+                }
+            }
+        }
+        if (!basePaths.contains("")) {
+            basePaths.add("");
+        }
+        // the longest base path is tried first so "/api/v1" is not mistaken for a path under "/api"
+        basePaths.sort((a, b) -> b.length() - a.length());
+    }
+
+    private static String basePath(Server server) {
+        String url = server.getUrl() == null ? "" : server.getUrl();
+        if (server.getVariables() != null) {
+            for (Map.Entry<String, ServerVariable> variable : server.getVariables().entrySet()) {
+                String value = variable.getValue().getDefault();
+                url = url.replace("{" + variable.getKey() + "}", value == null ? "" : value);
+            }
+        }
+        String path;
+        try {
+            path = url.contains("://") ? URI.create(url).getRawPath() : url;
+        } catch (IllegalArgumentException e) {
+            path = "";
+        }
+        if (path == null) {
+            return "";
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+
+    private static OpenAPI singleOperation(OpenAPI api, String path, PathItem pathItem,
+                                           PathItem.HttpMethod method, Operation operation) {
+        PathItem onlyOperation = new PathItem()
+            .parameters(pathItem.getParameters())
+            .servers(pathItem.getServers());
+        onlyOperation.operation(method, operation);
+        return new OpenAPI()
+            .openapi(api.getOpenapi())
+            .info(api.getInfo())
+            .servers(api.getServers())
+            .security(api.getSecurity())
+            .components(api.getComponents())
+            .paths(new Paths().addPathItem(path, onlyOperation));
+    }
+
+    public record Route(String method, String pathTemplate, String operationId,
+                        OpenApiInteractionValidator validator, OpenApiSpecSummary summary) {
+
+        /**
+         * Stable name for reporting, the operation id when the spec declares one.
+         */
+        public String name() {
+            return operationId != null ? operationId : method + " " + pathTemplate;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new HashMap<>();
+        private final List<TemplateChild> templates = new ArrayList<>();
+        private final Map<String, Route> routes = new HashMap<>();
+
+        private void insert(String pathTemplate, Route route) {
+            Node node = this;
+            for (String segment : pathTemplate.split("/")) {
+                if (segment.isEmpty()) {
+                    continue;
+                }
+                node = segment.indexOf('{') < 0
+                    ? node.literals.computeIfAbsent(segment, s -> new Node())
+                    : node.template(segment);
+            }
+            node.routes.putIfAbsent(route.method(), route);
+        }
+
+        private Node template(String segment) {
+            for (TemplateChild child : templates) {
+                if (child.segment.equals(segment)) {
+                    return child.node;
+                }
+            }
+            TemplateChild child = new TemplateChild(segment);
+            // a whole-segment variable matches anything, so it is tried after the more specific ones
+            if (child.pattern == null) {
+                templates.add(child);
+            } else {
+                int firstWildcard = 0;
+                while (firstWildcard < templates.size() && templates.get(firstWildcard).pattern != null) {
+                    firstWildcard++;
+                }
+                templates.add(firstWildcard, child);
+            }
+            return child.node;
+        }
+
+        private Route find(String path, int start, String method) {
+            if (start >= path.length()) {
+                return routes.get(method);
+            }
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            String segment = path.substring(start, end);
+            Node literal = literals.get(segment);
+            if (literal != null) {
+                Route route = literal.find(path, end + 1, method);
+                if (route != null) {
+                    return route;
+                }
+            }
+            if (segment.isEmpty()) {
+                return null;
+            }
+            for (TemplateChild child : templates) {
+                if (child.matches(segment)) {
+                    Route route = child.node.find(path, end + 1, method);
+                    if (route != null) {
+                        return route;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class TemplateChild {
+        private final String segment;
+        private final Pattern pattern;
+        private final Node node = new Node();
+
+        private TemplateChild(String segment) {
+            this.segment = segment;
+            this.pattern = PATH_VARIABLE.matcher(segment).matches() ? null : compile(segment);
+        }
+
+        private boolean matches(String value) {
+            return pattern == null || pattern.matcher(value).matches();
+        }
+
+        // e.g. "report.{format}" becomes "\Qreport.\E[^/]+"
+        private static Pattern compile(String segment) {
+            StringBuilder regex = new StringBuilder();
+            Matcher variable = PATH_VARIABLE.matcher(segment);
+            int last = 0;
+            while (variable.find()) {
+                if (variable.start() > last) {
+                    regex.append(Pattern.quote(segment.substring(last, variable.start())));
+                }
+                regex.append("[^/]+");
+                last = variable.end();
+            }
+            if (last < segment.length()) {
+                regex.append(Pattern.quote(segment.substring(last)));
+            }
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * What the validator can possibly look at, derived once from the spec (or from the single operation
+ * a route was compiled from): the request and response headers it declares, and which status codes
+ * and media types carry a body schema. Everything else
+ * can be left out of the validation request and response without changing the outcome.
+ */
+public class OpenApiSpecSummary {
+
+    private final Set<String> requestHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final Set<String> responseHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final Set<Integer> statusesWithBody = new HashSet<>();
+    private final Set<String> bodyMediaTypes = new HashSet<>();
+    private boolean defaultResponseHasBody;
+
+    OpenApiSpecSummary(OpenAPI api) {
+        // content negotiation and security are checked for every operation
+        requestHeaders.add("Content-Type");
+        requestHeaders.add("Accept");
+        requestHeaders.add("Authorization");
+        responseHeaders.add("Content-Type");
+
+        if (api.getPaths() == null) {
+            return;
+        }
+        for (PathItem pathItem : api.getPaths().values()) {
+            addHeaderParameters(pathItem.getParameters());
+            for (Operation operation : pathItem.readOperations()) {
+                addHeaderParameters(operation.getParameters());
+                if (operation.getResponses() == null) {
+                    continue;
+                }
+                for (Map.Entry<String, ApiResponse> response : operation.getResponses().entrySet()) {
+                    addResponse(response.getKey(), response.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether any operation declares a body schema for this status and media type.
+     */
+    public boolean isResponseBodyValidated(int status, String contentType) {
+        if (!statusesWithBody.contains(status) && !defaultResponseHasBody) {
+            return false;
+        }
+        if (contentType == null) {
+            return true;
+        }
+        String mediaType = baseMediaType(contentType);
+        return bodyMediaTypes.contains(mediaType) || bodyMediaTypes.contains("*/*")
+            || bodyMediaTypes.contains(mediaType.substring(0, Math.max(0, mediaType.indexOf('/'))) + "/*");
+    }
+
+    public Set<String> getRequestHeaders() {
+        return Collections.unmodifiableSet(requestHeaders);
+    }
+
+    public Set<String> getResponseHeaders() {
+        return Collections.unmodifiableSet(responseHeaders);
+    }
+
+    private void addHeaderParameters(List<Parameter> parameters) {
+        if (parameters == null) {
+            return;
+        }
+        for (Parameter parameter : parameters) {
+            if ("header".equalsIgnoreCase(parameter.getIn())) {
+                requestHeaders.add(parameter.getName());
+            }
+        }
+    }
+
+    private void addResponse(String status, ApiResponse response) {
+        if (response.getHeaders() != null) {
+            responseHeaders.addAll(response.getHeaders().keySet());
+        }
+        if (response.getContent() == null) {
+            return;
+        }
+        boolean hasSchema = false;
+        for (Map.Entry<String, MediaType> content : response.getContent().entrySet()) {
+            if (content.getValue() != null && content.getValue().getSchema() != null) {
+                bodyMediaTypes.add(baseMediaType(content.getKey()));
+                hasSchema = true;
+            }
+        }
+        if (!hasSchema) {
+            return;
+        }
+        if ("default".equalsIgnoreCase(status)) {
+            defaultResponseHasBody = true;
+        } else if (status.length() == 3 && status.toUpperCase(Locale.ROOT).endsWith("XX")) {
+            int statusClass = Character.digit(status.charAt(0), 10);
+            for (int code = statusClass * 100; code < statusClass * 100 + 100; code++) {
+                statusesWithBody.add(code);
+            }
+        } else {
+            try {
+                statusesWithBody.add(Integer.parseInt(status));
+            } catch (NumberFormatException e) {
+                defaultResponseHasBody = true;
+            }
+        }
+    }
+
+    private static String baseMediaType(String contentType) {
+        int semicolon = contentType.indexOf(';');
+        return (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,83 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.admin.Router;
+import com.github.tomakehurst.wiremock.extension.AdminApiExtension;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exposes the OpenAPI validation statistics of a mock server on its admin API:
+ * <ul>
+ *     <li>{@code GET /__admin/ewyrys/validation} - counters per operation and message key, cache and
+ *     sampling figures, and the most recent violations ({@code ?limit=}, 50 by default)</li>
+ *     <li>{@code DELETE /__admin/ewyrys/validation} - resets counters and recent violations</li>
+ * </ul>
+ */
+public class OpenApiValidationAdminExtension implements AdminApiExtension {
+
+    private static final String PATH = "/ewyrys/validation";
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final EwyrysApiRequestResponseOpenApiValidationTransformer transformer;
+
+    public OpenApiValidationAdminExtension(EwyrysApiRequestResponseOpenApiValidationTransformer transformer) {
+        this.transformer = transformer;
+    }
+
+    @Override
+    public String getName() {
+        return "ewyrys-openapi-validation-admin";
+    }
+
+    @Override
+    public void contributeAdminApiRoutes(Router router) {
+        router.add(RequestMethod.GET, PATH, (admin, serveEvent, pathParams) ->
+            ResponseDefinition.okForJson(statistics(limit(serveEvent.getRequest().queryParameter("limit")))));
+        router.add(RequestMethod.DELETE, PATH, (admin, serveEvent, pathParams) -> {
+            transformer.resetStatistics();
+            return ResponseDefinition.okEmptyJson();
+        });
+    }
+
+    private Map<String, Object> statistics(int limit) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("unmatchedRequests", transformer.getUnmatchedRequests());
+        body.put("droppedValidations", transformer.getDroppedValidations());
+        body.put("reportCacheHits", transformer.getReportCache().getHits());
+        body.put("reportCacheMisses", transformer.getReportCache().getMisses());
+        body.put("operations", transformer.getStatistics().snapshot());
+
+        OpenApiViolationStore store = transformer.getViolationStore();
+        body.put("violationsTotal", store.total());
+        List<Map<String, Object>> recent = new ArrayList<>();
+        for (OpenApiViolationStore.Violation violation : store.recent(limit)) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("timestamp", violation.timestamp().toString());
+            entry.put("operation", violation.operation());
+            entry.put("side", violation.side());
+            entry.put("method", violation.method());
+            entry.put("url", violation.url());
+            entry.put("status", violation.status());
+            entry.put("messages", violation.messages());
+            recent.add(entry);
+        }
+        body.put("recentViolations", recent);
+        return body;
+    }
+
+    private static int limit(QueryParameter parameter) {
+        if (parameter == null || !parameter.isPresent()) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(parameter.firstValue()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
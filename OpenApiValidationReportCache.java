@@ -0,0 +1,139 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.atlassian.oai.validator.report.ValidationReport;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of OpenAPI validation reports for repeated identical interactions.
+ * <p>
+ * Mock responses are mostly the same static stub bodies, so once an interaction has been validated
+ * its report can be reused instead of evaluating the schema again. Entries optionally expire after
+ * {@code ttl}; a zero {@code maxSize} disables caching.
+ * <p>
+ * Hits are a lock-free {@link ConcurrentHashMap} lookup that at most sets the entry's reference bit.
+ * Once {@code maxSize} entries are cached, a miss evicts with the CLOCK algorithm: the hand skips, and
+ * clears, entries referenced since it last passed and evicts the first one that was not. Only misses,
+ * which run the validator anyway, take the lock that guards the hand.
+ */
+public class OpenApiValidationReportCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries;
+    // keys in CLOCK order, guarded by this
+    private final Key[] clock;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OpenApiValidationReportCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null || ttl.isZero() ? 0 : ttl.toNanos();
+        this.entries = new ConcurrentHashMap<>(Math.min(Math.max(maxSize, 0), 1024));
+        this.clock = new Key[Math.max(maxSize, 0)];
+    }
+
+    public ValidationReport get(Key key, Supplier<ValidationReport> validation) {
+        if (maxSize <= 0) {
+            misses.increment();
+            return validation.get();
+        }
+        Entry entry = entries.get(key);
+        if (entry != null && (ttlNanos == 0 || System.nanoTime() - entry.createdAt < ttlNanos)) {
+            if (!entry.referenced) {
+                // written once per pass of the hand, not on every hit
+                entry.referenced = true;
+            }
+            hits.increment();
+            return entry.report;
+        }
+        misses.increment();
+        ValidationReport report = validation.get();
+        insert(key, new Entry(report, System.nanoTime()));
+        return report;
+    }
+
+    private synchronized void insert(Key key, Entry entry) {
+        if (entries.put(key, entry) != null) {
+            // an expired entry, or one added by a concurrent miss, already has its slot
+            return;
+        }
+        while (true) {
+            Key resident = clock[hand];
+            Entry residentEntry = resident == null ? null : entries.get(resident);
+            if (residentEntry == null) {
+                break;
+            }
+            if (!residentEntry.referenced) {
+                entries.remove(resident);
+                break;
+            }
+            residentEntry.referenced = false;
+            hand = (hand + 1) % clock.length;
+        }
+        clock[hand] = key;
+        hand = (hand + 1) % clock.length;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        Arrays.fill(clock, null);
+        hand = 0;
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a body, used in cache keys instead of the body itself.
+     */
+    public static long bodyHash(byte[] body) {
+        long hash = 0xcbf29ce484222325L;
+        if (body != null) {
+            for (byte b : body) {
+                hash ^= b;
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Everything the validation outcome depends on: request or response side, method, URL
+     * (path and query), status, the headers the spec declares for that side and the body.
+     *
+     * @param headers the declared headers present in the message, as {@code name: value} lines
+     */
+    public record Key(boolean response, String method, String url, int status, String headers,
+                      int bodyLength, long bodyHash) {
+    }
+
+    private static final class Entry {
+
+        private final ValidationReport report;
+        private final long createdAt;
+        private volatile boolean referenced;
+
+        private Entry(ValidationReport report, long createdAt) {
+            this.report = report;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.atlassian.oai.validator.report.ValidationReport;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Validation outcome counters per operation and per message key, e.g.
+ * {@code validation.request.body.schema.required}. Recording only touches {@link LongAdder}s, so
+ * concurrent interactions never contend on a lock.
+ */
+public class OpenApiValidationStatistics {
+
+    private final Map<String, OperationCounters> operations = new ConcurrentHashMap<>();
+
+    /**
+     * Counts one validated request or response of the operation.
+     *
+     * @param response whether the report is for the response side
+     * @return {@code true} if the report has an error key not seen before for this operation
+     */
+    public boolean record(String operation, boolean response, ValidationReport report) {
+        OperationCounters counters = operations.computeIfAbsent(operation, o -> new OperationCounters());
+        boolean invalid = report.hasErrors();
+        (response ? counters.responses : counters.requests).increment();
+        if (!invalid) {
+            return false;
+        }
+        (response ? counters.invalidResponses : counters.invalidRequests).increment();
+        boolean newKey = false;
+        for (ValidationReport.Message message : report.getMessages()) {
+            if (message.getLevel() != ValidationReport.Level.ERROR) {
+                continue;
+            }
+            LongAdder count = counters.messages.get(message.getKey());
+            if (count == null) {
+                LongAdder created = new LongAdder();
+                count = counters.messages.putIfAbsent(message.getKey(), created);
+                if (count == null) {
+                    count = created;
+                    newKey = true;
+                }
+            }
+            count.increment();
+        }
+        return newKey;
+    }
+
+    /**
+     * Point-in-time copy of the counters, sorted by operation name.
+     */
+    public List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> result = new ArrayList<>();
+        new TreeMap<>(operations).forEach((operation, counters) -> {
+            Map<String, Long> messages = new TreeMap<>();
+            counters.messages.forEach((key, count) -> messages.put(key, count.sum()));
+            result.add(new OperationSnapshot(operation,
+                counters.requests.sum(), counters.invalidRequests.sum(),
+                counters.responses.sum(), counters.invalidResponses.sum(), messages));
+        });
+        return result;
+    }
+
+    public void reset() {
+        operations.clear();
+    }
+
+    public record OperationSnapshot(String operation, long requests, long invalidRequests,
+                                    long responses, long invalidResponses, Map<String, Long> messages) {
+    }
+
+    private static final class OperationCounters {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder invalidRequests = new LongAdder();
+        private final LongAdder responses = new LongAdder();
+        private final LongAdder invalidResponses = new LongAdder();
+        private final Map<String, LongAdder> messages = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,57 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring buffer of the most recent OpenAPI violations.
+ * Writers never block; once full, the oldest violation is overwritten.
+ */
+public class OpenApiViolationStore {
+
+    private final AtomicReferenceArray<Violation> slots;
+    private final AtomicLong written = new AtomicLong();
+
+    public OpenApiViolationStore(int capacity) {
+        this.slots = new AtomicReferenceArray<>(Math.max(1, capacity));
+    }
+
+    public void add(Violation violation) {
+        long sequence = written.getAndIncrement();
+        slots.set((int) (sequence % slots.length()), violation);
+    }
+
+    /**
+     * Most recent violations first, at most {@code limit} of them.
+     */
+    public List<Violation> recent(int limit) {
+        long end = written.get();
+        long start = Math.max(0, end - Math.min(limit, slots.length()));
+        List<Violation> result = new ArrayList<>((int) (end - start));
+        for (long sequence = end - 1; sequence >= start; sequence--) {
+            Violation violation = slots.get((int) (sequence % slots.length()));
+            if (violation != null) {
+                result.add(violation);
+            }
+        }
+        return result;
+    }
+
+    public long total() {
+        return written.get();
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+        written.set(0);
+    }
+
+    public record Violation(Instant timestamp, String operation, String side, String method, String url, int status,
+                            List<String> messages) {
+    }
+}
@@ -0,0 +1,66 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.http.client.ClientHttpRequestFactoryBuilder;
+import org.springframework.boot.http.client.ClientHttpRequestFactorySettings;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestClient;
+
+@Configuration
+@ConditionalOnProperty(name = "osapi.base-url")
+public class OsApiClientConfiguration {
+
+    @Value("${osapi.base-url}")
+    private String baseUrl;
+
+    @Value("${osapi.connect-timeout-in-seconds:10}")
+    private int connectTimeout;
+
+    // applies to each read of the body, not to the whole download
+    @Value("${osapi.read-timeout-in-seconds:60}")
+    private int readTimeout;
+
+    // the only per-download heap allocation besides the digest
+    @Value("${osapi.download.buffer-size:65536}")
+    private int downloadBufferSize;
+
+    @Value("${osapi.download.max-resumes:5}")
+    private int downloadMaxResumes;
+
+    // multiplied by the number of the resume
+    @Value("${osapi.download.resume-backoff-in-ms:500}")
+    private int downloadResumeBackoff;
+
+    @Value("${osapi.download.hash-algorithm:SHA-256}")
+    private String downloadHashAlgorithm;
+
+    @Value("${osapi.download.hash-header:X-Content-Hash}")
+    private String downloadHashHeader;
+
+    @Bean
+    public OsApiDownloadClient osApiDownloadClient(ObjectProvider<MeterRegistry> meterRegistry) {
+        ClientHttpRequestFactorySettings settings = ClientHttpRequestFactorySettings
+                .defaults()
+                .withConnectTimeout(Duration.ofSeconds(connectTimeout))
+                .withReadTimeout(Duration.ofSeconds(readTimeout));
+
+        RestClient restClient = RestClient.builder()
+            .baseUrl(baseUrl)
+            .requestFactory(ClientHttpRequestFactoryBuilder.detect().build(settings))
+            .build();
+
+        return new OsApiDownloadClient(restClient, new OsApiDownloadClient.Settings(
+            downloadBufferSize,
+            downloadMaxResumes,
+            Duration.ofMillis(downloadResumeBackoff),
+            downloadHashAlgorithm,
+            downloadHashHeader
+        ), meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
+    }
+}
@@ -0,0 +1,405 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+/**
+ * Streams OsApi {@code inside-download} content to a file or to a caller's channel.
+ * <p>
+ * The body is copied through one buffer of {@code bufferSize} bytes and hashed on the way, so heap use
+ * does not depend on the file size. When the connection breaks, the download continues with a
+ * {@code Range} request from the last byte written, up to {@code maxResumes} times; a download to a file
+ * also picks up the {@code .part} file an earlier run left behind. The digest is compared with the hash
+ * header at the end, and a file only gets its final name once it matches. The file name is read from
+ * {@code Content-Disposition}, {@code filename*} (RFC 5987) before an RFC 2047 encoded {@code filename}.
+ */
+public class OsApiDownloadClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(OsApiDownloadClient.class);
+
+    static final String INSIDE_DOWNLOAD_PATH = "/api/v3.0.0/files/inside-download";
+    static final String PART_SUFFIX = ".part";
+    private static final int MAX_ERROR_BODY_BYTES = 1024;
+
+    /**
+     * @param hashHeader response header with the hex digest of the whole content, checked when present
+     */
+    public record Settings(int bufferSize, int maxResumes, Duration resumeBackoff, String hashAlgorithm, String hashHeader) {
+    }
+
+    /**
+     * A completed download; {@code verified} tells whether OsApi sent a hash to check it against.
+     */
+    public record Download(String reference, String fileName, MediaType contentType, long size, String hash,
+                           boolean verified, int resumes) {
+    }
+
+    private final RestClient restClient;
+    private final Settings settings;
+    private final MeterRegistry meterRegistry;
+    private final Counter bytes;
+    private final Counter resumes;
+
+    public OsApiDownloadClient(RestClient restClient, Settings settings, MeterRegistry meterRegistry) {
+        this.restClient = restClient;
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+        // an unknown algorithm fails here rather than on the first download
+        newDigest(settings.hashAlgorithm());
+        this.bytes = Counter.builder("osapi.client.download.bytes")
+            .description("Content bytes received from OsApi downloads")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.resumes = Counter.builder("osapi.client.download.resumes")
+            .description("OsApi downloads continued with a range request after a broken connection")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Downloads into {@code target}, through {@code target.part} which is kept when the download fails
+     * in a way that a later call can resume, and deleted when the content does not match its hash.
+     */
+    public Download download(String reference, Path target) {
+        Path part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        Download download;
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Transfer transfer = new Transfer(channel, channel, settings);
+            if (channel.size() > 0) {
+                transfer.hashExisting();
+                logger.info("Resuming OsApi download of {} from {} bytes already in {}", reference, transfer.offset, part);
+            }
+            download = transfer(reference, transfer);
+            channel.force(false);
+        } catch (OsApiDownloadException e) {
+            if (e.getReason() == OsApiDownloadException.Reason.HASH_MISMATCH || isEmpty(part)) {
+                deleteQuietly(part);
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write OsApi download to " + part, e);
+        }
+        try {
+            try {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(part, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot move OsApi download " + part + " to " + target, e);
+        }
+        return download;
+    }
+
+    /**
+     * Downloads into {@code sink} (see {@link java.nio.channels.Channels#newChannel(java.io.OutputStream)}
+     * for streams), which is not closed. Bytes are written as they arrive, so a caller that cannot take
+     * back what it received should wait for the hash check before using them.
+     */
+    public Download download(String reference, WritableByteChannel sink) {
+        return transfer(reference, new Transfer(sink, null, settings));
+    }
+
+    private Download transfer(String reference, Transfer transfer) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            while (true) {
+                try {
+                    Download download = restClient.post()
+                        .uri(INSIDE_DOWNLOAD_PATH)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.ALL)
+                        .headers(headers -> {
+                            if (transfer.resumeFrom() > 0) {
+                                headers.set(HttpHeaders.RANGE, "bytes=" + transfer.resumeFrom() + "-");
+                            }
+                        })
+                        .body(Map.of("reference", reference))
+                        .exchange((request, response) -> receive(reference, response, transfer));
+                    if (download != null) {
+                        outcome = "ok";
+                        return download;
+                    }
+                } catch (ResourceAccessException e) {
+                    if (transfer.resumes >= settings.maxResumes()) {
+                        throw new OsApiDownloadException(OsApiDownloadException.Reason.RESUMES_EXHAUSTED, 0,
+                            "OsApi download of " + reference + " failed at byte " + transfer.offset + " after "
+                                + transfer.resumes + " resumes", e);
+                    }
+                    transfer.resumes++;
+                    resumes.increment();
+                    logger.warn("OsApi download of {} interrupted at byte {}, resuming ({}/{}): {}",
+                        reference, transfer.offset, transfer.resumes, settings.maxResumes(), e.getMessage());
+                    pause(settings.resumeBackoff().multipliedBy(transfer.resumes));
+                }
+            }
+        } catch (OsApiDownloadException e) {
+            outcome = e.getReason().name().toLowerCase(Locale.ROOT).replace('_', '-');
+            throw e;
+        } finally {
+            Timer.builder("osapi.client.download")
+                .description("Duration of OsApi downloads, resumes included")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Consumes one response; {@code null} means the download starts over with another request.
+     */
+    private Download receive(String reference, ClientHttpResponse response, Transfer transfer) throws IOException {
+        int status = response.getStatusCode().value();
+        HttpHeaders headers = response.getHeaders();
+        long from = transfer.resumeFrom();
+        if (status == 416 && from > 0) {
+            // what was already written is as long as the content, or longer
+            if (totalOf(headers.getFirst(HttpHeaders.CONTENT_RANGE)) == transfer.offset) {
+                return transfer.finish(reference);
+            }
+            transfer.restart(reference, "holds more bytes than the content");
+            return null;
+        }
+        if (status != 200 && status != 206) {
+            byte[] body = response.getBody().readNBytes(MAX_ERROR_BODY_BYTES);
+            throw new OsApiDownloadException(OsApiDownloadException.Reason.HTTP_STATUS, status,
+                "OsApi answered " + status + " to the download of " + reference + ": " + new String(body, StandardCharsets.UTF_8), null);
+        }
+
+        String hash = headers.getFirst(settings.hashHeader());
+        if (transfer.expectedHash != null && hash != null && !hash.equalsIgnoreCase(transfer.expectedHash)) {
+            transfer.restart(reference, "changed since the download started");
+            return null;
+        }
+        if (hash != null) {
+            transfer.expectedHash = hash;
+        }
+        transfer.fileName = fileNameOf(headers, reference);
+        transfer.contentType = headers.getContentType();
+
+        long skip = 0;
+        long total;
+        if (status == 206) {
+            String contentRange = headers.getFirst(HttpHeaders.CONTENT_RANGE);
+            if (startOf(contentRange) != from) {
+                throw new OsApiDownloadException(OsApiDownloadException.Reason.HTTP_STATUS, status,
+                    "OsApi sent " + contentRange + " for a download of " + reference + " resumed at byte " + from, null);
+            }
+            skip = transfer.offset - from;
+            total = totalOf(contentRange);
+        } else {
+            // the range was ignored, the bytes already written come again
+            skip = transfer.offset;
+            total = headers.getContentLength();
+        }
+        transfer.copy(response.getBody(), skip, bytes);
+        if (total >= 0 && transfer.offset < total) {
+            // some servers end the body early without an error, resumed like a broken connection
+            throw new IOException("OsApi download of " + reference + " ended at byte " + transfer.offset + " of " + total);
+        }
+        return transfer.finish(reference);
+    }
+
+    /**
+     * The name from {@code Content-Disposition}, falling back to {@code Reference-ID} and then the reference.
+     */
+    static String fileNameOf(HttpHeaders headers, String reference) {
+        String disposition = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+        if (disposition != null) {
+            try {
+                String fileName = ContentDisposition.parse(disposition).getFilename();
+                if (fileName != null && !fileName.isBlank()) {
+                    return fileName;
+                }
+            } catch (IllegalArgumentException e) {
+                logger.debug("Unreadable Content-Disposition for {}: {}", reference, disposition, e);
+            }
+        }
+        String referenceId = headers.getFirst("Reference-ID");
+        return referenceId != null && !referenceId.isBlank() ? referenceId : reference;
+    }
+
+    // Content-Range: bytes 100-199/1000, or bytes */1000 on a 416
+    private static long startOf(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return -1;
+        }
+        int dash = contentRange.indexOf('-');
+        try {
+            return dash < 0 ? -1 : Long.parseLong(contentRange.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long totalOf(String contentRange) {
+        int slash = contentRange == null ? -1 : contentRange.lastIndexOf('/');
+        try {
+            return slash < 0 ? -1 : Long.parseLong(contentRange.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            // "*", length unknown
+            return -1;
+        }
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    private static void pause(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OsApiDownloadException(OsApiDownloadException.Reason.INTERRUPTED, 0, "Interrupted while waiting to resume", e);
+        }
+    }
+
+    private static boolean isEmpty(Path file) {
+        try {
+            return Files.size(file) == 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Cannot delete {}", file, e);
+        }
+    }
+
+    /**
+     * State of one download across its requests.
+     */
+    private static final class Transfer {
+        private final WritableByteChannel sink;
+        // set when the sink can be rewound, i.e. for downloads to a file
+        private final FileChannel file;
+        private final MessageDigest digest;
+        private final byte[] buffer;
+        private final ByteBuffer view;
+
+        private long offset;
+        private int resumes;
+        private String expectedHash;
+        private String fileName;
+        private MediaType contentType;
+
+        private Transfer(WritableByteChannel sink, FileChannel file, Settings settings) {
+            this.sink = sink;
+            this.file = file;
+            this.digest = newDigest(settings.hashAlgorithm());
+            this.buffer = new byte[settings.bufferSize()];
+            this.view = ByteBuffer.wrap(buffer);
+        }
+
+        /**
+         * Feeds the bytes already in the file to the digest and continues after them.
+         */
+        private void hashExisting() throws IOException {
+            long size = file.size();
+            long position = 0;
+            while (position < size) {
+                view.clear();
+                int read = file.read(view, position);
+                if (read < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, read);
+                position += read;
+            }
+            offset = position;
+            file.position(position);
+        }
+
+        /**
+         * Where the next request starts. The {@code .part} file of an earlier run is asked for from its last byte
+         * on, so that even a complete one is answered with a {@code 206} carrying the hash and the file name.
+         */
+        private long resumeFrom() {
+            return offset > 0 && fileName == null ? offset - 1 : offset;
+        }
+
+        /**
+         * Copies the body to the sink, discarding its first {@code skip} bytes. Sink failures are
+         * thrown unchecked, so they are not mistaken for a broken connection and resumed.
+         */
+        private void copy(InputStream body, long skip, Counter bytes) throws IOException {
+            int read;
+            while ((read = body.read(buffer)) >= 0) {
+                int from = (int) Math.min(skip, read);
+                skip -= from;
+                if (from == read) {
+                    continue;
+                }
+                digest.update(buffer, from, read - from);
+                view.limit(read).position(from);
+                try {
+                    while (view.hasRemaining()) {
+                        sink.write(view);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot write OsApi download at byte " + offset, e);
+                }
+                offset += read - from;
+                bytes.increment(read - from);
+            }
+        }
+
+        private void restart(String reference, String why) throws IOException {
+            if (file == null) {
+                throw new OsApiDownloadException(OsApiDownloadException.Reason.CONTENT_CHANGED, 0,
+                    "OsApi content of " + reference + " " + why + ", the " + offset + " bytes already written cannot be taken back", null);
+            }
+            logger.warn("OsApi content of {} {}, downloading it again", reference, why);
+            file.truncate(0);
+            file.position(0);
+            digest.reset();
+            offset = 0;
+            expectedHash = null;
+        }
+
+        private Download finish(String reference) {
+            String hash = HexFormat.of().formatHex(digest.digest());
+            if (expectedHash != null && !expectedHash.equalsIgnoreCase(hash)) {
+                throw new OsApiDownloadException(OsApiDownloadException.Reason.HASH_MISMATCH, 0,
+                    "OsApi download of " + reference + " has hash " + hash + " instead of " + expectedHash, null);
+            }
+            return new Download(reference, fileName, contentType, offset, hash, expectedHash != null, resumes);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Thrown when an OsApi download cannot be completed; partially written files are kept only when
+ * the download can be resumed.
+ */
+public class OsApiDownloadException extends RestClientException {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Reason {
+        /** OsApi answered with an error status, see {@link #getStatusCode()}. */
+        HTTP_STATUS,
+        /** The received content does not match the hash announced by OsApi. */
+        HASH_MISMATCH,
+        /** The content changed between two parts of a resumed download written to a caller's sink. */
+        CONTENT_CHANGED,
+        /** The connection kept failing and the resume attempts ran out. */
+        RESUMES_EXHAUSTED,
+        /** The thread was interrupted while waiting to resume. */
+        INTERRUPTED
+    }
+
+    private final Reason reason;
+    private final int statusCode;
+
+    public OsApiDownloadException(Reason reason, int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+        this.statusCode = statusCode;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * The HTTP status for {@link Reason#HTTP_STATUS}, otherwise {@code 0}.
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
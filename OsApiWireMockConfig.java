@@ -3,45 +3,111 @@ package pl.gov.coi.eunflowruadapterbe.config.mock;
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 
 import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Extension;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
 import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.http.HttpStatus;
-import org.springframework.util.StreamUtils;
+import pl.gov.coi.eunflowruadapterbe.config.integration.TrafficLogWriter;
 
 @Configuration
 public class OsApiWireMockConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(OsApiWireMockConfig.class);
 
+    private static final String INSIDE_DOWNLOAD_CATALOGUE = "osapi-inside-download";
+
     @Value("${wiremock.osapi.port:8087}")
     private int wireMockPort;
 
+    // extra business-key scenario catalogues (classpath JSON), see BusinessKeyScenarioCatalogue
+    @Value("${wiremock.osapi.scenario-catalogues:}")
+    private String[] scenarioCatalogues;
+
+    // recent requests, queryable at /__admin/journal, in place of the disabled WireMock journal; 0 turns it off
+    @Value("${wiremock.osapi.journal.capacity:1000}")
+    private int journalCapacity;
+
+    @Value("${wiremock.osapi.journal.max-body-bytes:4096}")
+    private int journalMaxBodyBytes;
+
+    @Value("${wiremock.osapi.journal.max-header-chars:2048}")
+    private int journalMaxHeaderChars;
+
+    // keep journal bodies in one direct buffer allocated up front instead of on the heap
+    @Value("${wiremock.osapi.journal.off-heap:false}")
+    private boolean journalOffHeap;
+
+    // record every served request into a binary traffic log for later replay (empty = off)
+    @Value("${wiremock.osapi.traffic-log.file:}")
+    private String trafficLogFile;
+
+    @Value("${wiremock.osapi.traffic-log.max-body-bytes:1048576}")
+    private int trafficLogMaxBodyBytes;
+
+    // hash the synthetic large files when they are registered instead of on their first request;
+    // reads several gigabytes in the background, so it is off for tests and benchmarks
+    @Value("${wiremock.osapi.synthetic.precompute-digests:false}")
+    private boolean precomputeSyntheticDigests;
+
+    private TrafficLogWriter trafficLog;
+
     private WireMockServer wireMockServer;
 
-    @Bean(destroyMethod = "stop")
+    private final BusinessKeyScenarioTransformer scenarioTransformer = new BusinessKeyScenarioTransformer();
+
+    // reference-ok-xml-delay used to carry a fixed 10 s stub delay; it is now a default latency rule,
+    // editable at /__admin/latency-profiles
+    private final LatencyProfiles latencyProfiles = new LatencyProfiles(List.of(
+        new LatencyProfiles.Rule("inside-download-xml-delay", "POST", "/api/v3.0.0/files/inside-download", null,
+            new LatencyProfiles.BodyCondition("reference", "reference-ok-xml-delay"), LatencyProfiles.Latency.fixed(10000), null)));
+
+    // started on the bootstrap executor, in parallel with the other mock servers
+    @Bean(destroyMethod = "stop", bootstrap = Bean.Bootstrap.BACKGROUND)
     public WireMockServer completeOsApiWireMockServer() {
         try {
+            long start = System.nanoTime();
+
+            List<Extension> extensions = new ArrayList<>(List.of(
+                scenarioTransformer, new SyntheticContentTransformer(),
+                new MockFixtureTransformer(MockFixtureStore.shared()),
+                new LatencyProfileTransformer(latencyProfiles), new LatencyProfileAdminExtension(latencyProfiles)));
+            if (journalCapacity > 0) {
+                RequestJournalRing journal = new RequestJournalRing(journalCapacity, journalMaxBodyBytes, journalOffHeap);
+                extensions.add(new RequestJournalListener(journal, journalMaxHeaderChars, Set.of("Authorization")));
+                extensions.add(new RequestJournalAdminExtension(journal));
+            }
+            if (!trafficLogFile.isBlank()) {
+                trafficLog = new TrafficLogWriter(Path.of(trafficLogFile.trim()), trafficLogMaxBodyBytes);
+                extensions.add(new TrafficRecordingListener(trafficLog, "osapi-mock"));
+            }
 
             WireMockConfiguration config = WireMockConfiguration.options()
+            // the unbounded WireMock journal stays off, RequestJournalListener keeps a bounded one
             .disableRequestJournal()
             .asynchronousResponseEnabled(true)
-            .port(wireMockPort);
+            .port(wireMockPort)
+            // synthetic multi-gigabyte bodies are streamed, only a prefix is ever read for logging
+            .maxLoggedResponseSize(64 * 1024)
+            .extensions(extensions.toArray(new Extension[0]));
 
             wireMockServer = new WireMockServer(config);
             wireMockServer.start();
 
             setupCompleteApiMocks();
 
-            logger.info("Complete OsApi WireMock started on port: {}", wireMockPort);
+            logger.info("Complete OsApi WireMock started on port: {} in {} ms", wireMockServer.port(), (System.nanoTime() - start) / 1_000_000);
             return wireMockServer;
         } catch (Exception e) {
             logger.error("Failed to start Complete OsApi WireMock on port: {}", wireMockPort, e);
@@ -55,203 +121,212 @@ public class OsApiWireMockConfig {
             wireMockServer.stop();
             logger.info("OsApi WireMock stopped");
         }
+        if (trafficLog != null) {
+            try {
+                trafficLog.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close traffic log {}", trafficLogFile, e);
+            }
+        }
     }
 
     private void setupCompleteApiMocks() {
         // Download endpoints
         setupInsideDownloadEndpoints();
+
+        if (scenarioCatalogues != null) {
+            for (String location : scenarioCatalogues) {
+                if (!location.isBlank()) {
+                    registerCatalogue(BusinessKeyScenarioCatalogue.load(location.trim()));
+                }
+            }
+        }
         logger.info("Setup complete OsApi WireMock with all endpoint categories");
     }
 
     private void setupInsideDownloadEndpoints() {
-             
+
+    // one catch-all stub; the scenario is picked by the "reference" field of the request body
+    BusinessKeyScenarioCatalogue catalogue = new BusinessKeyScenarioCatalogue(INSIDE_DOWNLOAD_CATALOGUE, "POST",
+        "/api/v3.0.0/files/inside-download", BusinessKeyScenarioCatalogue.KeySource.BODY, "reference");
+         
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // SUCCESS SCENARIOS - Binary file downloads with proper headers
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     
     // Small xml file - for quick testing
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-ok-xml\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.OK.value())
-            .withHeader("Content-Type", "application/xml")
-            .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?reference-ok-xml.xml?=\"; filename*=UTF-8''reference-ok-xml.xml")
-            .withHeader("Reference-ID", "reference-ok-xml")
-            .withBody("<test>This is a small test XML file content for streaming download testing.</test>")
-            ));
-
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-ok-xml-delay\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.OK.value())
-            .withHeader("Content-Type", "application/xml")
-            .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?reference-ok-xml-delay.xml?=\"; filename*=UTF-8''reference-ok-xml-delay.xml")
-            .withHeader("Reference-ID", "reference-ok-xml-delay")
-            .withBody("<test>This is a small test XML file content for streaming download testing.</test>")
-            .withFixedDelay(10000)
-            ));            
-               
+    catalogue.scenario("reference-ok-xml", aResponse()
+        .withStatus(HttpStatus.OK.value())
+        .withHeader("Content-Type", "application/xml")
+        .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?reference-ok-xml.xml?=\"; filename*=UTF-8''reference-ok-xml.xml")
+        .withHeader("Reference-ID", "reference-ok-xml")
+        .withBody("<test>This is a small test XML file content for streaming download testing.</test>"));
+
+    catalogue.scenario("reference-ok-xml-delay", aResponse()
+        .withStatus(HttpStatus.OK.value())
+        .withHeader("Content-Type", "application/xml")
+        .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?reference-ok-xml-delay.xml?=\"; filename*=UTF-8''reference-ok-xml-delay.xml")
+        .withHeader("Reference-ID", "reference-ok-xml-delay")
+        .withBody("<test>This is a small test XML file content for streaming download testing.</test>"));
+           
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // EDGE CASES & SPECIAL SCENARIOS
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     
     // Empty file
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-ok-empty\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.OK.value())
-            .withHeader("Content-Type", "application/xml")
-            .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?empty-file.xml?=\"; filename*=UTF-8''empty-file.xml")
-            .withHeader("Reference-ID", "reference-ok-empty")
-            .withHeader("Content-Length", "0")
-            .withBody("")
-            ));
+    catalogue.scenario("reference-ok-empty", aResponse()
+        .withStatus(HttpStatus.OK.value())
+        .withHeader("Content-Type", "application/xml")
+        .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?empty-file.xml?=\"; filename*=UTF-8''empty-file.xml")
+        .withHeader("Reference-ID", "reference-ok-empty")
+        .withHeader("Content-Length", "0")
+        .withBody(""));
     
     // Missing Content-Disposition header
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-ok-no-disposition\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.OK.value())
-            .withHeader("Content-Type", "application/xml")
-            .withHeader("Reference-ID", "reference-ok-no-disposition")
-            .withBody("<test>This is a small test XML file content for streaming download testing.</test>")
-            ));
+    catalogue.scenario("reference-ok-no-disposition", aResponse()
+        .withStatus(HttpStatus.OK.value())
+        .withHeader("Content-Type", "application/xml")
+        .withHeader("Reference-ID", "reference-ok-no-disposition")
+        .withBody("<test>This is a small test XML file content for streaming download testing.</test>"));
     
     // Missing filename header
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-ok-no-filename\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.OK.value())
-            .withHeader("Content-Type", "application/pdf")
-            .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?extracted-from-disposition.pdf?=\"; filename*=UTF-8''extracted-from-disposition.pdf")
-            .withHeader("Reference-ID", "reference-ok-no-filename")
-            .withBody("PDF content - filename should be extracted from Content-Disposition")
-            ));
+    catalogue.scenario("reference-ok-no-filename", aResponse()
+        .withStatus(HttpStatus.OK.value())
+        .withHeader("Content-Type", "application/pdf")
+        .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?extracted-from-disposition.pdf?=\"; filename*=UTF-8''extracted-from-disposition.pdf")
+        .withHeader("Reference-ID", "reference-ok-no-filename")
+        .withBody("PDF content - filename should be extracted from Content-Disposition"));
+
+    //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+    // LARGE FILES - deterministic content generated while streaming, constant memory whatever the size
+    //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
+
+    // 5 GiB with Content-Length; X-Content-Hash carries the SHA-256, computed by the first request unless
+    // wiremock.osapi.synthetic.precompute-digests hashes it in the background at startup
+    catalogue.scenario("reference-ok-large-5g", largeFile("reference-ok-large-5g", "5g"));
+
+    // 1 GiB, chunked transfer encoding
+    catalogue.scenario("reference-ok-large-chunked-1g", largeFile("reference-ok-large-chunked-1g", "1g")
+        .withTransformerParameter("chunked", "true"));
+
+    // 100 MiB throttled to 10 MiB/s
+    catalogue.scenario("reference-ok-large-throttled", largeFile("reference-ok-large-throttled", "100m")
+        .withTransformerParameter("bytesPerSecond", "10m"));
+
+    // 1 GiB whose X-Content-Hash does not match the content, for client-side integrity checks
+    catalogue.scenario("reference-wrong-hash-large-1g", largeFile("reference-wrong-hash-large-1g", "1g")
+        .withTransformerParameter("corruptHash", "true"));
         
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     // ERROR SCENARIOS
     //////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
     
     // File not found
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-not-found\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.NOT_FOUND.value())
-            .withHeader("Content-Type", "application/json")
-            .withBody("""
-                {
-                    "error": "FILE_NOT_FOUND",
-                    "message": "File with reference 'reference-not-found' not found",
-                    "timestamp": "%s"
-                }""".formatted(java.time.Instant.now().toString()))
-            ));
+    catalogue.scenario("reference-not-found", aResponse()
+        .withStatus(HttpStatus.NOT_FOUND.value())
+        .withHeader("Content-Type", "application/json")
+        .withBody("""
+            {
+                "error": "FILE_NOT_FOUND",
+                "message": "File with reference 'reference-not-found' not found",
+                "timestamp": "%s"
+            }""".formatted(java.time.Instant.now().toString())));
     
     // Hash mismatch - integrity check failed
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-wrong-hash\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.UNPROCESSABLE_ENTITY.value())
-            .withHeader("Content-Type", "application/json")
-            .withBody("""
-                {
-                    "error": "INTEGRITY_CHECK_FAILED",
-                    "message": "Hash from meta data do not match hash from nfs content!",
-                    "timestamp": "%s"
-                }""".formatted(java.time.Instant.now().toString()))
-            ));
+    catalogue.scenario("reference-wrong-hash", aResponse()
+        .withStatus(HttpStatus.UNPROCESSABLE_ENTITY.value())
+        .withHeader("Content-Type", "application/json")
+        .withBody("""
+            {
+                "error": "INTEGRITY_CHECK_FAILED",
+                "message": "Hash from meta data do not match hash from nfs content!",
+                "timestamp": "%s"
+            }""".formatted(java.time.Instant.now().toString())));
     
     // Unauthorized access
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-unauthorized\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.UNAUTHORIZED.value())
-            .withHeader("Content-Type", "application/json")
-            .withBody("""
-                {
-                    "error": "UNAUTHORIZED",
-                    "message": "Unauthorized access to the resource",
-                    "timestamp": "%s"
-                }""".formatted(java.time.Instant.now().toString()))
-            ));
+    catalogue.scenario("reference-unauthorized", aResponse()
+        .withStatus(HttpStatus.UNAUTHORIZED.value())
+        .withHeader("Content-Type", "application/json")
+        .withBody("""
+            {
+                "error": "UNAUTHORIZED",
+                "message": "Unauthorized access to the resource",
+                "timestamp": "%s"
+            }""".formatted(java.time.Instant.now().toString())));
     
     // Forbidden access
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-forbidden\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.FORBIDDEN.value())
-            .withHeader("Content-Type", "application/json")
-            .withBody("""
-                {
-                    "error": "FORBIDDEN",
-                    "message": "Forbidden access to the resource",
-                    "timestamp": "%s"
-                }""".formatted(java.time.Instant.now().toString()))
-            ));
+    catalogue.scenario("reference-forbidden", aResponse()
+        .withStatus(HttpStatus.FORBIDDEN.value())
+        .withHeader("Content-Type", "application/json")
+        .withBody("""
+            {
+                "error": "FORBIDDEN",
+                "message": "Forbidden access to the resource",
+                "timestamp": "%s"
+            }""".formatted(java.time.Instant.now().toString())));
     
     // Server error
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-server-error\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())
-            .withHeader("Content-Type", "application/json")
-            .withBody("""
-                {
-                    "error": "INTERNAL_SERVER_ERROR",
-                    "message": "Internal server error occurred",
-                    "timestamp": "%s"
-                }""".formatted(java.time.Instant.now().toString()))
-            ));
+    catalogue.scenario("reference-server-error", aResponse()
+        .withStatus(HttpStatus.INTERNAL_SERVER_ERROR.value())
+        .withHeader("Content-Type", "application/json")
+        .withBody("""
+            {
+                "error": "INTERNAL_SERVER_ERROR",
+                "message": "Internal server error occurred",
+                "timestamp": "%s"
+            }""".formatted(java.time.Instant.now().toString())));
     
     // Service unavailable
-    wireMockServer.stubFor(post(urlPathMatching("/api/v3.0.0/files/inside-download"))
-        .withRequestBody(containing("\"reference\":\"reference-service-unavailable\""))
-        .willReturn(aResponse()
-            .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
-            .withHeader("Content-Type", "application/json")
-            .withBody("""
-                {
-                    "error": "SERVICE_UNAVAILABLE",
-                    "message": "Service temporarily unavailable",
-                    "timestamp": "%s"
-                }""".formatted(java.time.Instant.now().toString()))
-            ));
+    catalogue.scenario("reference-service-unavailable", aResponse()
+        .withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())
+        .withHeader("Content-Type", "application/json")
+        .withBody("""
+            {
+                "error": "SERVICE_UNAVAILABLE",
+                "message": "Service temporarily unavailable",
+                "timestamp": "%s"
+            }""".formatted(java.time.Instant.now().toString())));
         
+    registerCatalogue(catalogue);
+
     logger.info("Setup complete: inside-download endpoints with streaming support");
     }
 
-    /**
-     * Loads a response from a specified file in the classpath.
-     *
-     * @param filePath the path of the file to load
-     * @return the content of the file as a String
-     */
-    private String loadResponseFromFile(String filePath) {
-        try {
-            ClassPathResource resource = new ClassPathResource(filePath);
-            try (InputStream inputStream = resource.getInputStream()) {
-                return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
-            }
-        } catch (IOException e) {
-            logger.error("Failed to load response file: {}", filePath, e);
-            return createFallbackErrorResponse(filePath);
-        }
+    private static ResponseDefinitionBuilder largeFile(String reference, String size) {
+        return aResponse()
+            .withStatus(HttpStatus.OK.value())
+            .withHeader("Content-Type", "application/octet-stream")
+            .withHeader("Content-Disposition", "attachment; filename=\"=?UTF-8?Q?" + reference + ".bin?=\"; filename*=UTF-8''" + reference + ".bin")
+            .withHeader("Reference-ID", reference)
+            .withTransformers(SyntheticContentTransformer.NAME)
+            .withTransformerParameter("size", size)
+            .withTransformerParameter("seed", reference);
     }
 
     /**
-     * Creates a fallback error response in case the specified file cannot be loaded.
-     *
-     * @param filePath the path of the file that failed to load
-     * @return a JSON string representing the error response
+     * Registers the catalogue with the scenario transformer and adds its catch-all stub, or merges it
+     * into the catalogue already serving the same endpoint.
      */
-    private String createFallbackErrorResponse(String filePath) {
-        return String.format("""
-            {
-              "error": "CONFIGURATION_ERROR",
-              "message": "Failed to load mock response",
-              "details": "Response file '%s' could not be loaded",
-              "timestamp": "%s"
+    private void registerCatalogue(BusinessKeyScenarioCatalogue catalogue) {
+        int hashedOnFirstRequest = 0;
+        for (ResponseDefinition response : catalogue.responses()) {
+            try {
+                if (SyntheticContentTransformer.prepare(response, precomputeSyntheticDigests)) {
+                    hashedOnFirstRequest++;
+                }
+            } catch (IllegalArgumentException e) {
+                // answered with 500 and the same message when requested
+                logger.warn("Invalid synthetic content in catalogue {}: {}", catalogue.getName(), e.getMessage());
             }
-            """, filePath, java.time.Instant.now().toString());
-    }  
+        }
+        if (hashedOnFirstRequest > 0) {
+            logger.warn("{} synthetic files of catalogue {} are hashed by their first request, which blocks until the whole content"
+                + " is read (seconds for the gigabyte scenarios); set wiremock.osapi.synthetic.precompute-digests=true to hash them"
+                + " in the background at startup", hashedOnFirstRequest, catalogue.getName());
+        }
+        if (scenarioTransformer.register(catalogue)) {
+            wireMockServer.stubFor(catalogue.toStub());
+        }
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,122 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.admin.Router;
+import com.github.tomakehurst.wiremock.extension.AdminApiExtension;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Exposes the {@link RequestJournalRing} of a mock server on its admin API:
+ * <ul>
+ *     <li>{@code GET /__admin/journal} - most recent requests first ({@code ?limit=}, 50 by default),
+ *     optionally filtered by {@code method}, {@code status} and {@code url} (substring)</li>
+ *     <li>{@code DELETE /__admin/journal} - hides everything recorded so far</li>
+ * </ul>
+ * Bodies that are valid UTF-8 are returned as text, others base64 encoded.
+ */
+public class RequestJournalAdminExtension implements AdminApiExtension {
+
+    private static final String PATH = "/journal";
+    private static final int DEFAULT_LIMIT = 50;
+
+    private final RequestJournalRing journal;
+
+    public RequestJournalAdminExtension(RequestJournalRing journal) {
+        this.journal = journal;
+    }
+
+    @Override
+    public String getName() {
+        return "ring-journal-admin";
+    }
+
+    @Override
+    public void contributeAdminApiRoutes(Router router) {
+        router.add(RequestMethod.GET, PATH, (admin, serveEvent, pathParams) ->
+            ResponseDefinition.okForJson(query(serveEvent.getRequest())));
+        router.add(RequestMethod.DELETE, PATH, (admin, serveEvent, pathParams) -> {
+            journal.clear();
+            return ResponseDefinition.okEmptyJson();
+        });
+    }
+
+    private Map<String, Object> query(Request request) {
+        String method = value(request.queryParameter("method"));
+        String status = value(request.queryParameter("status"));
+        String url = value(request.queryParameter("url"));
+        Predicate<RequestJournalRing.Entry> filter = entry ->
+            (method == null || method.equalsIgnoreCase(entry.method()))
+                && (status == null || status.equals(String.valueOf(entry.status())))
+                && (url == null || entry.url().contains(url));
+
+        List<Map<String, Object>> requests = new ArrayList<>();
+        for (RequestJournalRing.Recorded recorded : journal.query(filter, limit(request.queryParameter("limit")))) {
+            RequestJournalRing.Entry entry = recorded.entry();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("sequence", entry.sequence());
+            item.put("timestamp", entry.timestamp().toString());
+            item.put("method", entry.method());
+            item.put("url", entry.url());
+            item.put("status", entry.status());
+            item.put("durationMs", entry.durationMs());
+            item.put("headers", entry.headers());
+            item.put("bodyBytes", entry.bodyBytes());
+            item.put("bodyTruncated", entry.keptBodyBytes() < entry.bodyBytes());
+            putBody(item, recorded.body());
+            requests.add(item);
+        }
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("capacity", journal.capacity());
+        body.put("maxBodyBytes", journal.maxBodyBytes());
+        body.put("offHeapBytes", journal.offHeapBytes());
+        body.put("recorded", journal.recorded());
+        body.put("dropped", journal.dropped());
+        body.put("requests", requests);
+        return body;
+    }
+
+    private static void putBody(Map<String, Object> item, byte[] body) {
+        if (body.length == 0) {
+            return;
+        }
+        try {
+            item.put("body", StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(body))
+                .toString());
+        } catch (CharacterCodingException e) {
+            // binary, or text cut in the middle of a multi-byte character
+            item.put("bodyBase64", Base64.getEncoder().encodeToString(body));
+        }
+    }
+
+    private static String value(QueryParameter parameter) {
+        return parameter == null || !parameter.isPresent() ? null : parameter.firstValue();
+    }
+
+    private static int limit(QueryParameter parameter) {
+        String value = value(parameter);
+        if (value == null) {
+            return DEFAULT_LIMIT;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            return DEFAULT_LIMIT;
+        }
+    }
+}
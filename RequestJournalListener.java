@@ -0,0 +1,83 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.LoggedResponse;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Records every served request into a {@link RequestJournalRing}, in place of the WireMock request journal
+ * that the mock servers keep disabled. Headers are rendered as {@code Name: value} lines up to
+ * {@code maxHeaderChars}; redacted headers keep their name but not their value. Requests matching
+ * {@code excluded}, e.g. the mock's own warm-up traffic, are not recorded.
+ */
+public class RequestJournalListener implements ServeEventListener {
+
+    private final RequestJournalRing journal;
+    private final int maxHeaderChars;
+    private final Set<String> redactedHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    private final Predicate<LoggedRequest> excluded;
+
+    public RequestJournalListener(RequestJournalRing journal, int maxHeaderChars, Set<String> redactedHeaders) {
+        this(journal, maxHeaderChars, redactedHeaders, request -> false);
+    }
+
+    public RequestJournalListener(RequestJournalRing journal, int maxHeaderChars, Set<String> redactedHeaders,
+                                  Predicate<LoggedRequest> excluded) {
+        this.journal = journal;
+        this.maxHeaderChars = maxHeaderChars;
+        this.redactedHeaders.addAll(redactedHeaders);
+        this.excluded = excluded;
+    }
+
+    @Override
+    public String getName() {
+        return "ring-journal";
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return true;
+    }
+
+    @Override
+    public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
+        LoggedRequest request = serveEvent.getRequest();
+        if (excluded.test(request)) {
+            return;
+        }
+        LoggedResponse response = serveEvent.getResponse();
+        long durationMs = serveEvent.getTiming() == null || serveEvent.getTiming().getTotalTime() == null
+            ? -1 : serveEvent.getTiming().getTotalTime();
+        journal.record(
+            request.getLoggedDate() == null ? Instant.now() : request.getLoggedDate().toInstant(),
+            request.getMethod().getName(),
+            request.getUrl(),
+            response == null ? 0 : response.getStatus(),
+            durationMs,
+            headers(request),
+            request.getBody());
+    }
+
+    private String headers(LoggedRequest request) {
+        if (maxHeaderChars <= 0 || request.getHeaders() == null) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder(Math.min(maxHeaderChars, 512));
+        for (HttpHeader header : request.getHeaders().all()) {
+            String value = redactedHeaders.contains(header.key()) ? "[REDACTED]" : String.join(", ", header.values());
+            text.append(header.key()).append(": ").append(value).append('\n');
+            if (text.length() >= maxHeaderChars) {
+                text.setLength(maxHeaderChars);
+                break;
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Fixed-capacity, lock-free journal of the most recent requests of a mock server.
+ * <p>
+ * Every recorded request takes the next sequence number and overwrites the slot {@code sequence % capacity},
+ * so memory stays bounded however long the server runs. Each slot has a seqlock word holding its owner
+ * sequence and whether that owner is still writing. A writer claims the slot with CAS, writes the body and
+ * the entry, then publishes; a writer that finds a newer owner drops its entry and counts it, and one that
+ * finds an older owner still writing waits for it, which takes one body copy. Bodies are truncated to
+ * {@code maxBodyBytes} and kept either in the entry or, with {@code offHeap}, in one direct buffer with a
+ * fixed region per slot. Readers never wait: they read the word before and after copying an entry and skip
+ * it when the slot was claimed again meanwhile.
+ */
+public class RequestJournalRing {
+
+    private final AtomicReferenceArray<Entry> slots;
+    // per slot: owner sequence * 2, plus 1 while the owner is writing; -2 for a slot never written
+    private final AtomicLongArray states;
+    private final int mask;
+    private final int maxBodyBytes;
+    private final ByteBuffer bodies;
+
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private volatile long clearedBefore;
+
+    public RequestJournalRing(int capacity, int maxBodyBytes, boolean offHeap) {
+        if (capacity <= 0 || capacity > (1 << 24)) {
+            throw new IllegalArgumentException("Journal capacity must be between 1 and " + (1 << 24));
+        }
+        int slotCount = Math.max(1, Integer.highestOneBit(capacity - 1) << 1);
+        if (offHeap && (long) slotCount * maxBodyBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap journal bodies are limited to 2 GiB, lower the capacity or the body limit");
+        }
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.states = new AtomicLongArray(slotCount);
+        // no slot is owned yet; sequences start at 0
+        for (int i = 0; i < slotCount; i++) {
+            states.set(i, -2);
+        }
+        this.mask = slotCount - 1;
+        this.maxBodyBytes = Math.max(0, maxBodyBytes);
+        this.bodies = offHeap && this.maxBodyBytes > 0 ? ByteBuffer.allocateDirect(slotCount * this.maxBodyBytes) : null;
+    }
+
+    /**
+     * @param body the full request body; only its first {@code maxBodyBytes} are kept
+     */
+    public void record(Instant timestamp, String method, String url, int status, long durationMs,
+                       String headers, byte[] body) {
+        long sequence = nextSequence.getAndIncrement();
+        int slot = (int) (sequence & mask);
+        long state;
+        while (true) {
+            state = states.get(slot);
+            if (state >> 1 > sequence) {
+                // lapped by a newer request while we were slow, that one owns the slot now
+                dropped.increment();
+                return;
+            }
+            if ((state & 1) != 0) {
+                // an older request is still writing this slot
+                Thread.onSpinWait();
+            } else if (states.compareAndSet(slot, state, sequence << 1 | 1)) {
+                break;
+            }
+        }
+        // the claim is visible before any byte of the body
+        VarHandle.releaseFence();
+
+        int bodyLength = body == null ? 0 : body.length;
+        int kept = Math.min(bodyLength, maxBodyBytes);
+        byte[] heapBody = null;
+        if (kept > 0) {
+            if (bodies != null) {
+                bodies.put(slot * maxBodyBytes, body, 0, kept);
+            } else {
+                heapBody = Arrays.copyOf(body, kept);
+            }
+        }
+        slots.set(slot, new Entry(sequence, timestamp, method, url, status, durationMs, headers, bodyLength, kept, heapBody));
+        states.set(slot, sequence << 1);
+    }
+
+    /**
+     * Newest entries first, at most {@code limit} of those matching the filter.
+     */
+    public List<Recorded> query(Predicate<Entry> filter, int limit) {
+        List<Recorded> result = new ArrayList<>(Math.min(limit, slots.length()));
+        long newest = nextSequence.get() - 1;
+        long oldest = Math.max(clearedBefore, newest - mask);
+        for (long sequence = newest; sequence >= oldest && result.size() < limit; sequence--) {
+            int slot = (int) (sequence & mask);
+            long published = sequence << 1;
+            if (states.get(slot) != published) {
+                // still being written, or already claimed by a newer request
+                continue;
+            }
+            Entry entry = slots.get(slot);
+            if (entry == null || entry.sequence() != sequence || !filter.test(entry)) {
+                continue;
+            }
+            byte[] body = entry.heapBody();
+            if (bodies != null && entry.keptBodyBytes() > 0) {
+                body = new byte[entry.keptBodyBytes()];
+                bodies.get(slot * maxBodyBytes, body);
+                // the copy is complete before the word is read again
+                VarHandle.acquireFence();
+                if (states.get(slot) != published) {
+                    // claimed by a newer request while copying, the bytes may be mixed
+                    continue;
+                }
+            }
+            result.add(new Recorded(entry, body == null ? new byte[0] : body));
+        }
+        return result;
+    }
+
+    /**
+     * Hides everything recorded so far; slots are reused as new requests arrive.
+     */
+    public void clear() {
+        clearedBefore = nextSequence.get();
+    }
+
+    public long recorded() {
+        return nextSequence.get();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    public int maxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public boolean isOffHeap() {
+        return bodies != null;
+    }
+
+    public long offHeapBytes() {
+        return bodies == null ? 0 : bodies.capacity();
+    }
+
+    /**
+     * @param bodyBytes     length of the original body
+     * @param keptBodyBytes how much of it was kept
+     * @param heapBody      the kept body when it is not stored off-heap
+     */
+    public record Entry(long sequence, Instant timestamp, String method, String url, int status, long durationMs,
+                        String headers, int bodyBytes, int keptBodyBytes, byte[] heapBody) {
+    }
+
+    public record Recorded(Entry entry, byte[] body) {
+    }
+}
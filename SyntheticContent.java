@@ -0,0 +1,259 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.common.InputStreamSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Deterministic pseudo-random content of any size, generated on the fly.
+ * <p>
+ * Byte {@code n} depends only on the seed and {@code n} (a SplitMix64 counter), so any range can be
+ * produced without generating what precedes it and the same seed always yields the same bytes.
+ * Streams hold a few bytes of state regardless of the content size.
+ */
+public class SyntheticContent implements InputStreamSource {
+
+    private static final Map<String, CompletableFuture<String>> DIGESTS = new ConcurrentHashMap<>();
+
+    private final long seed;
+    private final long size;
+    private final long bytesPerSecond;
+
+    /**
+     * @param bytesPerSecond throttles every stream to this rate, 0 for unthrottled
+     */
+    public SyntheticContent(long seed, long size, long bytesPerSecond) {
+        this.seed = seed;
+        this.size = size;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public static long seedOf(String name) {
+        return OpenApiValidationReportCache.bodyHash(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses sizes such as {@code 1024}, {@code 100m} or {@code 5g} (binary units).
+     *
+     * @throws IllegalArgumentException when the value is missing, negative, malformed or overflows a long
+     */
+    public static long parseSize(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Size is missing");
+        }
+        String size = value.trim().toLowerCase(Locale.ROOT);
+        long unit = switch (size.charAt(size.length() - 1)) {
+            case 'k' -> 1L << 10;
+            case 'm' -> 1L << 20;
+            case 'g' -> 1L << 30;
+            case 't' -> 1L << 40;
+            default -> 1;
+        };
+        try {
+            long count = Long.parseLong(unit == 1 ? size : size.substring(0, size.length() - 1).trim());
+            if (count < 0) {
+                throw new IllegalArgumentException("Size must not be negative: " + value);
+            }
+            return Math.multiplyExact(count, unit);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid size: " + value, e);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public InputStream getStream() {
+        return stream(0, size);
+    }
+
+    /**
+     * Bytes {@code [from, to)} of the content.
+     */
+    public InputStream stream(long from, long to) {
+        InputStream stream = new Generator(seed, from, Math.min(to, size));
+        return bytesPerSecond > 0 ? new Throttled(stream, bytesPerSecond) : stream;
+    }
+
+    /**
+     * Hex digest of the whole content, read on a background thread. Started by the first call for a
+     * seed, size and algorithm and kept for the lifetime of the JVM, so later calls share it.
+     *
+     * @throws IllegalArgumentException for an unsupported algorithm
+     */
+    public CompletableFuture<String> digest(String algorithm) {
+        messageDigest(algorithm);
+        return DIGESTS.computeIfAbsent(algorithm + ':' + seed + ':' + size,
+            key -> CompletableFuture.supplyAsync(() -> computeDigest(algorithm), DigestExecutor.INSTANCE));
+    }
+
+    private String computeDigest(String algorithm) {
+        MessageDigest digest = messageDigest(algorithm);
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new Generator(seed, 0, size)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("Unsupported digest algorithm: " + algorithm, e);
+        }
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Daemon threads computing digests, created on first use.
+     */
+    private static final class DigestExecutor {
+        private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "synthetic-content-digest");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    private static final class Generator extends InputStream {
+        private final long seed;
+        private final long end;
+        private long position;
+
+        private Generator(long seed, long from, long end) {
+            this.seed = seed;
+            this.position = Math.max(0, from);
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            if (position >= end) {
+                return -1;
+            }
+            return byteAt(position++) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= end) {
+                return -1;
+            }
+            int count = (int) Math.min(length, end - position);
+            int i = 0;
+            // unaligned head
+            while (i < count && (position & 7) != 0) {
+                buffer[offset + i++] = byteAt(position++);
+            }
+            // whole 64-bit words
+            while (count - i >= 8) {
+                long word = mix(seed + (position >>> 3) * 0x9e3779b97f4a7c15L);
+                for (int b = 0; b < 8; b++) {
+                    buffer[offset + i++] = (byte) (word >>> (b << 3));
+                }
+                position += 8;
+            }
+            while (i < count) {
+                buffer[offset + i++] = byteAt(position++);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        private byte byteAt(long index) {
+            return (byte) (mix(seed + (index >>> 3) * 0x9e3779b97f4a7c15L) >>> ((index & 7) << 3));
+        }
+    }
+
+    private static final class Throttled extends InputStream {
+        private final InputStream delegate;
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long sent;
+
+        private Throttled(InputStream delegate, long bytesPerSecond) {
+            this.delegate = delegate;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public int read() throws IOException {
+            pace(1);
+            int value = delegate.read();
+            if (value >= 0) {
+                sent++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            // at most ~50 ms worth of data per read keeps the rate smooth
+            int slice = (int) Math.max(1, Math.min(length, bytesPerSecond / 20));
+            pace(slice);
+            int read = delegate.read(buffer, offset, slice);
+            if (read > 0) {
+                sent += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        private void pace(int next) throws IOException {
+            long due = start + (long) ((sent + next) * 1e9 / bytesPerSecond);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Throttled synthetic content interrupted");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformer;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Replaces the stub body with {@link SyntheticContent} streamed from a generator, so multi-gigabyte
+ * downloads never sit on the heap. Parameters:
+ * <ul>
+ *     <li>{@code size} - content length, e.g. {@code 5g} (required)</li>
+ *     <li>{@code seed} - content seed, defaults to the size; equal seeds and sizes give equal bytes</li>
+ *     <li>{@code chunked} - omit {@code Content-Length} and let the server send chunks (default {@code false})</li>
+ *     <li>{@code bytesPerSecond} - throttle, e.g. {@code 10m} (default unthrottled)</li>
+ *     <li>{@code hashHeader} / {@code hashAlgorithm} - header carrying the hex digest of the content
+ *     (default {@code X-Content-Hash} / {@code SHA-256}), {@code none} to leave it out</li>
+ *     <li>{@code hash} - hex digest to send as it is instead of computing it</li>
+ *     <li>{@code corruptHash} - send a digest that does not match the content (default {@code false})</li>
+ * </ul>
+ * A single {@code Range: bytes=...} request header is answered with {@code 206} and that part of the
+ * content, or {@code 416} when it lies outside the content, whatever the request method, so clients can
+ * resume interrupted downloads. The hash header always describes the whole content. Without a {@code hash}
+ * parameter it is computed when the content is first requested, and that request waits for it, unless
+ * {@link #prepare} started it when the stub was registered. Invalid parameters are answered with {@code 500}.
+ */
+public class SyntheticContentTransformer extends ResponseTransformer {
+
+    public static final String NAME = "synthetic-content";
+    public static final String DEFAULT_HASH_HEADER = "X-Content-Hash";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return false;
+    }
+
+    /**
+     * Checks the parameters of a stub when it is registered. With {@code computeDigest} it also starts
+     * computing the digest its responses will carry, so that the first request does not wait for the
+     * whole content to be read; this reads every byte of the content, gigabytes for the large scenarios.
+     * Responses without this transformer are ignored.
+     *
+     * @return {@code true} when the first request of the content will have to wait for its digest
+     * @throws IllegalArgumentException when the transformer parameters are invalid
+     */
+    public static boolean prepare(ResponseDefinition response, boolean computeDigest) {
+        if (response.getTransformers() == null || !response.getTransformers().contains(NAME)) {
+            return false;
+        }
+        Parameters parameters = response.getTransformerParameters() == null
+            ? Parameters.empty()
+            : response.getTransformerParameters();
+        SyntheticContent content = content(parameters);
+        if (!hashed(parameters) || parameters.getString("hash", null) != null) {
+            return false;
+        }
+        if (computeDigest) {
+            content.digest(hashAlgorithm(parameters));
+            return false;
+        }
+        SyntheticContent.messageDigest(hashAlgorithm(parameters));
+        return true;
+    }
+
+    @Override
+    public Response transform(Request request, Response response, FileSource files, Parameters parameters) {
+        SyntheticContent content;
+        CompletableFuture<String> digest;
+        try {
+            content = content(parameters);
+            digest = digest(parameters, content);
+        } catch (IllegalArgumentException e) {
+            return Response.Builder.like(response)
+                .but()
+                .status(500)
+                .headers(new HttpHeaders(new HttpHeader("Content-Type", "text/plain; charset=UTF-8")))
+                .body("Invalid " + NAME + " parameters: " + e.getMessage())
+                .build();
+        }
+        boolean chunked = Boolean.parseBoolean(parameters.getString("chunked", "false"));
+        String hashHeader = parameters.getString("hashHeader", DEFAULT_HASH_HEADER);
+
+        List<HttpHeader> headers = new ArrayList<>();
+        for (HttpHeader header : response.getHeaders().all()) {
+            if (!header.keyEquals("Content-Length") && !header.keyEquals(hashHeader)) {
+                headers.add(header);
+            }
+        }
+        headers.add(new HttpHeader("Accept-Ranges", "bytes"));
+        long[] range = range(request.getHeader("Range"), content.size());
+        if (range == UNSATISFIABLE) {
+            headers.add(new HttpHeader("Content-Range", "bytes */" + content.size()));
+            return Response.Builder.like(response)
+                .but()
+                .status(416)
+                .headers(new HttpHeaders(headers))
+                .body(new byte[0])
+                .build();
+        }
+        if (range != null) {
+            headers.add(new HttpHeader("Content-Range", "bytes " + range[0] + "-" + (range[1] - 1) + "/" + content.size()));
+            headers.add(new HttpHeader("Content-Length", String.valueOf(range[1] - range[0])));
+        } else if (!chunked) {
+            headers.add(new HttpHeader("Content-Length", String.valueOf(content.size())));
+        }
+        if (digest != null) {
+            // waits for the background thread when this is the first request of the content
+            String hex = digest.join();
+            if (Boolean.parseBoolean(parameters.getString("corruptHash", "false"))) {
+                hex = corrupt(hex);
+            }
+            headers.add(new HttpHeader(hashHeader, hex));
+        }
+
+        if (range != null) {
+            long from = range[0];
+            long to = range[1];
+            return Response.Builder.like(response)
+                .but()
+                .status(206)
+                .headers(new HttpHeaders(headers))
+                .body(() -> content.stream(from, to))
+                .build();
+        }
+        return Response.Builder.like(response)
+            .but()
+            .headers(new HttpHeaders(headers))
+            .body(content)
+            .build();
+    }
+
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    private static SyntheticContent content(Parameters parameters) {
+        String size = parameters.getString("size", null);
+        if (size == null) {
+            throw new IllegalArgumentException("size is required");
+        }
+        return new SyntheticContent(
+            SyntheticContent.seedOf(parameters.getString("seed", size)),
+            SyntheticContent.parseSize(size),
+            SyntheticContent.parseSize(parameters.getString("bytesPerSecond", "0")));
+    }
+
+    /**
+     * @return the digest for the hash header, {@code null} when the header is switched off
+     */
+    private static CompletableFuture<String> digest(Parameters parameters, SyntheticContent content) {
+        if (!hashed(parameters)) {
+            return null;
+        }
+        String hash = parameters.getString("hash", null);
+        return hash != null ? CompletableFuture.completedFuture(hash) : content.digest(hashAlgorithm(parameters));
+    }
+
+    private static boolean hashed(Parameters parameters) {
+        return !"none".equalsIgnoreCase(parameters.getString("hashHeader", DEFAULT_HASH_HEADER));
+    }
+
+    private static String hashAlgorithm(Parameters parameters) {
+        return parameters.getString("hashAlgorithm", "SHA-256");
+    }
+
+    /**
+     * Parses a single byte range into {@code [from, to)}: {@code null} for no, an unsupported or an invalid
+     * range, which is answered with the whole content, {@link #UNSATISFIABLE} for one outside the content.
+     */
+    static long[] range(String header, long size) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // suffix range: the last N bytes
+                long length = Math.min(Long.parseLong(last), size);
+                return length <= 0 ? UNSATISFIABLE : new long[] {size - length, size};
+            }
+            long from = Long.parseLong(first);
+            if (!last.isEmpty() && Long.parseLong(last) < from) {
+                // last before first is invalid, and RFC 9110 has an invalid Range ignored
+                return null;
+            }
+            long to = last.isEmpty() ? size : Math.min(Long.parseLong(last) + 1, size);
+            return from >= size ? UNSATISFIABLE : new long[] {from, to};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String corrupt(String hexDigest) {
+        char last = hexDigest.charAt(hexDigest.length() - 1);
+        return hexDigest.substring(0, hexDigest.length() - 1) + (last == '0' ? '1' : '0');
+    }
+}
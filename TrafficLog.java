@@ -0,0 +1,144 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary format of captured HTTP traffic, written by {@link TrafficLogWriter} and read by {@link TrafficLogReader}.
+ * <p>
+ * A log starts with the magic {@code EWTL} and a format version, followed by records appended one after
+ * another. Each record is {@code int length, int crc32c, payload}, all big-endian; the payload is
+ * <pre>
+ * source        byte length + UTF-8   e.g. ewyrys-client, ewyrys-mock
+ * timestamp     long                  start of the exchange, microseconds since the epoch
+ * duration      int                   microseconds until the response arrived, -1 if unknown
+ * status        short                 HTTP status, 0 when no response was received
+ * method        byte length + UTF-8
+ * uri           int length + UTF-8    path and query, without scheme and host
+ * headers       short count, then per header: short length + UTF-8 name, int length + UTF-8 value
+ * body          int length + bytes    request body, possibly truncated by the writer
+ * </pre>
+ * A record whose length runs past the end of the file or whose checksum does not match marks a torn
+ * tail, e.g. after a crash; readers stop there.
+ */
+public final class TrafficLog {
+
+    static final int MAGIC = 0x4557544C;
+    static final short VERSION = 1;
+    static final int FILE_HEADER_BYTES = Integer.BYTES + Short.BYTES;
+    static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES;
+
+    private TrafficLog() {
+    }
+
+    public record Header(String name, String value) {
+
+        /**
+         * A header as it should be stored: credentials keep their scheme but not their value, so a replay
+         * against a mock still sends a well-formed header.
+         */
+        public static Header recorded(String name, String value) {
+            if (!"Authorization".equalsIgnoreCase(name) && !"Proxy-Authorization".equalsIgnoreCase(name)) {
+                return new Header(name, value);
+            }
+            int space = value == null ? -1 : value.indexOf(' ');
+            return new Header(name, space < 0 ? "REDACTED" : value.substring(0, space) + " REDACTED");
+        }
+    }
+
+    /**
+     * One captured exchange. {@code body} is a read-only buffer; records read from a log share it with
+     * the memory-mapped file.
+     */
+    public record Record(String source, long timestampMicros, int durationMicros, int status, String method,
+                         String uri, List<Header> headers, ByteBuffer body) {
+
+        public byte[] bodyBytes() {
+            byte[] bytes = new byte[body.remaining()];
+            body.duplicate().get(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * Encodes the record including its length and checksum, ready to be appended.
+     */
+    static ByteBuffer encode(Record record) {
+        byte[] source = utf8(record.source());
+        byte[] method = utf8(record.method());
+        byte[] uri = utf8(record.uri());
+        List<byte[]> headers = new ArrayList<>(record.headers().size() * 2);
+        int headerBytes = 0;
+        for (Header header : record.headers()) {
+            byte[] name = utf8(header.name());
+            byte[] value = utf8(header.value());
+            headers.add(name);
+            headers.add(value);
+            headerBytes += Short.BYTES + name.length + Integer.BYTES + value.length;
+        }
+        ByteBuffer body = record.body() == null ? ByteBuffer.allocate(0) : record.body().duplicate();
+        int payloadLength = 1 + source.length + Long.BYTES + Integer.BYTES + Short.BYTES + 1 + method.length
+            + Integer.BYTES + uri.length + Short.BYTES + headerBytes + Integer.BYTES + body.remaining();
+
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadLength);
+        buffer.putInt(payloadLength).putInt(0);
+        buffer.put((byte) source.length).put(source);
+        buffer.putLong(record.timestampMicros());
+        buffer.putInt(record.durationMicros());
+        buffer.putShort((short) record.status());
+        buffer.put((byte) method.length).put(method);
+        buffer.putInt(uri.length).put(uri);
+        buffer.putShort((short) record.headers().size());
+        for (int i = 0; i < headers.size(); i += 2) {
+            buffer.putShort((short) headers.get(i).length).put(headers.get(i));
+            buffer.putInt(headers.get(i + 1).length).put(headers.get(i + 1));
+        }
+        buffer.putInt(body.remaining()).put(body);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), RECORD_HEADER_BYTES, payloadLength);
+        buffer.putInt(Integer.BYTES, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    /**
+     * Decodes a payload without copying the body.
+     */
+    static Record decode(ByteBuffer payload) {
+        String source = string(payload, payload.get() & 0xFF);
+        long timestamp = payload.getLong();
+        int duration = payload.getInt();
+        int status = payload.getShort() & 0xFFFF;
+        String method = string(payload, payload.get() & 0xFF);
+        String uri = string(payload, payload.getInt());
+        int headerCount = payload.getShort() & 0xFFFF;
+        List<Header> headers = new ArrayList<>(headerCount);
+        for (int i = 0; i < headerCount; i++) {
+            String name = string(payload, payload.getShort() & 0xFFFF);
+            headers.add(new Header(name, string(payload, payload.getInt())));
+        }
+        int bodyLength = payload.getInt();
+        ByteBuffer body = payload.slice(payload.position(), bodyLength).asReadOnlyBuffer();
+        payload.position(payload.position() + bodyLength);
+        return new Record(source, timestamp, duration, status, method, uri, List.copyOf(headers), body);
+    }
+
+    static boolean checksumMatches(ByteBuffer payload, int expected) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == expected;
+    }
+
+    private static String string(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+}
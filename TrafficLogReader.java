@@ -0,0 +1,139 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams the records of a {@link TrafficLog} from a memory-mapped file.
+ * <p>
+ * The file is mapped in windows of {@code windowBytes} (or one record, if that is larger), moving on as
+ * records are consumed, so logs of any size are read without loading them onto the heap. Record bodies
+ * are views of the mapping and stay valid for as long as they are referenced. Reading stops at the end
+ * of the file or at the first torn or corrupt record.
+ */
+public class TrafficLogReader implements Closeable, Iterable<TrafficLog.Record> {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficLogReader.class);
+
+    static final long DEFAULT_WINDOW_BYTES = 256L * 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long size;
+    private final long windowBytes;
+
+    public TrafficLogReader(Path file) {
+        this(file, DEFAULT_WINDOW_BYTES);
+    }
+
+    TrafficLogReader(Path file, long windowBytes) {
+        this.file = file;
+        this.windowBytes = windowBytes;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, TrafficLog.FILE_HEADER_BYTES));
+            if (header.remaining() < TrafficLog.FILE_HEADER_BYTES || header.getInt() != TrafficLog.MAGIC
+                    || header.getShort() != TrafficLog.VERSION) {
+                channel.close();
+                throw new IllegalStateException(file + " is not a version " + TrafficLog.VERSION + " traffic log");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open traffic log " + file, e);
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * A new pass over the log, from its first record.
+     */
+    @Override
+    public Iterator<TrafficLog.Record> iterator() {
+        return new RecordIterator();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private final class RecordIterator implements Iterator<TrafficLog.Record> {
+        private long position = TrafficLog.FILE_HEADER_BYTES;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private TrafficLog.Record next;
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = readNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public TrafficLog.Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TrafficLog.Record record = next;
+            next = null;
+            return record;
+        }
+
+        private TrafficLog.Record readNext() {
+            if (size - position < TrafficLog.RECORD_HEADER_BYTES) {
+                if (position < size) {
+                    logger.warn("Traffic log {} ends with a torn record at offset {}", file, position);
+                }
+                return null;
+            }
+            ByteBuffer header = view(position, TrafficLog.RECORD_HEADER_BYTES);
+            int length = header.getInt();
+            int checksum = header.getInt();
+            long payloadStart = position + TrafficLog.RECORD_HEADER_BYTES;
+            if (length < 0 || payloadStart + length > size) {
+                logger.warn("Traffic log {} ends with a torn record at offset {}", file, position);
+                return null;
+            }
+            ByteBuffer payload = view(payloadStart, length);
+            if (!TrafficLog.checksumMatches(payload, checksum)) {
+                logger.warn("Traffic log {} has a corrupt record at offset {}, stopping there", file, position);
+                return null;
+            }
+            position = payloadStart + length;
+            return TrafficLog.decode(payload);
+        }
+
+        /**
+         * Returns {@code length} bytes at {@code offset}, remapping the window when they are not inside it.
+         */
+        private ByteBuffer view(long offset, int length) {
+            if (window == null || offset < windowStart || offset + length > windowStart + window.capacity()) {
+                long mapped = Math.min(size - offset, Math.max(windowBytes, length));
+                try {
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, offset, mapped);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Cannot map traffic log " + file + " at offset " + offset, e);
+                }
+                windowStart = offset;
+            }
+            return window.slice((int) (offset - windowStart), length);
+        }
+    }
+}
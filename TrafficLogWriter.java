@@ -0,0 +1,201 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Appends {@link TrafficLog} records to a file; safe for concurrent callers.
+ * <p>
+ * Records are encoded on the calling thread and only the write itself is serialized, so a record is
+ * never interleaved with another. Writes go to the page cache and are forced to disk on close. An
+ * existing log is appended to after its header is checked; a torn or corrupt tail, e.g. left by a crash,
+ * is cut off first, since readers stop there and would never reach records appended behind it. Bodies
+ * longer than {@code maxBodyBytes} are truncated; a failed write is logged and counted, never thrown at
+ * the caller. The part of the record it wrote is cut off again, so later records stay readable; if that
+ * fails too, the writer stops appending.
+ */
+public class TrafficLogWriter implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficLogWriter.class);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int maxBodyBytes;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // set when a failed record could not be cut off; anything appended behind it would be unreadable
+    private boolean broken;
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public TrafficLogWriter(Path file, int maxBodyBytes) {
+        this.file = file;
+        this.maxBodyBytes = maxBodyBytes;
+        try {
+            if (file.toAbsolutePath().getParent() != null) {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+            boolean existing = Files.exists(file) && Files.size(file) > 0;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                if (existing) {
+                    checkHeader(channel, file);
+                    long end = validEnd(channel);
+                    if (end < channel.size()) {
+                        logger.warn("Traffic log {} ends with {} bytes of a torn or corrupt record at offset {}, truncating it",
+                            file, channel.size() - end, end);
+                        channel.truncate(end);
+                    }
+                    channel.position(end);
+                } else {
+                    writeFully(ByteBuffer.allocate(TrafficLog.FILE_HEADER_BYTES)
+                        .putInt(TrafficLog.MAGIC).putShort(TrafficLog.VERSION).flip());
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open traffic log " + file, e);
+        }
+        logger.info("Recording traffic to {} (bodies up to {} bytes)", file.toAbsolutePath(), maxBodyBytes);
+    }
+
+    public void append(TrafficLog.Record record) {
+        ByteBuffer body = record.body();
+        if (body != null && body.remaining() > maxBodyBytes) {
+            body = body.duplicate().limit(body.position() + maxBodyBytes);
+            record = new TrafficLog.Record(record.source(), record.timestampMicros(), record.durationMicros(),
+                record.status(), record.method(), record.uri(), record.headers(), body);
+        }
+        ByteBuffer encoded = TrafficLog.encode(record);
+        int length = encoded.remaining();
+        writeLock.lock();
+        try {
+            if (broken) {
+                failures.increment();
+                return;
+            }
+            long start = channel.position();
+            try {
+                writeFully(encoded);
+                records.increment();
+                bytes.add(length);
+            } catch (IOException e) {
+                failures.increment();
+                logger.warn("Failed to append to traffic log {}", file, e);
+                discardFrom(start);
+            }
+        } catch (IOException e) {
+            failures.increment();
+            broken = true;
+            logger.error("Traffic log {} is unusable, no further records are appended", file, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void discardFrom(long start) {
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            broken = true;
+            logger.error("Cannot cut a partly written record off traffic log {} at offset {}, no further records are appended",
+                file, start, e);
+        }
+    }
+
+    public long records() {
+        return records.sum();
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+                logger.info("Traffic log {} closed with {} records ({} bytes)", file, records(), bytes());
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void checkHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(TrafficLog.FILE_HEADER_BYTES);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.remaining() < TrafficLog.FILE_HEADER_BYTES || header.getInt() != TrafficLog.MAGIC
+                || header.getShort() != TrafficLog.VERSION) {
+            throw new IllegalStateException(file + " exists and is not a version " + TrafficLog.VERSION + " traffic log");
+        }
+    }
+
+    /**
+     * Offset just past the last record that is complete and matches its checksum, checked the same way
+     * as {@link TrafficLogReader} does.
+     */
+    private static long validEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = TrafficLog.FILE_HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(TrafficLog.RECORD_HEADER_BYTES);
+        ByteBuffer payload = ByteBuffer.allocate(0);
+        while (size - position >= TrafficLog.RECORD_HEADER_BYTES) {
+            readFully(channel, header.clear(), position);
+            int length = header.flip().getInt();
+            int checksum = header.getInt();
+            long payloadStart = position + TrafficLog.RECORD_HEADER_BYTES;
+            if (length < 0 || payloadStart + length > size) {
+                break;
+            }
+            if (payload.capacity() < length) {
+                payload = ByteBuffer.allocate(length);
+            }
+            readFully(channel, payload.clear().limit(length), payloadStart);
+            if (!TrafficLog.checksumMatches(payload.flip(), checksum)) {
+                break;
+            }
+            position = payloadStart + length;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                return;
+            }
+            offset += read;
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
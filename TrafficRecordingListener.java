@@ -0,0 +1,78 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import pl.gov.coi.eunflowruadapterbe.config.integration.TrafficLog;
+import pl.gov.coi.eunflowruadapterbe.config.integration.TrafficLogWriter;
+
+/**
+ * Appends every request served by a mock server to a {@link TrafficLogWriter}, for replay against the
+ * client or the mocks with {@code TrafficReplayer}. WireMock reports times in milliseconds, so recorded
+ * timestamps and durations have that precision. Requests matching {@code excluded}, e.g. the mock's own
+ * warm-up traffic, are not recorded.
+ */
+public class TrafficRecordingListener implements ServeEventListener {
+
+    private final TrafficLogWriter trafficLog;
+    private final String source;
+    private final Predicate<LoggedRequest> excluded;
+
+    /**
+     * @param source stored with every record, e.g. {@code ewyrys-mock}
+     */
+    public TrafficRecordingListener(TrafficLogWriter trafficLog, String source) {
+        this(trafficLog, source, request -> false);
+    }
+
+    public TrafficRecordingListener(TrafficLogWriter trafficLog, String source, Predicate<LoggedRequest> excluded) {
+        this.trafficLog = trafficLog;
+        this.source = source;
+        this.excluded = excluded;
+    }
+
+    @Override
+    public String getName() {
+        return "traffic-recording";
+    }
+
+    @Override
+    public boolean applyGlobally() {
+        return true;
+    }
+
+    @Override
+    public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
+        LoggedRequest request = serveEvent.getRequest();
+        if (excluded.test(request)) {
+            return;
+        }
+        long timestampMillis = request.getLoggedDate() == null ? System.currentTimeMillis() : request.getLoggedDate().getTime();
+        Integer totalTime = serveEvent.getTiming() == null ? null : serveEvent.getTiming().getTotalTime();
+        List<TrafficLog.Header> headers = new ArrayList<>();
+        if (request.getHeaders() != null) {
+            for (HttpHeader header : request.getHeaders().all()) {
+                for (String value : header.values()) {
+                    headers.add(TrafficLog.Header.recorded(header.key(), value));
+                }
+            }
+        }
+        byte[] body = request.getBody();
+        trafficLog.append(new TrafficLog.Record(
+            source,
+            TimeUnit.MILLISECONDS.toMicros(timestampMillis),
+            totalTime == null ? -1 : (int) TimeUnit.MILLISECONDS.toMicros(totalTime),
+            serveEvent.getResponse() == null ? 0 : serveEvent.getResponse().getStatus(),
+            request.getMethod().getName(),
+            request.getUrl(),
+            headers,
+            ByteBuffer.wrap(body == null ? new byte[0] : body)));
+    }
+}
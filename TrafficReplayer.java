@@ -0,0 +1,263 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.invoker.ApiClient;
+
+/**
+ * Replays a {@link TrafficLog} against a {@link Target}: at the recorded pace, {@code speed} times
+ * faster, or as fast as possible ({@code speed <= 0}).
+ * <p>
+ * Paced replays send each record at its recorded offset from the first one, divided by the speed, without
+ * waiting for earlier responses; records that would exceed {@code maxInFlight} outstanding requests are
+ * dropped and counted rather than delayed. As-fast-as-possible replays keep {@code maxInFlight} requests
+ * outstanding. Records are streamed from the log, so the replay holds only the requests in flight.
+ */
+public class TrafficReplayer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficReplayer.class);
+
+    // set by the HTTP client itself
+    private static final Set<String> SKIPPED_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        SKIPPED_HEADERS.addAll(List.of(HttpHeaders.HOST, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONNECTION,
+            HttpHeaders.TRANSFER_ENCODING, HttpHeaders.EXPECT, HttpHeaders.UPGRADE, "Keep-Alive"));
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    /**
+     * Sends one recorded request and completes with the response status, {@code 0} if none was received.
+     */
+    @FunctionalInterface
+    public interface Target {
+        CompletableFuture<Integer> send(TrafficLog.Record record);
+    }
+
+    private final Target target;
+    private final double speed;
+    private final int maxInFlight;
+
+    public TrafficReplayer(Target target, double speed, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive, was " + maxInFlight);
+        }
+        this.target = target;
+        this.speed = speed;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Summary replay(Iterable<TrafficLog.Record> records, Predicate<TrafficLog.Record> filter) throws InterruptedException {
+        Semaphore permits = new Semaphore(maxInFlight);
+        LongAdder sent = new LongAdder();
+        LongAdder failed = new LongAdder();
+        LongAdder dropped = new LongAdder();
+        LongAdder mismatches = new LongAdder();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        long firstTimestamp = Long.MIN_VALUE;
+        for (TrafficLog.Record record : records) {
+            if (!filter.test(record)) {
+                continue;
+            }
+            if (speed > 0) {
+                if (firstTimestamp == Long.MIN_VALUE) {
+                    firstTimestamp = record.timestampMicros();
+                }
+                long offsetNanos = (long) (TimeUnit.MICROSECONDS.toNanos(record.timestampMicros() - firstTimestamp) / speed);
+                awaitNanoTime(start + offsetNanos);
+                if (!permits.tryAcquire()) {
+                    dropped.increment();
+                    continue;
+                }
+            } else {
+                permits.acquire();
+            }
+
+            sent.increment();
+            CompletableFuture<Integer> response;
+            try {
+                response = target.send(record);
+            } catch (RuntimeException e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((status, error) -> {
+                permits.release();
+                int actual = error == null && status != null ? status : 0;
+                if (actual == 0) {
+                    failed.increment();
+                    logger.debug("Replay of {} {} failed", record.method(), record.uri(), error);
+                    return;
+                }
+                statuses.computeIfAbsent(actual, s -> new LongAdder()).increment();
+                if (record.status() != 0 && record.status() != actual) {
+                    mismatches.increment();
+                }
+            });
+        }
+        // wait for the requests still in flight
+        permits.acquire(maxInFlight);
+        permits.release(maxInFlight);
+
+        Map<Integer, Long> counts = new TreeMap<>();
+        statuses.forEach((status, count) -> counts.put(status, count.sum()));
+        Summary summary = new Summary(sent.sum(), failed.sum(), dropped.sum(), mismatches.sum(), counts,
+            Duration.ofNanos(System.nanoTime() - start));
+        logger.info("Replayed {} requests in {} ({} failed, {} dropped, {} with a different status than recorded)",
+            summary.sent(), summary.elapsed(), summary.failed(), summary.dropped(), summary.statusMismatches());
+        return summary;
+    }
+
+    /**
+     * Sends the recorded requests as they are, to {@code baseUrl} followed by the recorded path and query.
+     */
+    public static Target http(URI baseUrl, Duration timeout) {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(timeout).build();
+        String base = baseUrl.toString().replaceAll("/+$", "");
+        return record -> {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + record.uri()))
+                .timeout(timeout)
+                .method(record.method(), record.body().hasRemaining()
+                    ? HttpRequest.BodyPublishers.ofByteArray(record.bodyBytes())
+                    : HttpRequest.BodyPublishers.noBody());
+            for (TrafficLog.Header header : record.headers()) {
+                if (!SKIPPED_HEADERS.contains(header.name())) {
+                    request.header(header.name(), header.value());
+                }
+            }
+            return client.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+        };
+    }
+
+    /**
+     * Sends the recorded requests through the client pipeline of {@code apiClient} (token, interceptors,
+     * connection engine), the way the generated API classes call it. {@code pathPrefix}, the part of the
+     * recorded path already contained in the client's base path (e.g. {@code /ewyrys-epuc/v1.0}), is cut
+     * off. The recorded {@code Authorization} header is replaced by the client's own token.
+     */
+    public static Target apiClient(ApiClient apiClient, String pathPrefix, Executor executor) {
+        return record -> CompletableFuture.supplyAsync(() -> invoke(apiClient, pathPrefix, record), executor);
+    }
+
+    private static int invoke(ApiClient apiClient, String pathPrefix, TrafficLog.Record record) {
+        UriComponents uri = UriComponentsBuilder.fromUriString(record.uri()).build();
+        String path = uri.getPath() == null ? "" : uri.getPath();
+        if (pathPrefix != null && path.startsWith(pathPrefix)) {
+            path = path.substring(pathPrefix.length());
+        }
+        MultiValueMap<String, String> query = decodedQuery(uri);
+
+        HttpHeaders headers = new HttpHeaders();
+        MediaType contentType = null;
+        List<MediaType> accept = List.of(MediaType.ALL);
+        for (TrafficLog.Header header : record.headers()) {
+            if (HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(header.name())) {
+                contentType = MediaType.parseMediaType(header.value());
+            } else if (HttpHeaders.ACCEPT.equalsIgnoreCase(header.name())) {
+                accept = MediaType.parseMediaTypes(header.value());
+            } else if (!SKIPPED_HEADERS.contains(header.name()) && !HttpHeaders.AUTHORIZATION.equalsIgnoreCase(header.name())) {
+                headers.add(header.name(), header.value());
+            }
+        }
+
+        Object body = body(record, contentType);
+        if (body instanceof byte[] && isJson(contentType)) {
+            // cut-off JSON would be written as a base64 string by the client's Jackson converter
+            contentType = MediaType.APPLICATION_OCTET_STREAM;
+        }
+        try {
+            return apiClient.invokeAPI(path, HttpMethod.valueOf(record.method()), Map.of(), query, body,
+                    headers, new LinkedMultiValueMap<>(), new LinkedMultiValueMap<>(), accept, contentType, new String[0],
+                    new ParameterizedTypeReference<Void>() { })
+                .toBodilessEntity()
+                .getStatusCode()
+                .value();
+        } catch (RestClientResponseException e) {
+            return e.getStatusCode().value();
+        }
+    }
+
+    /**
+     * The query parameters of a recorded URI, decoded, since {@code invokeAPI} encodes them again.
+     */
+    static MultiValueMap<String, String> decodedQuery(UriComponents uri) {
+        MultiValueMap<String, String> query = new LinkedMultiValueMap<>();
+        uri.getQueryParams().forEach((name, values) -> {
+            String decodedName = UriUtils.decode(name, StandardCharsets.UTF_8);
+            for (String value : values) {
+                query.add(decodedName, value == null ? null : UriUtils.decode(value, StandardCharsets.UTF_8));
+            }
+        });
+        return query;
+    }
+
+    /**
+     * JSON bodies are handed over as a tree, since the client's Jackson converter would write raw bytes
+     * as a base64 string; other bodies, and JSON that does not parse, go out as bytes.
+     */
+    private static Object body(TrafficLog.Record record, MediaType contentType) {
+        if (!record.body().hasRemaining()) {
+            return null;
+        }
+        byte[] bytes = record.bodyBytes();
+        if (isJson(contentType)) {
+            try {
+                return JSON.readTree(bytes);
+            } catch (IOException e) {
+                // truncated by the recorder, or invalid to begin with
+                return bytes;
+            }
+        }
+        return bytes;
+    }
+
+    private static boolean isJson(MediaType contentType) {
+        return contentType != null
+            && (MediaType.APPLICATION_JSON.isCompatibleWith(contentType) || contentType.getSubtype().endsWith("+json"));
+    }
+
+    private static void awaitNanoTime(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    public record Summary(long sent, long failed, long dropped, long statusMismatches, Map<Integer, Long> statuses,
+                          Duration elapsed) {
+    }
+}
@@ -0,0 +1,57 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.function.Supplier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientResponseException;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.api.ExtractEpucApi;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.model.CreateApplicationRequest;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.model.UpdateApplicationStatusRequest;
+
+/**
+ * Calls the generated {@link ExtractEpucApi#createApplicationWithHttpInfo} and
+ * {@link ExtractEpucApi#updateApplicationStatusWithHttpInfo} with request bodies kept as JSON templates, bound
+ * once with the client's object mapper. Every call reports the status the mock actually answered.
+ */
+final class ExtractEpucOperations {
+
+    private final ExtractEpucApi api;
+    private final ObjectMapper mapper = EwyrysApiClientConfiguration.createObjectMapper(false, false);
+
+    ExtractEpucOperations(ExtractEpucApi api) {
+        this.api = api;
+    }
+
+    CreateApplicationRequest createApplicationRequest(JsonNode body) {
+        return mapper.convertValue(body, CreateApplicationRequest.class);
+    }
+
+    UpdateApplicationStatusRequest updateApplicationStatusRequest(JsonNode body) {
+        return mapper.convertValue(body, UpdateApplicationStatusRequest.class);
+    }
+
+    /**
+     * @return the status of the response, successful or not
+     * @throws org.springframework.web.client.RestClientException when no response arrived
+     */
+    int createApplication(CreateApplicationRequest request) {
+        return status(() -> api.createApplicationWithHttpInfo(request));
+    }
+
+    /**
+     * @return the status of the response, successful or not
+     * @throws org.springframework.web.client.RestClientException when no response arrived
+     */
+    int updateApplicationStatus(String businessKey, UpdateApplicationStatusRequest request) {
+        return status(() -> api.updateApplicationStatusWithHttpInfo(businessKey, request));
+    }
+
+    private static int status(Supplier<ResponseEntity<?>> call) {
+        try {
+            return call.get().getStatusCode().value();
+        } catch (RestClientResponseException e) {
+            return e.getStatusCode().value();
+        }
+    }
+}
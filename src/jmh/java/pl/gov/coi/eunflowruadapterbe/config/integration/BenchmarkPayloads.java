@@ -0,0 +1,53 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Application-shaped payloads for the benchmarks. They mirror the structure of an Ewyrys
+ * create-application request without depending on the generated client model.
+ */
+final class BenchmarkPayloads {
+
+    private BenchmarkPayloads() {
+    }
+
+    static Application application(String businessKey, int attachments) {
+        List<Attachment> files = new ArrayList<>(attachments);
+        for (int i = 0; i < attachments; i++) {
+            files.add(new Attachment(
+                "attachment-" + i + ".pdf",
+                "application/pdf",
+                1024L * (i + 1),
+                "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a0" + (i % 10)));
+        }
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("channel", "eunflow");
+        metadata.put("language", "pl");
+        metadata.put("procedure", "EPUC");
+        return new Application(
+            businessKey,
+            "Jan Kowalski",
+            "ul. Przykładowa 1, 00-001 Warszawa",
+            OffsetDateTime.of(2024, 5, 14, 10, 15, 30, 0, ZoneOffset.ofHours(2)),
+            "SUBMITTED",
+            files,
+            metadata);
+    }
+
+    record Application(String businessKey,
+                       String applicantName,
+                       String applicantAddress,
+                       OffsetDateTime submittedAt,
+                       String status,
+                       List<Attachment> attachments,
+                       Map<String, String> metadata) {
+    }
+
+    record Attachment(String fileName, String mediaType, long size, String sha256) {
+    }
+}
@@ -0,0 +1,76 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import pl.gov.coi.eunflowruadapterbe.config.mock.EwyrysApiWireMockConfig;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.api.ExtractEpucApi;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.model.CreateApplicationRequest;
+
+/**
+ * Full round trip through {@link ExtractEpucApi} as wired by {@link EwyrysApiClientConfiguration} (token
+ * header, interceptors, request factory, Jackson) against an in-process {@link EwyrysApiWireMockConfig}
+ * server, including its OpenAPI validation. Both are started by {@link EwyrysInProcessContext}; client and
+ * mock properties can be changed with {@code -jvmArgs -Dewyrysapi...}.
+ * <p>
+ * Run with {@code -bm sample} (the default here) to get latency percentiles. The request body is read
+ * from {@code benchmark/create-application-request.json}; setup fails if the mock does not accept it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class EwyrysApiRoundTripBenchmark {
+
+    private AnnotationConfigApplicationContext context;
+    private ExtractEpucOperations operations;
+    private CreateApplicationRequest createApplicationRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = EwyrysInProcessContext.start(Map.of("ewyrysapi.logging.sample-rate", "0.01"));
+        operations = new ExtractEpucOperations(EwyrysInProcessContext.extractEpucApi(context));
+
+        try (InputStream in = new ClassPathResource("benchmark/create-application-request.json").getInputStream()) {
+            createApplicationRequest = operations.createApplicationRequest(new ObjectMapper().readTree(in));
+        }
+        int status = createApplication();
+        if (status < 200 || status >= 300) {
+            throw new IllegalStateException("Mock rejected the benchmark payload with " + status
+                + ", update benchmark/create-application-request.json to match the Ewyrys contract");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int createApplicationRoundTrip() {
+        return createApplication();
+    }
+
+    private int createApplication() {
+        return operations.createApplication(createApplicationRequest);
+    }
+}
@@ -0,0 +1,55 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ObjectMapper cost for typical application payloads: buffered ({@code byte[]}, what the interceptor
+ * chain receives) versus streamed to the output stream, with and without Blackbird.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EwyrysApiSerializationBenchmark {
+
+    @Param({"false", "true"})
+    public boolean blackbird;
+
+    @Param({"1", "100"})
+    public int attachments;
+
+    private ObjectMapper objectMapper;
+    private BenchmarkPayloads.Application payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = EwyrysApiClientConfiguration.createObjectMapper(true, blackbird);
+        payload = BenchmarkPayloads.application("businesskey-ok", attachments);
+    }
+
+    @Benchmark
+    public byte[] bufferedBody() throws IOException {
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public void streamedBody() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), payload);
+    }
+}
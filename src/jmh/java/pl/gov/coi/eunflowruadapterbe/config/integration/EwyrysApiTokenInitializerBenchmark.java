@@ -0,0 +1,83 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+
+/**
+ * The token {@code requestInitializer}: fetching a token per request (the simulated security service
+ * burns {@code fetchCost} JMH CPU tokens) versus reading it from {@link EwyrysAccessTokenCache}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class EwyrysApiTokenInitializerBenchmark {
+
+    @Param({"1000"})
+    public long fetchCost;
+
+    private String jwt;
+    private Supplier<String> securityService;
+    private EwyrysAccessTokenCache tokenCache;
+
+    @Setup
+    public void setUp() {
+        String claims = "{\"sub\":\"benchmark\",\"exp\":" + Instant.now().plus(Duration.ofHours(1)).getEpochSecond() + "}";
+        jwt = "eyJhbGciOiJIUzI1NiJ9."
+            + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8))
+            + ".c2lnbmF0dXJl";
+        securityService = () -> {
+            Blackhole.consumeCPU(fetchCost);
+            return jwt;
+        };
+        tokenCache = new EwyrysAccessTokenCache(securityService, Duration.ofSeconds(60), Duration.ofMinutes(5),
+            Duration.ofSeconds(1), new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        tokenCache.close();
+    }
+
+    @Benchmark
+    public MockClientHttpRequest uncachedInitializer() {
+        return initialize(securityService.get());
+    }
+
+    @Benchmark
+    public MockClientHttpRequest cachedInitializer() {
+        return initialize(tokenCache.getToken());
+    }
+
+    private static MockClientHttpRequest initialize(String token) {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("http://localhost/ewyrys-epuc/v1.0/application"));
+        request.getHeaders().add(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return request;
+    }
+}
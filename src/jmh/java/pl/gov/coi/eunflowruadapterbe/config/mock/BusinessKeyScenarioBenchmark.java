@@ -0,0 +1,81 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding the scenario of a request among {@code scenarios} business keys: one {@code matching(".*(key).*")}
+ * regex per stub tried in turn (the worst case, the key of the last stub) versus a catalogue lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BusinessKeyScenarioBenchmark {
+
+    @Param({"10", "1000"})
+    public int scenarios;
+
+    @Param({"256", "16384"})
+    public int bodySize;
+
+    private Pattern[] stubPatterns;
+    private BusinessKeyScenarioCatalogue catalogue;
+    private Request request;
+
+    @Setup
+    public void setUp() {
+        stubPatterns = new Pattern[scenarios];
+        catalogue = new BusinessKeyScenarioCatalogue("benchmark", "POST", "/application",
+            BusinessKeyScenarioCatalogue.KeySource.BODY, null);
+        for (int i = 0; i < scenarios; i++) {
+            stubPatterns[i] = Pattern.compile(".*(businesskey-" + i + ").*");
+            catalogue.scenario("businesskey-" + i, aResponse().withStatus(201));
+        }
+        StringBuilder body = new StringBuilder("{\"description\":\"");
+        while (body.length() < bodySize) {
+            body.append("lorem ipsum dolor sit amet ");
+        }
+        body.append("\",\"businessKey\":\"businesskey-").append(scenarios - 1).append("\"}");
+        request = ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost/application")
+            .withMethod(RequestMethod.POST)
+            .withBody(body.toString().getBytes(StandardCharsets.UTF_8))
+            .build();
+    }
+
+    @Benchmark
+    public int regexPerStub() {
+        String body = request.getBodyAsString();
+        for (int i = stubPatterns.length - 1; i >= 0; i--) {
+            if (stubPatterns[i].matcher(body).matches()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public Object catalogueLookup() {
+        return catalogue.find(catalogue.extractKey(request));
+    }
+}
@@ -0,0 +1,136 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.atlassian.oai.validator.model.SimpleRequest;
+import com.atlassian.oai.validator.model.SimpleResponse;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Allocation of the validation path in {@link EwyrysApiRequestResponseOpenApiValidationTransformer}.
+ * <p>
+ * {@code legacy*} rebuild the validator request and response the way the transformer originally did
+ * (every header copied, bodies decoded to Strings); {@code lean*} use the current builders. Compare
+ * {@code gc.alloc.rate.norm} with {@code -prof gc}. {@code transform} runs the whole path with the
+ * report cache disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EwyrysApiValidationTransformerBenchmark {
+
+    private static final String SPEC = "contract/ewyrys/rest/mrit-ru-eservices-be-api-extract-epuc-v1.0.yaml";
+
+    @Param({"1024", "65536"})
+    public int bodySize;
+
+    private EwyrysApiRequestResponseOpenApiValidationTransformer transformer;
+    private OpenApiRouteIndex.Route route;
+    private Request request;
+    private Response response;
+    private final com.atlassian.oai.validator.model.Request.Method method = com.atlassian.oai.validator.model.Request.Method.POST;
+
+    @Setup
+    public void setUp() {
+        transformer = new EwyrysApiRequestResponseOpenApiValidationTransformer(SPEC,
+            new OpenApiValidationReportCache(0, Duration.ZERO),
+            EwyrysApiRequestResponseOpenApiValidationTransformer.Mode.STRICT, 1.0, new OpenApiViolationStore(16));
+
+        request = ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost:8000/ewyrys-epuc/v1.0/application")
+            .withMethod(RequestMethod.POST)
+            .withHeaders(new HttpHeaders(
+                new HttpHeader("Content-Type", "application/json"),
+                new HttpHeader("Accept", "application/json"),
+                new HttpHeader("Authorization", "Bearer benchmark-token"),
+                new HttpHeader("User-Agent", "Java-http-client/17"),
+                new HttpHeader("X-Request-ID", "0b7e6c1e-8f0a-4e8a-9d3c-5a1f2b3c4d5e"),
+                new HttpHeader("Connection", "keep-alive")))
+            .withBody(jsonOfSize("businesskey-ok", bodySize))
+            .build();
+        route = transformer.getRouteIndex().match(method.name(), request.getUrl());
+
+        response = Response.response()
+            .status(409)
+            .headers(new HttpHeaders(
+                new HttpHeader("Content-Type", "application/json"),
+                new HttpHeader("Matched-Stub-Id", "6a3f4c1e-0000-0000-0000-000000000000"),
+                new HttpHeader("Vary", "Accept-Encoding, User-Agent")))
+            .body(jsonOfSize("conflict", bodySize))
+            .build();
+    }
+
+    @Benchmark
+    public Object legacyBuildRequest() {
+        SimpleRequest.Builder builder = new SimpleRequest.Builder(method, request.getUrl());
+        for (String name : request.getAllHeaderKeys()) {
+            HttpHeader header = request.header(name);
+            if (header != null && !header.values().isEmpty()) {
+                for (String value : header.values()) {
+                    builder.withHeader(name, value);
+                }
+            }
+        }
+        builder.withContentType(request.getHeader("Content-Type"));
+        builder.withBody(new String(request.getBody(), StandardCharsets.UTF_8));
+        return builder.build();
+    }
+
+    @Benchmark
+    public Object leanBuildRequest() {
+        return transformer.buildValidationRequest(route, request, method, request.getBody());
+    }
+
+    @Benchmark
+    public Object legacyBuildResponse() {
+        SimpleResponse.Builder builder = new SimpleResponse.Builder(response.getStatus());
+        for (HttpHeader h : response.getHeaders().all()) {
+            if (h != null && !h.values().isEmpty()) {
+                for (String v : h.values()) {
+                    builder.withHeader(h.key(), v);
+                }
+            }
+        }
+        builder.withBody(response.getBodyAsString());
+        return builder.build();
+    }
+
+    @Benchmark
+    public Object leanBuildResponse() {
+        return transformer.buildValidationResponse(route, response, response.getBody());
+    }
+
+    @Benchmark
+    public Response transform() {
+        return transformer.transform(request, response, null, null);
+    }
+
+    private static byte[] jsonOfSize(String businessKey, int size) {
+        StringBuilder json = new StringBuilder(size + 64)
+            .append("{\"businessKey\":\"").append(businessKey).append("\",\"description\":\"");
+        while (json.length() < size) {
+            json.append("lorem ipsum dolor sit amet ");
+        }
+        return json.append("\"}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+/**
+ * Cold startup cost of the mock servers. Single-shot, one measurement per fresh JVM, so every sample
+ * includes class loading and interpreted execution the way a test context start does.
+ * <ul>
+ *     <li>{@code compileSpec} / {@code compileSpecShared} - first and second validation transformer for the spec</li>
+ *     <li>{@code startSequential} / {@code startParallel} - a Spring context with both WireMock configs,
+ *     without {@link MockServerBootstrapConfig}, so the background beans start one after the other, and
+ *     with it, so they start in parallel on its executor</li>
+ * </ul>
+ * The servers are configured through Spring, as in the application, with random ports.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class MockServerStartupBenchmark {
+
+    private static final String SPEC = "contract/ewyrys/rest/mrit-ru-eservices-be-api-extract-epuc-v1.0.yaml";
+
+    private final List<AnnotationConfigApplicationContext> started = new ArrayList<>();
+
+    @TearDown(Level.Iteration)
+    public void stopServers() {
+        started.forEach(AnnotationConfigApplicationContext::close);
+        started.clear();
+    }
+
+    @Benchmark
+    public Object compileSpec() {
+        return new EwyrysApiRequestResponseOpenApiValidationTransformer(SPEC);
+    }
+
+    @Benchmark
+    public Object compileSpecShared(SharedSpec sharedSpec) {
+        return new EwyrysApiRequestResponseOpenApiValidationTransformer(SPEC);
+    }
+
+    @Benchmark
+    public void startSequential() {
+        started.add(start(EwyrysApiWireMockConfig.class, OsApiWireMockConfig.class));
+    }
+
+    @Benchmark
+    public void startParallel() {
+        started.add(start(MockServerBootstrapConfig.class, EwyrysApiWireMockConfig.class, OsApiWireMockConfig.class));
+    }
+
+    private static AnnotationConfigApplicationContext start(Class<?>... configurations) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        // system properties come first, so other mock settings can be passed with -jvmArgs -D...
+        context.getEnvironment().getPropertySources().addLast(new MapPropertySource("startup-benchmark",
+            Map.of("wiremock.ewyrys.port", "0", "wiremock.osapi.port", "0")));
+        context.register(configurations);
+        context.refresh();
+        return context;
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedSpec {
+
+        @Setup(Level.Trial)
+        public void compileOnce() {
+            new EwyrysApiRequestResponseOpenApiValidationTransformer(SPEC);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import com.atlassian.oai.validator.OpenApiInteractionValidator;
+import com.atlassian.oai.validator.model.Request;
+import com.atlassian.oai.validator.model.SimpleRequest;
+import com.atlassian.oai.validator.report.LevelResolver;
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Request validation against a synthetic spec of {@code operations} operations: one validator for the
+ * whole spec (path resolved by scanning every path) versus the route index and its per-operation validator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenApiRouteIndexBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int operations;
+
+    private OpenApiInteractionValidator wholeSpecValidator;
+    private OpenApiRouteIndex routeIndex;
+    private String lastUrl;
+    private String unmatchedUrl;
+
+    @Setup
+    public void setUp() {
+        StringBuilder yaml = new StringBuilder("""
+            openapi: 3.0.3
+            info: {title: synthetic, version: '1.0'}
+            servers: [{url: /api/v1.0}]
+            paths:
+            """);
+        for (int i = 0; i < operations; i++) {
+            yaml.append("  /resource-").append(i).append("/{id}:\n")
+                .append("    get:\n")
+                .append("      operationId: getResource").append(i).append('\n')
+                .append("      parameters: [{name: id, in: path, required: true, schema: {type: string}}]\n")
+                .append("      responses: {'200': {description: ok}}\n");
+        }
+        ParseOptions options = new ParseOptions();
+        options.setResolve(true);
+        OpenAPI api = new OpenAPIV3Parser().readContents(yaml.toString(), null, options).getOpenAPI();
+
+        wholeSpecValidator = OpenApiInteractionValidator.createFor(api).build();
+        routeIndex = new OpenApiRouteIndex(api, LevelResolver.create().build());
+        lastUrl = "/api/v1.0/resource-" + (operations - 1) + "/42";
+        unmatchedUrl = "/api/v1.0/unknown/42";
+    }
+
+    @Benchmark
+    public Object wholeSpecValidator() {
+        return wholeSpecValidator.validateRequest(SimpleRequest.Builder.get(lastUrl).build());
+    }
+
+    @Benchmark
+    public Object routeIndexValidator() {
+        OpenApiRouteIndex.Route route = routeIndex.match(Request.Method.GET.name(), lastUrl);
+        return route.validator().validateRequest(SimpleRequest.Builder.get(lastUrl).build());
+    }
+
+    @Benchmark
+    public Object wholeSpecValidatorUnmatched() {
+        return wholeSpecValidator.validateRequest(SimpleRequest.Builder.get(unmatchedUrl).build());
+    }
+
+    @Benchmark
+    public Object routeIndexUnmatched() {
+        return routeIndex.match(Request.Method.GET.name(), unmatchedUrl);
+    }
+}
@@ -0,0 +1,54 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class LoadSettingsTest {
+
+    private static long arrivalsWithin(LoadSettings.Stage stage) {
+        double seconds = stage.duration().toNanos() / 1e9;
+        long arrivals = 0;
+        while (stage.arrivalSeconds(arrivals) < seconds) {
+            arrivals++;
+        }
+        return arrivals;
+    }
+
+    @Test
+    void rampFromZeroProducesTheArrivalsOfTheRateIntegral() {
+        LoadSettings.Stage stage = LoadSettings.Stage.parse("2m@0->400");
+
+        // mean rate 200/s for 120 s
+        assertThat(arrivalsWithin(stage)).isEqualTo(24000);
+        assertThat(stage.arrivalSeconds(0)).isPositive();
+    }
+
+    @Test
+    void rampArrivalsGetCloserTogetherAsTheRateRises() {
+        LoadSettings.Stage stage = LoadSettings.Stage.parse("60s@20->400");
+
+        double early = stage.arrivalSeconds(101) - stage.arrivalSeconds(100);
+        double late = stage.arrivalSeconds(10001) - stage.arrivalSeconds(10000);
+
+        assertThat(late).isLessThan(early);
+        assertThat(arrivalsWithin(stage)).isEqualTo(12600);
+    }
+
+    @Test
+    void constantStageSpacesArrivalsByTheInverseRate() {
+        LoadSettings.Stage stage = LoadSettings.Stage.parse("30s@100");
+
+        assertThat(stage.arrivalSeconds(0)).isCloseTo(0.005, within(1e-9));
+        for (long arrival = 1; arrival < 3000; arrival += 499) {
+            assertThat(stage.arrivalSeconds(arrival) - stage.arrivalSeconds(arrival - 1)).isCloseTo(0.01, within(1e-9));
+        }
+        assertThat(arrivalsWithin(stage)).isEqualTo(3000);
+    }
+
+    @Test
+    void stageWithoutRateNeverArrives() {
+        assertThat(LoadSettings.Stage.parse("10s@0").arrivalSeconds(0)).isInfinite();
+    }
+}
@@ -0,0 +1,181 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import pl.gov.coi.eunflowruadapterbe.config.integration.LoadSettings.Scenario;
+import pl.gov.coi.eunflowruadapterbe.config.integration.OpenModelLoadGenerator.LoadOperation;
+import pl.gov.coi.eunflowruadapterbe.config.mock.EwyrysApiWireMockConfig;
+import pl.gov.coi.eunflowruadapterbe.config.mock.LatencyProfiles;
+import pl.gov.coi.eunflowruadapterbe.config.mock.OsApiWireMockConfig;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.api.ExtractEpucApi;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.model.CreateApplicationRequest;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.model.UpdateApplicationStatusRequest;
+
+/**
+ * Drives open-model load through {@link ExtractEpucApi}, built by {@link EwyrysApiClientConfiguration},
+ * against in-process {@link EwyrysApiWireMockConfig} and {@link OsApiWireMockConfig} servers.
+ * <p>
+ * The mocks and the client are wired by Spring exactly as in the application, on random ports, by
+ * {@link EwyrysInProcessContext}; only the access token is a fixed one. Client and mock properties can be
+ * overridden with {@code -D}. The scenario of each request is selected through its business key; for the
+ * {@code delay} scenario the harness adds its own business key to the Ewyrys scenario catalogues
+ * ({@code load/delay-*.json}) and latency rules for that key to the Ewyrys mock and for a harness header to the
+ * OsApi mock. The run fails (exit code 1) when the measured capacity is below {@code load.min-capacity}, see {@link LoadSettings} and {@link LoadReport}.
+ */
+public final class EwyrysLoadHarness {
+
+    private static final Logger logger = LoggerFactory.getLogger(EwyrysLoadHarness.class);
+
+    private static final String DELAY_HEADER = "X-Load-Delay";
+    private static final String DELAY_BUSINESS_KEY = "businesskey-load-delay";
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private EwyrysLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadSettings settings = LoadSettings.fromSystemProperties();
+        boolean passed;
+        try (AnnotationConfigApplicationContext context = EwyrysInProcessContext.start(Map.of(
+                // the delay key answers like businesskey-ok; the create catalogue only merges without the registry
+                "wiremock.ewyrys.scenario-catalogues",
+                "load/delay-create-application.json,load/delay-update-application-status.json",
+                "wiremock.ewyrys.registry.enabled", "false"))) {
+            WireMockServer osApi = EwyrysInProcessContext.osApiMock(context);
+            addDelayRules(EwyrysInProcessContext.ewyrysMock(context), settings.delay());
+            addLatencyRule(osApi, new LatencyProfiles.Rule("load-harness-delay", null, null,
+                new LatencyProfiles.HeaderCondition(DELAY_HEADER, "true"), LatencyProfiles.Latency.fixed(settings.delay().toMillis()), null));
+
+            List<LoadOperation> operations = operations(settings, EwyrysInProcessContext.extractEpucApi(context), osApi);
+            for (LoadOperation operation : operations) {
+                int status = operation.call().applyAsInt(Scenario.OK);
+                if (status < 200 || status >= 300) {
+                    throw new IllegalStateException("Mock answered " + status + " to the " + operation.name()
+                        + " probe, update the request templates in src/load/resources/load to match the contract");
+                }
+            }
+
+            Instant startedAt = Instant.now();
+            List<OpenModelLoadGenerator.StageResult> results = new OpenModelLoadGenerator(operations, settings).run();
+            LoadReport report = new LoadReport(settings, startedAt, results);
+            report.write(settings.report());
+            passed = report.passed();
+            logger.info("Load run finished: capacity {} requests/s (minimum {}), report written to {}",
+                report.capacity(), settings.minCapacity(), settings.report().toAbsolutePath());
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Delays the delay business key on the Ewyrys mock. The generated client sends no harness headers, so the
+     * create rule reads the key from the body and the update rule from the path.
+     */
+    private static void addDelayRules(WireMockServer ewyrys, Duration delay) throws IOException, InterruptedException {
+        String application = EwyrysInProcessContext.EWYRYS_PATH_PREFIX + "/application";
+        addLatencyRule(ewyrys, new LatencyProfiles.Rule("load-harness-create-application-delay", "POST", application, null,
+            new LatencyProfiles.BodyCondition("businessKey", DELAY_BUSINESS_KEY), LatencyProfiles.Latency.fixed(delay.toMillis()), null));
+        addLatencyRule(ewyrys, new LatencyProfiles.Rule("load-harness-update-application-status-delay", "PUT",
+            application + "/" + DELAY_BUSINESS_KEY, null, LatencyProfiles.Latency.fixed(delay.toMillis()), null));
+    }
+
+    private static void addLatencyRule(WireMockServer server, LatencyProfiles.Rule rule) throws IOException, InterruptedException {
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder()
+                .uri(URI.create(server.baseUrl() + "/__admin/latency-profiles"))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(JSON.writeValueAsString(rule)))
+                .build(),
+            HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IllegalStateException("Could not add latency rule " + rule.name() + " on port " + server.port()
+                + ": " + response.body());
+        }
+    }
+
+    private static List<LoadOperation> operations(LoadSettings settings, ExtractEpucApi api, WireMockServer osApi) throws IOException {
+        ExtractEpucOperations calls = new ExtractEpucOperations(api);
+        // bound once per scenario, so the load measures the client and not the template binding
+        Map<Scenario, CreateApplicationRequest> createRequests = new EnumMap<>(Scenario.class);
+        JsonNode createTemplate = template("load/create-application-request.json");
+        for (Scenario scenario : Scenario.values()) {
+            ObjectNode body = createTemplate.deepCopy();
+            body.put("businessKey", switch (scenario) {
+                case OK -> "businesskey-ok";
+                case DELAY -> DELAY_BUSINESS_KEY;
+                case CONFLICT -> "businesskey-conflict";
+                case SERVER_ERROR -> "businesskey-internal-server-error";
+            });
+            createRequests.put(scenario, calls.createApplicationRequest(body));
+        }
+        UpdateApplicationStatusRequest statusRequest = calls.updateApplicationStatusRequest(template("load/update-application-status-request.json"));
+        RestClient osApiClient = RestClient.create(osApi.baseUrl());
+
+        List<LoadOperation> operations = new ArrayList<>();
+        for (String name : settings.operations()) {
+            operations.add(switch (name) {
+                case "create-application" -> new LoadOperation(name, scenario ->
+                    calls.createApplication(createRequests.get(scenario)));
+                case "update-application-status" -> new LoadOperation(name, scenario ->
+                    calls.updateApplicationStatus(switch (scenario) {
+                        case OK -> "businesskey-ok";
+                        case DELAY -> DELAY_BUSINESS_KEY;
+                        case CONFLICT -> "businesskey-notfound";
+                        case SERVER_ERROR -> "businesskey-internal-server-error";
+                    }, statusRequest));
+                case "inside-download" -> new LoadOperation(name, scenario -> osApiClient.post()
+                    .uri("/api/v3.0.0/files/inside-download")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .headers(headers -> delayHeader(headers, scenario))
+                    .body(Map.of("reference", switch (scenario) {
+                        case OK, DELAY -> "reference-ok-xml";
+                        case CONFLICT -> "reference-not-found";
+                        case SERVER_ERROR -> "reference-server-error";
+                    }))
+                    .exchange((request, response) -> {
+                        try (InputStream in = response.getBody()) {
+                            in.transferTo(OutputStream.nullOutputStream());
+                        }
+                        return response.getStatusCode().value();
+                    }));
+                default -> throw new IllegalArgumentException("Unknown load operation '" + name
+                    + "', expected create-application, update-application-status or inside-download");
+            });
+        }
+        return operations;
+    }
+
+    private static void delayHeader(HttpHeaders headers, Scenario scenario) {
+        if (scenario == Scenario.DELAY) {
+            headers.set(DELAY_HEADER, "true");
+        }
+    }
+
+    private static JsonNode template(String location) throws IOException {
+        try (InputStream in = new ClassPathResource(location).getInputStream()) {
+            return JSON.readTree(in);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.HdrHistogram.Histogram;
+import pl.gov.coi.eunflowruadapterbe.config.integration.LoadSettings.Scenario;
+import pl.gov.coi.eunflowruadapterbe.config.integration.LoadSettings.Stage;
+import pl.gov.coi.eunflowruadapterbe.config.integration.OpenModelLoadGenerator.OperationResult;
+import pl.gov.coi.eunflowruadapterbe.config.integration.OpenModelLoadGenerator.StageResult;
+
+/**
+ * Machine-readable summary of a load run.
+ * <p>
+ * A stage passes when, over all operations together, its p99 response time is within the SLO and its
+ * error rate (unexpected statuses, failed and dropped calls) is within the limit. The capacity is the
+ * highest peak arrival rate among the passing stages that were preceded only by passing stages, so a
+ * ramp that breaks down halfway does not get credit for a later, lighter stage.
+ */
+final class LoadReport {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final double[] PERCENTILES = {50, 90, 95, 99, 99.9, 99.99};
+
+    private final Map<String, Object> document;
+    private final double capacity;
+    private final boolean passed;
+
+    LoadReport(LoadSettings settings, Instant startedAt, List<StageResult> results) {
+        List<Map<String, Object>> stages = new ArrayList<>();
+        Map<String, OperationResult> totals = new LinkedHashMap<>();
+        double capacity = 0;
+        boolean stillPassing = true;
+        for (int i = 0; i < results.size(); i++) {
+            StageResult result = results.get(i);
+            Stage stage = result.stage();
+            double seconds = stage.duration().toNanos() / 1e9;
+
+            Map<String, Object> operations = new LinkedHashMap<>();
+            OperationResult combined = null;
+            for (Map.Entry<String, OperationResult> operation : result.operations().entrySet()) {
+                operations.put(operation.getKey(), operation(operation.getValue(), seconds));
+                combined = add(combined, operation.getValue());
+                totals.merge(operation.getKey(), operation.getValue(), LoadReport::add);
+            }
+
+            double p99Ms = combined == null ? 0 : combined.responseTime().getValueAtPercentile(99) / 1000.0;
+            double errorRate = combined == null || combined.offered() == 0 ? 0 : combined.errors() / (double) combined.offered();
+            boolean stagePassed = combined != null && combined.offered() > 0
+                && p99Ms <= settings.sloP99().toNanos() / 1e6 && errorRate <= settings.maxErrorRate();
+            stillPassing &= stagePassed;
+            if (stillPassing) {
+                capacity = Math.max(capacity, stage.peakRate());
+            }
+
+            Map<String, Object> stageNode = new LinkedHashMap<>();
+            stageNode.put("index", i);
+            stageNode.put("durationSeconds", seconds);
+            stageNode.put("fromRate", stage.fromRate());
+            stageNode.put("toRate", stage.toRate());
+            stageNode.put("p99Ms", p99Ms);
+            stageNode.put("errorRate", errorRate);
+            stageNode.put("passed", stagePassed);
+            stageNode.put("operations", operations);
+            stages.add(stageNode);
+        }
+
+        double totalSeconds = settings.stages().stream().mapToLong(s -> s.duration().toNanos()).sum() / 1e9;
+        Map<String, Object> totalNode = new LinkedHashMap<>();
+        totals.forEach((name, result) -> totalNode.put(name, operation(result, totalSeconds)));
+
+        Map<String, Object> mix = new LinkedHashMap<>();
+        for (Map.Entry<Scenario, Integer> weight : settings.mix().entrySet()) {
+            mix.put(weight.getKey().id(), weight.getValue());
+        }
+        Map<String, Object> settingsNode = new LinkedHashMap<>();
+        settingsNode.put("mix", mix);
+        settingsNode.put("operations", settings.operations());
+        settingsNode.put("delayMs", settings.delay().toMillis());
+        settingsNode.put("maxInFlight", settings.maxInFlight());
+        settingsNode.put("sloP99Ms", settings.sloP99().toMillis());
+        settingsNode.put("maxErrorRate", settings.maxErrorRate());
+        settingsNode.put("minCapacity", settings.minCapacity());
+        settingsNode.put("seed", settings.seed());
+
+        this.capacity = capacity;
+        this.passed = capacity >= settings.minCapacity();
+        this.document = new LinkedHashMap<>();
+        document.put("startedAt", startedAt.toString());
+        document.put("settings", settingsNode);
+        document.put("capacity", capacity);
+        document.put("passed", passed);
+        document.put("stages", stages);
+        document.put("totals", totalNode);
+    }
+
+    double capacity() {
+        return capacity;
+    }
+
+    boolean passed() {
+        return passed;
+    }
+
+    void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        JSON.writeValue(path.toFile(), document);
+    }
+
+    private static Map<String, Object> operation(OperationResult result, double seconds) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("offered", result.offered());
+        node.put("completed", result.completed());
+        node.put("throughputPerSecond", seconds > 0 ? result.completed() / seconds : 0);
+        node.put("unexpected", result.unexpected());
+        node.put("failed", result.failed());
+        node.put("dropped", result.dropped());
+        node.put("statuses", result.statuses());
+        node.put("responseTimeMs", percentiles(result.responseTime()));
+        node.put("serviceTimeMs", percentiles(result.serviceTime()));
+        return node;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        if (histogram.getTotalCount() == 0) {
+            return node;
+        }
+        node.put("mean", histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            node.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile)),
+                histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        node.put("max", histogram.getMaxValue() / 1000.0);
+        return node;
+    }
+
+    private static OperationResult add(OperationResult a, OperationResult b) {
+        if (a == null) {
+            return b;
+        }
+        Histogram responseTime = a.responseTime().copy();
+        responseTime.add(b.responseTime());
+        Histogram serviceTime = a.serviceTime().copy();
+        serviceTime.add(b.serviceTime());
+        Map<Integer, Long> statuses = new TreeMap<>(a.statuses());
+        b.statuses().forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        return new OperationResult(a.offered() + b.offered(), a.completed() + b.completed(),
+            a.unexpected() + b.unexpected(), a.failed() + b.failed(), a.dropped() + b.dropped(),
+            statuses, responseTime, serviceTime);
+    }
+}
@@ -0,0 +1,178 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load harness settings, read from {@code -Dload.*} system properties.
+ *
+ * @param stages        arrival-rate profile, e.g. {@code 10s@20,60s@20->400,30s@400}
+ * @param mix           relative weight of each scenario, e.g. {@code ok=70,conflict=10,server-error=10,delay=10}
+ * @param operations    operations to drive, picked uniformly per request
+ * @param delay         latency the {@code delay} scenario adds on the mock side
+ * @param maxInFlight   outstanding calls above which new arrivals are dropped (and counted) instead of queued
+ * @param sloP99        response time a stage's p99 must stay under to count towards the capacity
+ * @param maxErrorRate  fraction of unexpected outcomes a stage may have to count towards the capacity
+ * @param minCapacity   the run fails when the measured capacity (requests per second) is lower
+ * @param seed          seed of the operation and scenario choice, so two runs send the same sequence
+ * @param report        where the JSON report is written
+ */
+record LoadSettings(List<Stage> stages,
+                    Map<Scenario, Integer> mix,
+                    List<String> operations,
+                    Duration delay,
+                    int maxInFlight,
+                    Duration sloP99,
+                    double maxErrorRate,
+                    double minCapacity,
+                    long seed,
+                    Path report) {
+
+    static LoadSettings fromSystemProperties() {
+        return new LoadSettings(
+            Stage.parseAll(property("load.stages", "10s@20,60s@20->400,30s@400")),
+            parseMix(property("load.mix", "ok=70,conflict=10,server-error=10,delay=10")),
+            List.of(property("load.operations", "create-application,update-application-status,inside-download").split("\\s*,\\s*")),
+            parseDuration(property("load.delay", "250ms")),
+            Integer.parseInt(property("load.max-in-flight", "2000")),
+            parseDuration(property("load.slo-p99", "500ms")),
+            Double.parseDouble(property("load.max-error-rate", "0.001")),
+            Double.parseDouble(property("load.min-capacity", "0")),
+            Long.parseLong(property("load.seed", "42")),
+            Path.of(property("load.report", "target/load-report.json")));
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    private static Map<Scenario, Integer> parseMix(String value) {
+        Map<Scenario, Integer> mix = new EnumMap<>(Scenario.class);
+        for (String entry : value.split("\\s*,\\s*")) {
+            int eq = entry.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Invalid load.mix entry '" + entry + "', expected scenario=weight");
+            }
+            int weight = Integer.parseInt(entry.substring(eq + 1).trim());
+            if (weight > 0) {
+                mix.put(Scenario.of(entry.substring(0, eq).trim()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no scenario with a positive weight");
+        }
+        return mix;
+    }
+
+    static Duration parseDuration(String value) {
+        String v = value.trim().toLowerCase(Locale.ROOT);
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        long amount = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (v.charAt(v.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Invalid duration '" + value + "', expected e.g. 250ms, 30s or 5m");
+        };
+    }
+
+    /**
+     * Outcome the mocks are asked for, through the business key of the request.
+     */
+    enum Scenario {
+        OK("ok"),
+        // the endpoint's business rejection: 409 for create-application, 404 for the others
+        CONFLICT("conflict"),
+        SERVER_ERROR("server-error"),
+        // a successful call slowed down by a harness latency rule on the mock
+        DELAY("delay");
+
+        private final String id;
+
+        Scenario(String id) {
+            this.id = id;
+        }
+
+        String id() {
+            return id;
+        }
+
+        boolean isExpected(int status) {
+            return switch (this) {
+                case OK, DELAY -> status >= 200 && status < 300;
+                case CONFLICT -> status >= 400 && status < 500;
+                case SERVER_ERROR -> status >= 500 && status < 600;
+            };
+        }
+
+        static Scenario of(String id) {
+            for (Scenario scenario : values()) {
+                if (scenario.id.equals(id)) {
+                    return scenario;
+                }
+            }
+            throw new IllegalArgumentException("Unknown load scenario '" + id + "', expected ok, conflict, server-error or delay");
+        }
+    }
+
+    /**
+     * One step of the arrival-rate profile; the rate moves linearly from {@code fromRate} to {@code toRate}.
+     */
+    record Stage(Duration duration, double fromRate, double toRate) {
+
+        static List<Stage> parseAll(String value) {
+            List<Stage> stages = new ArrayList<>();
+            for (String stage : value.split("\\s*,\\s*")) {
+                stages.add(parse(stage));
+            }
+            return List.copyOf(stages);
+        }
+
+        /**
+         * Parses {@code 30s@100} (constant rate) or {@code 2m@50->400} (ramp), rates in requests per second.
+         */
+        static Stage parse(String value) {
+            int at = value.indexOf('@');
+            if (at < 0) {
+                throw new IllegalArgumentException("Invalid load stage '" + value + "', expected e.g. 30s@100 or 2m@50->400");
+            }
+            Duration duration = parseDuration(value.substring(0, at));
+            String rates = value.substring(at + 1);
+            int arrow = rates.indexOf("->");
+            double from = Double.parseDouble(arrow < 0 ? rates : rates.substring(0, arrow));
+            double to = arrow < 0 ? from : Double.parseDouble(rates.substring(arrow + 2));
+            return new Stage(duration, from, to);
+        }
+
+        /**
+         * Seconds from the start of the stage to arrival number {@code arrival} (from 0): the time at which a
+         * linear ramp has produced {@code arrival + 0.5} arrivals, i.e. the middle of that arrival's share of
+         * the rate integral. Infinite when the stage never gets there.
+         */
+        double arrivalSeconds(long arrival) {
+            double seconds = duration.toNanos() / 1e9;
+            double count = arrival + 0.5;
+            // arrivals by time t: fromRate * t + slope * t^2
+            double slope = seconds > 0 ? (toRate - fromRate) / (2 * seconds) : 0;
+            double discriminant = fromRate * fromRate + 4 * slope * count;
+            if (discriminant < 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double denominator = fromRate + Math.sqrt(discriminant);
+            // the root of slope * t^2 + fromRate * t - count, in a form that also holds for slope 0
+            return denominator > 0 ? 2 * count / denominator : Double.POSITIVE_INFINITY;
+        }
+
+        double peakRate() {
+            return Math.max(fromRate, toRate);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ToIntFunction;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pl.gov.coi.eunflowruadapterbe.config.integration.LoadSettings.Scenario;
+import pl.gov.coi.eunflowruadapterbe.config.integration.LoadSettings.Stage;
+
+/**
+ * Open-model load generator: requests start on a fixed schedule derived from the arrival rate, whether
+ * or not earlier ones have completed.
+ * <p>
+ * Each request has an intended start time, and its response time is measured from that time rather than
+ * from when a thread got round to sending it, so a stalled server shows up as latency instead of as a
+ * lower request rate (no coordinated omission). The time spent inside the call alone is recorded
+ * separately as service time. Requests are attributed to the stage of their intended start.
+ * Arrivals that would exceed {@code maxInFlight} outstanding calls are dropped and counted.
+ */
+final class OpenModelLoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenModelLoadGenerator.class);
+
+    // response times are recorded in microseconds, up to an hour
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final List<LoadOperation> operations;
+    private final LoadSettings settings;
+    private final Scenario[] scenarios;
+    private final int[] cumulativeWeights;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OpenModelLoadGenerator(List<LoadOperation> operations, LoadSettings settings) {
+        this.operations = List.copyOf(operations);
+        this.settings = settings;
+        this.scenarios = settings.mix().keySet().toArray(new Scenario[0]);
+        this.cumulativeWeights = new int[scenarios.length];
+        int total = 0;
+        for (int i = 0; i < scenarios.length; i++) {
+            total += settings.mix().get(scenarios[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    List<StageResult> run() throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(settings.seed());
+        List<Stage> stages = settings.stages();
+        List<StageStatistics> statistics = new ArrayList<>(stages.size());
+        for (int i = 0; i < stages.size(); i++) {
+            statistics.add(new StageStatistics(operations));
+        }
+
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "load-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            long stageStart = System.nanoTime();
+            for (int s = 0; s < stages.size(); s++) {
+                Stage stage = stages.get(s);
+                StageStatistics stageStatistics = statistics.get(s);
+                long durationNanos = stage.duration().toNanos();
+                long stageEnd = stageStart + durationNanos;
+                logger.info("Load stage {}: {} at {} -> {} requests/s", s, stage.duration(), stage.fromRate(), stage.toRate());
+
+                // arrival times follow the integral of the rate, so a ramp from zero gets going at once
+                for (long arrival = 0; ; arrival++) {
+                    double offsetNanos = stage.arrivalSeconds(arrival) * TimeUnit.SECONDS.toNanos(1);
+                    if (!(offsetNanos < durationNanos)) {
+                        break;
+                    }
+                    long intendedStart = stageStart + (long) offsetNanos;
+                    awaitNanoTime(intendedStart);
+                    LoadOperation operation = operations.get(random.nextInt(operations.size()));
+                    Scenario scenario = pickScenario(random);
+                    dispatch(executor, stageStatistics.of(operation), operation, scenario, intendedStart);
+                }
+                stageStart = stageEnd;
+            }
+        } finally {
+            executor.shutdown();
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("{} load requests still in flight after one minute, reporting without them", inFlight.get());
+            }
+        }
+
+        List<StageResult> results = new ArrayList<>(stages.size());
+        for (int s = 0; s < stages.size(); s++) {
+            results.add(statistics.get(s).result(stages.get(s)));
+        }
+        return results;
+    }
+
+    private void dispatch(ExecutorService executor, OperationStatistics statistics, LoadOperation operation,
+                          Scenario scenario, long intendedStart) {
+        statistics.offered.increment();
+        if (inFlight.incrementAndGet() > settings.maxInFlight()) {
+            // queueing here would slow the arrival rate down, which is exactly what an open model must not do
+            inFlight.decrementAndGet();
+            statistics.dropped.increment();
+            return;
+        }
+        executor.execute(() -> {
+            long started = System.nanoTime();
+            int status;
+            try {
+                status = operation.call().applyAsInt(scenario);
+            } catch (RuntimeException e) {
+                logger.debug("Load request {} ({}) failed", operation.name(), scenario.id(), e);
+                status = 0;
+            }
+            long finished = System.nanoTime();
+            inFlight.decrementAndGet();
+            statistics.record(scenario, status, finished - intendedStart, finished - started);
+        });
+    }
+
+    private Scenario pickScenario(SplittableRandom random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return scenarios[i];
+            }
+        }
+        return scenarios[scenarios.length - 1];
+    }
+
+    private static void awaitNanoTime(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    /**
+     * One operation the harness can drive.
+     *
+     * @param call sends the request for the given scenario and returns the HTTP status, {@code 0} when no response arrived
+     */
+    record LoadOperation(String name, ToIntFunction<Scenario> call) {
+    }
+
+    record StageResult(Stage stage, Map<String, OperationResult> operations) {
+    }
+
+    /**
+     * @param responseTime microseconds from the intended start to completion
+     * @param serviceTime  microseconds spent inside the call
+     * @param unexpected   responses whose status does not match the requested scenario
+     * @param failed       calls that got no HTTP response at all
+     */
+    record OperationResult(long offered, long completed, long unexpected, long failed, long dropped,
+                           Map<Integer, Long> statuses, Histogram responseTime, Histogram serviceTime) {
+
+        long errors() {
+            return unexpected + failed + dropped;
+        }
+    }
+
+    private static final class StageStatistics {
+        // filled before the run starts and only read afterwards
+        private final Map<String, OperationStatistics> operations = new LinkedHashMap<>();
+
+        private StageStatistics(List<LoadOperation> operations) {
+            for (LoadOperation operation : operations) {
+                this.operations.put(operation.name(), new OperationStatistics());
+            }
+        }
+
+        private OperationStatistics of(LoadOperation operation) {
+            return operations.get(operation.name());
+        }
+
+        private StageResult result(Stage stage) {
+            Map<String, OperationResult> results = new LinkedHashMap<>();
+            operations.forEach((name, statistics) -> results.put(name, statistics.result()));
+            return new StageResult(stage, results);
+        }
+    }
+
+    private static final class OperationStatistics {
+        private final Recorder responseTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final LongAdder offered = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder unexpected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        private void record(Scenario scenario, int status, long responseNanos, long serviceNanos) {
+            responseTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(responseNanos)));
+            serviceTime.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(serviceNanos)));
+            completed.increment();
+            if (status == 0) {
+                failed.increment();
+            } else {
+                statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                if (!scenario.isExpected(status)) {
+                    unexpected.increment();
+                }
+            }
+        }
+
+        private OperationResult result() {
+            Map<Integer, Long> counts = new TreeMap<>();
+            statuses.forEach((status, count) -> counts.put(status, count.sum()));
+            return new OperationResult(offered.sum(), completed.sum(), unexpected.sum(), failed.sum(), dropped.sum(),
+                counts, responseTime.getIntervalHistogram(), serviceTime.getIntervalHistogram());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import pl.gov.coi.eunflowruadapterbe.ewyrys.client.invoker.ApiClient;
+
+/**
+ * Replays a traffic log recorded by the client or the mocks, see {@link TrafficReplayer}. Settings are
+ * system properties:
+ * <pre>
+ * replay.file           the log (required)
+ * replay.target         client (default): Ewyrys requests through ExtractEpucApi's client, the rest over
+ *                       HTTP, against in-process mocks started by {@link EwyrysInProcessContext};
+ *                       or a base URL the requests are sent to as recorded
+ * replay.speed          1 = recorded pace, 10 = ten times faster, 0 = as fast as possible (default 1)
+ * replay.max-in-flight  outstanding requests (default 256)
+ * replay.source         only replay records of this source, e.g. ewyrys-client (default: all)
+ * </pre>
+ * Exits with status 1 when any request failed without a response.
+ */
+public final class TrafficReplay {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficReplay.class);
+
+    private static final Duration HTTP_TIMEOUT = Duration.ofSeconds(30);
+
+    private TrafficReplay() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String file = System.getProperty("replay.file");
+        if (file == null || file.isBlank()) {
+            throw new IllegalArgumentException("Set -Dreplay.file to the traffic log to replay");
+        }
+        String target = System.getProperty("replay.target", "client");
+        double speed = Double.parseDouble(System.getProperty("replay.speed", "1"));
+        int maxInFlight = Integer.getInteger("replay.max-in-flight", 256);
+        String source = System.getProperty("replay.source", "");
+        Predicate<TrafficLog.Record> filter = source.isBlank() ? record -> true : record -> source.equals(record.source());
+
+        TrafficReplayer.Summary summary;
+        try (TrafficLogReader log = new TrafficLogReader(Path.of(file))) {
+            logger.info("Replaying {} ({} bytes) against {} at {}", file, log.size(), target,
+                speed > 0 ? speed + "x" : "full speed");
+            if ("client".equals(target)) {
+                summary = replayThroughClient(log, filter, speed, maxInFlight);
+            } else {
+                summary = new TrafficReplayer(TrafficReplayer.http(URI.create(target), HTTP_TIMEOUT), speed, maxInFlight)
+                    .replay(log, filter);
+            }
+        }
+        logger.info("Statuses: {}", summary.statuses());
+        if (summary.failed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static TrafficReplayer.Summary replayThroughClient(TrafficLogReader log, Predicate<TrafficLog.Record> filter,
+                                                               double speed, int maxInFlight) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(maxInFlight);
+        try (AnnotationConfigApplicationContext context = EwyrysInProcessContext.start(Map.of())) {
+            WireMockServer osApi = EwyrysInProcessContext.osApiMock(context);
+            ApiClient apiClient = context.getBean("ewyrysApiClient", ApiClient.class);
+
+            TrafficReplayer.Target ewyrysTarget = TrafficReplayer.apiClient(apiClient,
+                EwyrysInProcessContext.EWYRYS_PATH_PREFIX, executor);
+            TrafficReplayer.Target osApiTarget = TrafficReplayer.http(URI.create(osApi.baseUrl()), HTTP_TIMEOUT);
+            TrafficReplayer.Target routed = record -> record.uri().startsWith(EwyrysInProcessContext.EWYRYS_PATH_PREFIX)
+                ? ewyrysTarget.send(record)
+                : osApiTarget.send(record);
+            return new TrafficReplayer(routed, speed, maxInFlight).replay(log, filter);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
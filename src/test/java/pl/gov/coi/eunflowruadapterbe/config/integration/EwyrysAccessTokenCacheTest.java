@@ -0,0 +1,208 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.Test;
+
+class EwyrysAccessTokenCacheTest {
+
+    private static final Duration BACKOFF = Duration.ofSeconds(1);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-01-01T00:00:00Z"));
+    private final AtomicInteger fetches = new AtomicInteger();
+
+    private EwyrysAccessTokenCache cache(Supplier<String> supplier, Duration refreshAhead, Duration defaultTtl) {
+        return new EwyrysAccessTokenCache(() -> {
+            fetches.incrementAndGet();
+            return supplier.get();
+        }, refreshAhead, defaultTtl, BACKOFF, new SimpleMeterRegistry(), clock);
+    }
+
+    private static String jwt(Instant expiresAt) {
+        String claims = "{\"sub\":\"test\",\"exp\":" + expiresAt.getEpochSecond() + "}";
+        return "eyJhbGciOiJIUzI1NiJ9."
+            + Base64.getUrlEncoder().withoutPadding().encodeToString(claims.getBytes(StandardCharsets.UTF_8))
+            + ".c2lnbmF0dXJl";
+    }
+
+    private final List<Thread> callerThreads = new CopyOnWriteArrayList<>();
+
+    private ExecutorService callers(int count) {
+        return Executors.newFixedThreadPool(count, task -> {
+            Thread thread = new Thread(task);
+            callerThreads.add(thread);
+            return thread;
+        });
+    }
+
+    private List<Future<String>> callConcurrently(EwyrysAccessTokenCache cache, int callers, ExecutorService executor) {
+        List<Future<String>> calls = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            calls.add(executor.submit(cache::getToken));
+        }
+        // every caller queues up behind the fetch in progress, which itself waits for the release
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (callerThreads.size() < callers || !callerThreads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            assertThat(System.nanoTime() - deadline).as("callers waiting for the fetch").isNegative();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return calls;
+    }
+
+    @Test
+    void waitersTakeTheTokenJustFetchedEvenWhenItIsAlreadyExpired() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        String expired = jwt(clock.instant().minusSeconds(10));
+        ExecutorService executor = callers(4);
+        try (EwyrysAccessTokenCache cache = cache(() -> {
+            await(release);
+            return expired;
+        }, Duration.ofSeconds(60), Duration.ofMinutes(5))) {
+            List<Future<String>> calls = callConcurrently(cache, 4, executor);
+            release.countDown();
+
+            for (Future<String> call : calls) {
+                assertThat(call.get(5, TimeUnit.SECONDS)).isEqualTo(expired);
+            }
+            assertThat(fetches.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void waitersShareTheFailureOfTheFetchTheyWaitedFor() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = callers(4);
+        try (EwyrysAccessTokenCache cache = cache(() -> {
+            await(release);
+            throw new IllegalStateException("token endpoint unavailable");
+        }, Duration.ofSeconds(60), Duration.ofMinutes(5))) {
+            List<Future<String>> calls = callConcurrently(cache, 4, executor);
+            release.countDown();
+
+            for (Future<String> call : calls) {
+                assertThatThrownBy(() -> call.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+            }
+            assertThat(fetches.get()).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void backsOffAfterFailuresAndDoublesTheWait() {
+        try (EwyrysAccessTokenCache cache = cache(() -> {
+            throw new IllegalStateException("token endpoint unavailable");
+        }, Duration.ofSeconds(60), Duration.ofMinutes(5))) {
+            assertThatThrownBy(cache::getToken).isInstanceOf(IllegalStateException.class);
+            assertThatThrownBy(cache::getToken).isInstanceOf(IllegalStateException.class);
+            assertThat(fetches.get()).isEqualTo(1);
+
+            clock.advance(BACKOFF);
+            assertThatThrownBy(cache::getToken).isInstanceOf(IllegalStateException.class);
+            assertThat(fetches.get()).isEqualTo(2);
+
+            clock.advance(BACKOFF);
+            assertThatThrownBy(cache::getToken).isInstanceOf(IllegalStateException.class);
+            assertThat(fetches.get()).isEqualTo(2);
+
+            clock.advance(BACKOFF);
+            assertThatThrownBy(cache::getToken).isInstanceOf(IllegalStateException.class);
+            assertThat(fetches.get()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void fetchesAgainOnceTheBackoffIsOver() {
+        AtomicInteger calls = new AtomicInteger();
+        try (EwyrysAccessTokenCache cache = cache(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("token endpoint unavailable");
+            }
+            return "opaque-token";
+        }, Duration.ofSeconds(60), Duration.ofMinutes(5))) {
+            assertThatThrownBy(cache::getToken).isInstanceOf(IllegalStateException.class);
+            clock.advance(BACKOFF);
+
+            assertThat(cache.getToken()).isEqualTo("opaque-token");
+            assertThat(cache.getToken()).isEqualTo("opaque-token");
+            assertThat(fetches.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void renewsAheadOfExpiryOnlyWhileTheTokenIsUsed() throws Exception {
+        AtomicInteger issued = new AtomicInteger();
+        try (EwyrysAccessTokenCache cache = cache(() -> "opaque-token-" + issued.incrementAndGet(),
+            Duration.ofMillis(100), Duration.ofMillis(200))) {
+            assertThat(cache.getToken()).isEqualTo("opaque-token-1");
+            // past the refresh point of the first token before its scheduled refresh fires
+            clock.advance(Duration.ofMillis(150));
+            cache.awaitScheduledRefresh(5, TimeUnit.SECONDS);
+            assertThat(fetches.get()).isEqualTo(2);
+
+            // the second token is never used, so it is not renewed when its refresh point comes
+            clock.advance(Duration.ofMillis(150));
+            cache.awaitScheduledRefresh(5, TimeUnit.SECONDS);
+            assertThat(fetches.get()).isEqualTo(2);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
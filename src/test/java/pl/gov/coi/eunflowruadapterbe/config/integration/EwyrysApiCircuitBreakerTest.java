@@ -0,0 +1,116 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import pl.gov.coi.eunflowruadapterbe.config.integration.EwyrysApiCircuitBreaker.Permission;
+import pl.gov.coi.eunflowruadapterbe.config.integration.EwyrysApiCircuitBreaker.State;
+
+class EwyrysApiCircuitBreakerTest {
+
+    private static EwyrysApiCircuitBreaker breaker(Duration openDuration, int halfOpenCalls) {
+        return new EwyrysApiCircuitBreaker(50, 4, 2, openDuration, halfOpenCalls);
+    }
+
+    private static void fail(EwyrysApiCircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onResult(breaker.tryAcquirePermission(), true);
+        }
+    }
+
+    @Test
+    void opensAtTheFailureRateAndRejectsWhileOpen() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ofHours(1), 1);
+
+        breaker.onResult(breaker.tryAcquirePermission(), false);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        fail(breaker, 1);
+
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+    }
+
+    @Test
+    void callsWhileClosedShareOnePermission() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ofHours(1), 1);
+
+        assertThat(breaker.tryAcquirePermission()).isSameAs(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void closingStartsAnEmptyWindow() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ZERO, 1);
+        fail(breaker, 2);
+        breaker.onResult(breaker.tryAcquirePermission(), false);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+        // one failure is below the minimum number of calls of the new window
+        fail(breaker, 1);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void closesWhenAllTrialCallsSucceed() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ZERO, 2);
+        fail(breaker, 2);
+
+        Permission first = breaker.tryAcquirePermission();
+        Permission second = breaker.tryAcquirePermission();
+        assertThat(first.state()).isEqualTo(State.HALF_OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+
+        breaker.onResult(first, false);
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        breaker.onResult(second, false);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void callAdmittedWhileClosedIsNotTakenForATrial() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ZERO, 1);
+        Permission admittedWhileClosed = breaker.tryAcquirePermission();
+        fail(breaker, 2);
+        Permission trial = breaker.tryAcquirePermission();
+        assertThat(trial.state()).isEqualTo(State.HALF_OPEN);
+
+        breaker.onResult(admittedWhileClosed, false);
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        breaker.onResult(admittedWhileClosed, true);
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+
+        breaker.onResult(trial, false);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void trialOfAnEarlierHalfOpenPeriodIsIgnored() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ZERO, 2);
+        fail(breaker, 2);
+        Permission failing = breaker.tryAcquirePermission();
+        Permission late = breaker.tryAcquirePermission();
+        breaker.onResult(failing, true);
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+
+        Permission current = breaker.tryAcquirePermission();
+        breaker.onResult(late, false);
+        breaker.onResult(current, false);
+
+        // the late success belonged to the previous period, one more trial is still needed
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        breaker.onResult(breaker.tryAcquirePermission(), false);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+    }
+
+    @Test
+    void releasedTrialPermissionCanBeGrantedAgain() {
+        EwyrysApiCircuitBreaker breaker = breaker(Duration.ZERO, 1);
+        fail(breaker, 2);
+
+        Permission unused = breaker.tryAcquirePermission();
+        assertThat(breaker.tryAcquirePermission()).isNull();
+        breaker.releasePermission(unused);
+
+        assertThat(breaker.tryAcquirePermission()).isNotNull();
+    }
+}
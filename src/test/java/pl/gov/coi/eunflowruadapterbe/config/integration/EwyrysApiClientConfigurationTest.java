@@ -0,0 +1,52 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.ApplicationContext;
+import pl.gov.coi.eunflowruadapterbe.service.EwyrysApiSecurityService;
+
+class EwyrysApiClientConfigurationTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+        .withUserConfiguration(EwyrysApiClientConfiguration.class)
+        .withBean(EwyrysApiSecurityService.class, () -> Mockito.mock(EwyrysApiSecurityService.class))
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+        .withPropertyValues(
+            "ewyrysapi.base-url=http://localhost:8080",
+            "ewyrysapi.connect-timeout-in-seconds=5",
+            "ewyrysapi.read-timeout-in-seconds=30",
+            "ewyrysapi.pool.enabled=true",
+            "ewyrysapi.resilience.enabled=true",
+            "ewyrysapi.dedup.enabled=true",
+            "ewyrysapi.status-write-behind.enabled=true");
+
+    private static List<String> clientMeters(ApplicationContext context) {
+        return context.getBean(MeterRegistry.class).getMeters().stream()
+            .map(meter -> meter.getId().getName())
+            .filter(name -> name.startsWith("ewyrys.client."))
+            .toList();
+    }
+
+    @Test
+    void registersTheClientMetersWhenMetricsAreEnabled() {
+        contextRunner.run(context -> assertThat(clientMeters(context)).contains(
+            "ewyrys.client.token.fetch",
+            "ewyrys.client.pool.leased",
+            "ewyrys.client.resilience.limit"));
+    }
+
+    @Test
+    void registersNoClientMeterWhenMetricsAreDisabled() {
+        contextRunner.withPropertyValues("ewyrysapi.metrics.enabled=false")
+            .run(context -> {
+                assertThat(context).hasNotFailed();
+                assertThat(clientMeters(context)).isEmpty();
+            });
+    }
+}
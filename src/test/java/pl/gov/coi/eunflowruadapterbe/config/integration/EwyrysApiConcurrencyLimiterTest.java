@@ -0,0 +1,95 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class EwyrysApiConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(1).toNanos();
+    private static final long SLOW = Duration.ofSeconds(5).toNanos();
+
+    private static EwyrysApiConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        return new EwyrysApiConcurrencyLimiter(initialLimit, minLimit, maxLimit, Duration.ofSeconds(1), backoffRatio);
+    }
+
+    @Test
+    void rejectsOnceTheLimitIsInFlight() {
+        EwyrysApiConcurrencyLimiter limiter = limiter(2, 1, 10, 0.5);
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        limiter.release(FAST, false);
+        assertThat(limiter.tryAcquire()).isTrue();
+    }
+
+    @Test
+    void slowOrDroppedCallsBackOffDownToTheMinimum() {
+        EwyrysApiConcurrencyLimiter limiter = limiter(8, 2, 10, 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        assertThat(limiter.getLimit()).isEqualTo(4);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, true);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void growsOnlyWhileTheLimitIsUsed() {
+        EwyrysApiConcurrencyLimiter limiter = limiter(2, 1, 3, 0.5);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, false);
+        }
+        // one call in flight out of two never grows the limit
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire();
+            limiter.tryAcquire();
+            limiter.release(FAST, false);
+            limiter.release(FAST, false);
+        }
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void concurrentReleasesApplyEveryBackOffStep() throws InterruptedException {
+        int calls = 64;
+        EwyrysApiConcurrencyLimiter limiter = limiter(1000, 1, 1000, 0.9);
+        for (int i = 0; i < calls; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < calls; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                limiter.release(FAST, true);
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(limiter.getLimit()).isEqualTo((int) (1000 * Math.pow(0.9, calls)));
+        assertThat(limiter.getInFlight()).isZero();
+    }
+}
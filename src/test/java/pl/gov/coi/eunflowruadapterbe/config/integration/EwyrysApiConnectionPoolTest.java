@@ -0,0 +1,36 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class EwyrysApiConnectionPoolTest {
+
+    private static final Duration CONFIGURED = Duration.ofSeconds(30);
+
+    @Test
+    void usesTheConfiguredKeepAliveWithoutAServerTimeout() {
+        assertThat(EwyrysApiConnectionPool.keepAlive(null, CONFIGURED)).isEqualTo(CONFIGURED);
+        assertThat(EwyrysApiConnectionPool.keepAlive("max=100", CONFIGURED)).isEqualTo(CONFIGURED);
+    }
+
+    @Test
+    void honoursAShorterServerTimeout() {
+        assertThat(EwyrysApiConnectionPool.keepAlive("timeout=5, max=1000", CONFIGURED)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(EwyrysApiConnectionPool.keepAlive("max=1000, Timeout = 0", CONFIGURED))
+            .isEqualTo(EwyrysApiConnectionPool.CLOSE_NOW)
+            .isPositive();
+    }
+
+    @Test
+    void neverKeepsConnectionsLongerThanConfigured() {
+        assertThat(EwyrysApiConnectionPool.keepAlive("timeout=300", CONFIGURED)).isEqualTo(CONFIGURED);
+    }
+
+    @Test
+    void ignoresMalformedAndNegativeTimeouts() {
+        assertThat(EwyrysApiConnectionPool.keepAlive("timeout=soon", CONFIGURED)).isEqualTo(CONFIGURED);
+        assertThat(EwyrysApiConnectionPool.keepAlive("timeout=-1", CONFIGURED)).isEqualTo(CONFIGURED);
+    }
+}
@@ -0,0 +1,126 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class EwyrysApiDeduplicatingInterceptorTest {
+
+    private static final URI APPLICATION = URI.create("http://localhost/ewyrys-epuc/v1.0/application");
+    private static final URI APPLICATION_STATUS = URI.create("http://localhost/ewyrys-epuc/v1.0/application/key-1");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EwyrysApiDeduplicatingInterceptor interceptor = new EwyrysApiDeduplicatingInterceptor(
+        new EwyrysApiSingleFlight(Duration.ofMinutes(1), 100, registry));
+    private final AtomicInteger sent = new AtomicInteger();
+
+    private ClientHttpRequestExecution answering(HttpStatus status) {
+        return (request, body) -> {
+            sent.incrementAndGet();
+            return new MockClientHttpResponse(("answer to " + new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8), status);
+        };
+    }
+
+    private ClientHttpResponse send(HttpMethod method, String body, ClientHttpRequestExecution execution) throws IOException {
+        return send(method, APPLICATION, body, execution);
+    }
+
+    private ClientHttpResponse send(HttpMethod method, URI uri, String body, ClientHttpRequestExecution execution) throws IOException {
+        return interceptor.intercept(new MockClientHttpRequest(method, uri), body.getBytes(StandardCharsets.UTF_8), execution);
+    }
+
+    private static String read(ClientHttpResponse response) throws IOException {
+        return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void concurrentIdenticalPostsShareOneExchange() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ClientHttpRequestExecution slow = (request, body) -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return answering(HttpStatus.CREATED).execute(request, body);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> read(send(HttpMethod.POST, "key-1", slow)));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<String> duplicate = executor.submit(() -> read(send(HttpMethod.POST, "key-1", slow)));
+            // the duplicate has joined the in-flight call before it completes
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (registry.get("ewyrys.client.dedup.suppressed").tag("source", "in_flight").counter().count() < 1) {
+                assertThat(System.nanoTime() - deadline).as("duplicate joined within 5 s").isNegative();
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("answer to key-1");
+            assertThat(duplicate.get(5, TimeUnit.SECONDS)).isEqualTo("answer to key-1");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(sent.get()).isEqualTo(1);
+    }
+
+    @Test
+    void answersARetryOfASuccessfulCreateFromTheCache() throws IOException {
+        send(HttpMethod.POST, "key-1", answering(HttpStatus.CREATED)).close();
+        ClientHttpResponse retried = send(HttpMethod.POST, "key-1", answering(HttpStatus.CREATED));
+
+        assertThat(retried.getStatusCode().value()).isEqualTo(201);
+        assertThat(sent.get()).isEqualTo(1);
+    }
+
+    @Test
+    void sendsEveryStatusUpdateEvenWhenItRepeatsAnEarlierOne() throws IOException {
+        send(HttpMethod.PUT, APPLICATION_STATUS, "status-A", answering(HttpStatus.NO_CONTENT)).close();
+        send(HttpMethod.PUT, APPLICATION_STATUS, "status-B", answering(HttpStatus.NO_CONTENT)).close();
+        send(HttpMethod.PUT, APPLICATION_STATUS, "status-A", answering(HttpStatus.NO_CONTENT)).close();
+
+        assertThat(sent.get()).isEqualTo(3);
+    }
+
+    @Test
+    void sendsAgainAfterAnErrorStatus() throws IOException {
+        ClientHttpResponse failed = send(HttpMethod.POST, "key-1", answering(HttpStatus.INTERNAL_SERVER_ERROR));
+        ClientHttpResponse retried = send(HttpMethod.POST, "key-1", answering(HttpStatus.CREATED));
+
+        assertThat(failed.getStatusCode().value()).isEqualTo(500);
+        assertThat(read(failed)).isEqualTo("answer to key-1");
+        assertThat(retried.getStatusCode().value()).isEqualTo(201);
+        assertThat(sent.get()).isEqualTo(2);
+    }
+
+    @Test
+    void sendsDifferentBodiesAndOtherMethodsEveryTime() throws IOException {
+        send(HttpMethod.POST, "key-1", answering(HttpStatus.CREATED));
+        send(HttpMethod.POST, "key-2", answering(HttpStatus.CREATED));
+        send(HttpMethod.GET, "", answering(HttpStatus.OK));
+        send(HttpMethod.GET, "", answering(HttpStatus.OK));
+
+        assertThat(sent.get()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,67 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class EwyrysApiMetricsInterceptorTest {
+
+    private static final URI APPLICATION = URI.create("http://localhost/ewyrys-epuc/v1.0/application");
+    private static final URI APPLICATION_STATUS = URI.create("http://localhost/ewyrys-epuc/v1.0/application/key-1");
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EwyrysApiMetricsInterceptor interceptor = new EwyrysApiMetricsInterceptor(registry);
+
+    private long requests(String operation, String status) {
+        return registry.get("ewyrys.client.requests").tag("operation", operation).tag("status", status).timer().count();
+    }
+
+    private double bytes(String name, String operation) {
+        return registry.get(name).tag("operation", operation).summary().totalAmount();
+    }
+
+    @Test
+    void timesEachExchangeByOperationAndStatusClassAndCountsPayloadBytes() throws IOException {
+        byte[] request = "{\"businessKey\":\"key-1\"}".getBytes(StandardCharsets.UTF_8);
+        byte[] answer = "{\"status\":\"CREATED\"}".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 2; i++) {
+            try (ClientHttpResponse response = interceptor.intercept(new MockClientHttpRequest(HttpMethod.POST, APPLICATION), request,
+                (httpRequest, body) -> new MockClientHttpResponse(answer, HttpStatus.CREATED))) {
+                assertThat(response.getBody().readAllBytes()).isEqualTo(answer);
+            }
+        }
+        interceptor.intercept(new MockClientHttpRequest(HttpMethod.PUT, APPLICATION_STATUS), request,
+            (httpRequest, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.SERVICE_UNAVAILABLE)).close();
+
+        assertThat(requests("createApplication", "2xx")).isEqualTo(2);
+        assertThat(requests("updateApplicationStatus", "5xx")).isEqualTo(1);
+        assertThat(registry.find("ewyrys.client.requests").tag("operation", "createApplication").tag("status", "5xx").timer()).isNull();
+        assertThat(bytes("ewyrys.client.request.bytes", "createApplication")).isEqualTo(2.0 * request.length);
+        assertThat(bytes("ewyrys.client.response.bytes", "createApplication")).isEqualTo(2.0 * answer.length);
+        assertThat(bytes("ewyrys.client.request.bytes", "updateApplicationStatus")).isEqualTo(request.length);
+        // the unread body of the 503 is not counted
+        assertThat(registry.get("ewyrys.client.response.bytes").tag("operation", "updateApplicationStatus").summary().count()).isZero();
+    }
+
+    @Test
+    void timesFailedExchangesAsIoErrors() {
+        assertThatThrownBy(() -> interceptor.intercept(new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/health")),
+            new byte[0], (httpRequest, body) -> {
+                throw new IOException("Connection reset");
+            })).isInstanceOf(IOException.class);
+
+        assertThat(requests("other", "IO_ERROR")).isEqualTo(1);
+        assertThat(registry.get("ewyrys.client.request.bytes").tag("operation", "other").summary().count()).isZero();
+    }
+}
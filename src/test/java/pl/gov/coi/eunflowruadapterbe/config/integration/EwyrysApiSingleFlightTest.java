@@ -0,0 +1,148 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+
+class EwyrysApiSingleFlightTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private EwyrysApiSingleFlight singleFlight(Duration resultTtl, int maxCachedResults) {
+        return new EwyrysApiSingleFlight(resultTtl, maxCachedResults, registry);
+    }
+
+    private String call(String result) {
+        calls.incrementAndGet();
+        return result;
+    }
+
+    @Test
+    void concurrentIdenticalCallsShareOneExchange() throws Exception {
+        EwyrysApiSingleFlight singleFlight = singleFlight(Duration.ZERO, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> singleFlight.execute("createApplication", "key-1", "body", () -> {
+                started.countDown();
+                await(release);
+                return call("created");
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            List<Future<String>> joined = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                joined.add(executor.submit(() -> singleFlight.execute("createApplication", "key-1", "body", () -> call("again"))));
+            }
+            // the duplicates have joined the in-flight call before it completes
+            awaitUntil(() -> joinedInFlight() == 3);
+            release.countDown();
+
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("created");
+            for (Future<String> future : joined) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isEqualTo("created");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(joinedInFlight()).isEqualTo(3);
+    }
+
+    @Test
+    void differentPayloadsForTheSameBusinessKeyAreSentSeparately() {
+        EwyrysApiSingleFlight singleFlight = singleFlight(Duration.ofMinutes(1), 10);
+
+        assertThat(singleFlight.execute("createApplication", "key-1", "body-1", () -> call("first"))).isEqualTo("first");
+        assertThat(singleFlight.execute("createApplication", "key-1", "body-2", () -> call("second"))).isEqualTo("second");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void immediateRetryIsAnsweredFromTheResultCache() {
+        EwyrysApiSingleFlight singleFlight = singleFlight(Duration.ofMinutes(1), 10);
+
+        singleFlight.execute("createApplication", "key-1", "body", () -> call("created"));
+        String retried = singleFlight.execute("createApplication", "key-1", "body", () -> call("again"));
+
+        assertThat(retried).isEqualTo("created");
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(registry.get("ewyrys.client.dedup.suppressed").tag("source", "result_cache").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        EwyrysApiSingleFlight singleFlight = singleFlight(Duration.ofMinutes(1), 10);
+
+        assertThatThrownBy(() -> singleFlight.execute("createApplication", "key-1", "body", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("500");
+        })).isInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.execute("createApplication", "key-1", "body", () -> call("created"))).isEqualTo("created");
+        assertThat(calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void expiredResultsAreCalledAgain() {
+        Duration ttl = Duration.ofMillis(10);
+        EwyrysApiSingleFlight singleFlight = singleFlight(ttl, 10);
+        singleFlight.execute("createApplication", "key-1", "body", () -> call("created"));
+        long stored = System.nanoTime();
+        awaitUntil(() -> System.nanoTime() - stored > ttl.toNanos());
+
+        singleFlight.execute("createApplication", "key-1", "body", () -> call("created"));
+
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(singleFlight.cachedResults()).isEqualTo(1);
+    }
+
+    @Test
+    void fullCacheEvictsTheOldestResult() {
+        EwyrysApiSingleFlight singleFlight = singleFlight(Duration.ofMinutes(1), 3);
+        for (int i = 0; i < 5; i++) {
+            String key = "key-" + i;
+            singleFlight.execute("createApplication", key, "body", () -> call(key));
+        }
+        assertThat(singleFlight.cachedResults()).isEqualTo(3);
+
+        calls.set(0);
+        singleFlight.execute("createApplication", "key-4", "body", () -> call("key-4"));
+        assertThat(calls.get()).isZero();
+        singleFlight.execute("createApplication", "key-0", "body", () -> call("key-0"));
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    private double joinedInFlight() {
+        return registry.get("ewyrys.client.dedup.suppressed").tag("source", "in_flight").counter().count();
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() - deadline).as("condition met within 5 s").isNegative();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class EwyrysApiStreamingRequestFactoryTest {
+
+    private static final URI APPLICATION = URI.create("http://localhost/ewyrys-epuc/v1.0/application");
+    private static final String PAYLOAD = "{\"businessKey\":\"key-1\"}";
+
+    private final MockClientHttpRequest target = new MockClientHttpRequest(HttpMethod.POST, APPLICATION);
+    private final List<String> events = new ArrayList<>();
+
+    private ClientHttpRequestInterceptor recording(String name) {
+        return (request, body, execution) -> {
+            events.add(name + " saw " + body.length + " body bytes, " + target.getBodyAsBytes().length + " written, operation "
+                + request.getAttributes().get("operation"));
+            request.getHeaders().add("X-Intercepted-By", name);
+            return execution.execute(request, body);
+        };
+    }
+
+    @Test
+    void writesTheBodyToANonStreamingRequestOnlyAfterTheInterceptorsRan() throws Exception {
+        target.setResponse(new MockClientHttpResponse(new byte[0], HttpStatus.CREATED));
+        EwyrysApiStreamingRequestFactory factory = new EwyrysApiStreamingRequestFactory(
+            (uri, method) -> target, List.of(recording("first"), recording("second")));
+
+        ClientHttpRequest request = factory.createRequest(APPLICATION, HttpMethod.POST);
+        request.getAttributes().put("operation", "createApplication");
+        ((StreamingHttpOutputMessage) request).setBody(out -> {
+            events.add("body written");
+            out.write(PAYLOAD.getBytes(StandardCharsets.UTF_8));
+        });
+        assertThat(target.getBodyAsBytes()).isEmpty();
+
+        try (ClientHttpResponse response = request.execute()) {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        }
+
+        assertThat(events).containsExactly(
+            "first saw 0 body bytes, 0 written, operation createApplication",
+            "second saw 0 body bytes, 0 written, operation createApplication",
+            "body written");
+        assertThat(target.getBodyAsString()).isEqualTo(PAYLOAD);
+        assertThat(target.getHeaders().get("X-Intercepted-By")).containsExactly("first", "second");
+        assertThat(target.getAttributes()).containsEntry("operation", "createApplication");
+    }
+}
@@ -0,0 +1,161 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import org.junit.jupiter.api.Test;
+
+class EwyrysApplicationStatusWriteBehindTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    private EwyrysApplicationStatusWriteBehind<String> writeBehind(BiConsumer<String, String> sender, Duration flushInterval,
+                                                                    int maxAttempts, Duration retryBackoff) {
+        return writeBehind(sender, flushInterval, maxAttempts, retryBackoff, Duration.ofSeconds(30));
+    }
+
+    private EwyrysApplicationStatusWriteBehind<String> writeBehind(BiConsumer<String, String> sender, Duration flushInterval,
+                                                                    int maxAttempts, Duration retryBackoff,
+                                                                    Duration shutdownTimeout) {
+        return new EwyrysApplicationStatusWriteBehind<>((key, status) -> {
+            calls.add(key + "=" + status);
+            sender.accept(key, status);
+        }, new EwyrysApplicationStatusWriteBehind.Settings(100, 1000, flushInterval, 2, Duration.ofMillis(100),
+            maxAttempts, retryBackoff, shutdownTimeout), registry);
+    }
+
+    private double count(String name) {
+        return registry.get(name).counter().count();
+    }
+
+    @Test
+    void sendsOnlyTheLatestStatusPerKey() throws InterruptedException {
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> { }, Duration.ofHours(1), 1, Duration.ZERO);
+
+        writeBehind.enqueue("key-1", "CREATED");
+        writeBehind.enqueue("key-1", "SUBMITTED");
+        writeBehind.enqueue("key-2", "CREATED");
+        writeBehind.close();
+
+        assertThat(calls).containsExactlyInAnyOrder("key-1=SUBMITTED", "key-2=CREATED");
+        assertThat(count("ewyrys.client.status-updates.coalesced")).isEqualTo(1);
+        assertThat(count("ewyrys.client.status-updates.sent")).isEqualTo(2);
+    }
+
+    @Test
+    void retriesAFailedUpdateAfterTheBackoff() throws InterruptedException {
+        CountDownLatch sent = new CountDownLatch(1);
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> {
+            if (calls.size() == 1) {
+                throw new IllegalStateException("503");
+            }
+            sent.countDown();
+        }, Duration.ofMillis(5), 3, Duration.ofMillis(20));
+
+        writeBehind.enqueue("key-1", "SUBMITTED");
+
+        assertThat(sent.await(5, TimeUnit.SECONDS)).isTrue();
+        writeBehind.close();
+        assertThat(calls).containsExactly("key-1=SUBMITTED", "key-1=SUBMITTED");
+        assertThat(count("ewyrys.client.status-updates.retried")).isEqualTo(1);
+        assertThat(count("ewyrys.client.status-updates.failed")).isZero();
+    }
+
+    @Test
+    void dropsTheUpdateAfterMaxAttempts() throws InterruptedException {
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> {
+            throw new IllegalStateException("503");
+        }, Duration.ofMillis(5), 3, Duration.ofMillis(1));
+
+        writeBehind.enqueue("key-1", "SUBMITTED");
+        writeBehind.close();
+
+        assertThat(calls).hasSize(3);
+        assertThat(count("ewyrys.client.status-updates.failed")).isEqualTo(1);
+        assertThat(writeBehind.pendingCount()).isZero();
+    }
+
+    @Test
+    void newerStatusSupersedesTheRetryOfAFailedOne() throws InterruptedException {
+        CountDownLatch firstFailed = new CountDownLatch(1);
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> {
+            if (status.equals("SUBMITTED") && firstFailed.getCount() > 0) {
+                firstFailed.countDown();
+                throw new IllegalStateException("503");
+            }
+        }, Duration.ofMillis(5), 5, Duration.ofMillis(200));
+
+        writeBehind.enqueue("key-1", "SUBMITTED");
+        assertThat(firstFailed.await(5, TimeUnit.SECONDS)).isTrue();
+        writeBehind.enqueue("key-1", "ACCEPTED");
+        writeBehind.close();
+
+        // the retry of SUBMITTED never follows ACCEPTED
+        assertThat(calls).containsExactly("key-1=SUBMITTED", "key-1=ACCEPTED");
+    }
+
+    @Test
+    void closeSendsAWaitingRetryWithoutItsBackoff() throws InterruptedException {
+        CountDownLatch firstFailed = new CountDownLatch(1);
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> {
+            if (firstFailed.getCount() > 0) {
+                firstFailed.countDown();
+                throw new IllegalStateException("503");
+            }
+        }, Duration.ofMillis(5), 3, Duration.ofHours(1));
+
+        writeBehind.enqueue("key-1", "SUBMITTED");
+        assertThat(firstFailed.await(5, TimeUnit.SECONDS)).isTrue();
+        long start = System.nanoTime();
+        writeBehind.close();
+
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+        assertThat(calls).containsExactly("key-1=SUBMITTED", "key-1=SUBMITTED");
+        assertThat(count("ewyrys.client.status-updates.sent")).isEqualTo(1);
+    }
+
+    @Test
+    void closeGivesUpOnAStuckUpdateAfterTheShutdownTimeout() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, Duration.ofMillis(5), 1, Duration.ZERO, Duration.ofMillis(200));
+
+        writeBehind.enqueue("key-1", "SUBMITTED");
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        // waits for the stuck update of the same key
+        writeBehind.enqueue("key-1", "ACCEPTED");
+        try {
+            long start = System.nanoTime();
+            writeBehind.close();
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(10));
+            assertThat(calls).containsExactly("key-1=SUBMITTED");
+            assertThat(writeBehind.pendingCount()).isEqualTo(1);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void rejectsUpdatesAfterClose() throws InterruptedException {
+        EwyrysApplicationStatusWriteBehind<String> writeBehind = writeBehind((key, status) -> { }, Duration.ofMillis(5), 1, Duration.ZERO);
+        writeBehind.close();
+
+        assertThat(writeBehind.enqueue("key-1", "SUBMITTED")).isFalse();
+        assertThat(count("ewyrys.client.status-updates.rejected")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,151 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class ExtractEpucAsyncApiTest {
+
+    @Test
+    void submitAllKeepsItemOrderAndRecordsFailuresPerItem() throws Exception {
+        try (ExtractEpucAsyncApi asyncApi = new ExtractEpucAsyncApi(null, 3, false)) {
+            List<Integer> items = IntStream.range(0, 20).boxed().toList();
+
+            List<ExtractEpucAsyncApi.ItemResult<Integer, String>> results = asyncApi.submitAll(items, (api, item) -> {
+                if (item % 5 == 0) {
+                    throw new IllegalStateException("failed " + item);
+                }
+                return "created " + item;
+            }).get(5, TimeUnit.SECONDS);
+
+            assertThat(results).hasSize(20);
+            for (int i = 0; i < 20; i++) {
+                assertThat(results.get(i).item()).isEqualTo(i);
+                assertThat(results.get(i).isSuccess()).isEqualTo(i % 5 != 0);
+            }
+            assertThat(results.get(7).result()).isEqualTo("created 7");
+            assertThat(results.get(5).error()).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void submitAllRunsAtMostMaxInFlightItemsAtOnce() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        // the first items only finish once four of them run side by side
+        CountDownLatch allWorkersBusy = new CountDownLatch(4);
+        try (ExtractEpucAsyncApi asyncApi = new ExtractEpucAsyncApi(null, 4, false)) {
+            asyncApi.submitAll(IntStream.range(0, 100).boxed().toList(), (api, item) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                allWorkersBusy.countDown();
+                await(allWorkersBusy);
+                running.decrementAndGet();
+                return item;
+            }).get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(maxRunning.get()).isEqualTo(4);
+    }
+
+    @Test
+    void submitWaitsForAFreeSlotBeforeHandingTheCallOver() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExtractEpucAsyncApi asyncApi = new ExtractEpucAsyncApi(null, 1, false)) {
+            CompletableFuture<Object> first = asyncApi.submit(api -> {
+                await(release);
+                return "first";
+            });
+            assertThat(asyncApi.inFlight()).isEqualTo(1);
+
+            CompletableFuture<CompletableFuture<Object>> second = new CompletableFuture<>();
+            Thread submitter = new Thread(() -> second.complete(asyncApi.submit(api -> "second")));
+            submitter.start();
+            // parked on the in-flight limit
+            awaitState(submitter, Thread.State.WAITING);
+            assertThat(second.isDone()).isFalse();
+
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+            assertThat(second.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS)).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void closeLetsRunningCallsFinish() throws Exception {
+        ExtractEpucAsyncApi asyncApi = new ExtractEpucAsyncApi(null, 2, false);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<String>> calls = IntStream.range(0, 2).mapToObj(i -> asyncApi.submit(api -> {
+            started.countDown();
+            await(release);
+            return "done " + i;
+        })).toList();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        Thread closer = new Thread(() -> {
+            try {
+                asyncApi.close();
+                closed.complete(null);
+            } catch (Exception e) {
+                closed.completeExceptionally(e);
+            }
+        });
+        closer.start();
+        // close() has shut the pool down and waits for both calls, which are still running
+        awaitState(closer, Thread.State.TIMED_WAITING);
+        assertThat(closed.isDone()).isFalse();
+        release.countDown();
+
+        closed.get(10, TimeUnit.SECONDS);
+        assertThat(calls.get(0).get(5, TimeUnit.SECONDS)).isEqualTo("done 0");
+        assertThat(calls.get(1).get(5, TimeUnit.SECONDS)).isEqualTo("done 1");
+    }
+
+    @Test
+    void submitAfterCloseIsRejectedWithoutHoldingASlot() throws Exception {
+        ExtractEpucAsyncApi asyncApi = new ExtractEpucAsyncApi(null, 2, false);
+        asyncApi.close();
+
+        assertThatThrownBy(() -> asyncApi.submit(api -> "late")).isInstanceOf(RejectedExecutionException.class);
+        assertThat(asyncApi.inFlight()).isZero();
+    }
+
+    @Test
+    void submitAllAfterCloseCompletesExceptionally() throws Exception {
+        ExtractEpucAsyncApi asyncApi = new ExtractEpucAsyncApi(null, 2, false);
+        asyncApi.close();
+
+        CompletableFuture<List<ExtractEpucAsyncApi.ItemResult<Integer, Integer>>> done =
+            asyncApi.submitAll(List.of(1, 2, 3), (api, item) -> item);
+
+        assertThat(done).isCompletedExceptionally();
+        assertThat(asyncApi.inFlight()).isZero();
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (thread.getState() != state) {
+            assertThat(System.nanoTime() - deadline).as("%s to be %s", thread.getName(), state).isNegative();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+class OsApiDownloadClientTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz".repeat(100).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CHANGED = "ZYXWVUTSRQPONMLKJIHGFEDCBA9876543210".repeat(100).getBytes(StandardCharsets.US_ASCII);
+    private static final int HALF = CONTENT.length / 2;
+
+    @TempDir
+    Path directory;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    // the Range header of each request, "-" when there was none
+    private final List<String> ranges = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+
+    @FunctionalInterface
+    private interface Reply {
+        void send(HttpExchange exchange) throws IOException;
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private OsApiDownloadClient client(int maxResumes, Reply... replies) throws IOException {
+        return client(Duration.ZERO, maxResumes, replies);
+    }
+
+    private OsApiDownloadClient client(Duration resumeBackoff, int maxResumes, Reply... replies) throws IOException {
+        AtomicInteger next = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(OsApiDownloadClient.INSIDE_DOWNLOAD_PATH, exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            ranges.add(range == null ? "-" : range);
+            replies[Math.min(next.getAndIncrement(), replies.length - 1)].send(exchange);
+        });
+        server.start();
+        // blocking reads hand over every byte received before a break, so the resume offsets are exact
+        RestClient restClient = RestClient.builder()
+            .baseUrl("http://127.0.0.1:" + server.getAddress().getPort())
+            .requestFactory(new SimpleClientHttpRequestFactory())
+            .build();
+        return new OsApiDownloadClient(restClient,
+            new OsApiDownloadClient.Settings(256, maxResumes, resumeBackoff, "SHA-256", "X-Content-Hash"), registry);
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Reply full(byte[] content) {
+        return exchange -> {
+            exchange.getResponseHeaders().set("X-Content-Hash", sha256(content));
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"report.txt\"");
+            send(exchange, 200, content, content.length);
+        };
+    }
+
+    /**
+     * Announces the whole content but breaks the connection after {@code upTo} bytes.
+     */
+    private static Reply broken(byte[] content, int upTo) {
+        return exchange -> {
+            exchange.getResponseHeaders().set("X-Content-Hash", sha256(content));
+            send(exchange, 200, Arrays.copyOf(content, upTo), content.length);
+        };
+    }
+
+    private static Reply partial(byte[] content, String hash) {
+        return exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            int from = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+            exchange.getResponseHeaders().set("X-Content-Hash", hash);
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"report.txt\"");
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + from + "-" + (content.length - 1) + "/" + content.length);
+            byte[] rest = Arrays.copyOfRange(content, from, content.length);
+            send(exchange, 206, rest, rest.length);
+        };
+    }
+
+    private static Reply notSatisfiable(int total) {
+        return exchange -> {
+            exchange.getResponseHeaders().set("Content-Range", "bytes */" + total);
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+        };
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body, long announced) throws IOException {
+        exchange.sendResponseHeaders(status, announced);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.flush();
+        // with fewer bytes than announced the exchange drops the connection on close
+        exchange.close();
+    }
+
+    private Path partOf(Path target) {
+        return target.resolveSibling(target.getFileName() + OsApiDownloadClient.PART_SUFFIX);
+    }
+
+    @Test
+    void resumesWithARangeRequestAfterTheConnectionBreaks() throws IOException {
+        OsApiDownloadClient client = client(3, broken(CONTENT, HALF), partial(CONTENT, sha256(CONTENT)));
+        Path target = directory.resolve("report.txt");
+
+        OsApiDownloadClient.Download download = client.download("ref-1", target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(CONTENT);
+        assertThat(Files.exists(partOf(target))).isFalse();
+        assertThat(ranges).containsExactly("-", "bytes=" + HALF + "-");
+        assertThat(download.resumes()).isEqualTo(1);
+        assertThat(download.size()).isEqualTo((long) CONTENT.length);
+        assertThat(download.verified()).isTrue();
+        assertThat(download.hash()).isEqualTo(sha256(CONTENT));
+        assertThat(registry.get("osapi.client.download.resumes").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void picksUpThePartFileAnEarlierRunLeftBehind() throws IOException {
+        OsApiDownloadClient client = client(0, partial(CONTENT, sha256(CONTENT)));
+        Path target = directory.resolve("report.txt");
+        Files.write(partOf(target), Arrays.copyOf(CONTENT, 100));
+
+        OsApiDownloadClient.Download download = client.download("ref-1", target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(CONTENT);
+        // from the last byte already written, which is not written again
+        assertThat(ranges).containsExactly("bytes=99-");
+        assertThat(download.verified()).isTrue();
+    }
+
+    @Test
+    void verifiesACompletePartFileAnEarlierRunLeftBehind() throws IOException {
+        OsApiDownloadClient client = client(0, partial(CONTENT, sha256(CONTENT)));
+        Path target = directory.resolve("report.txt");
+        Files.write(partOf(target), CONTENT);
+
+        OsApiDownloadClient.Download download = client.download("ref-1", target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(CONTENT);
+        assertThat(ranges).containsExactly("bytes=" + (CONTENT.length - 1) + "-");
+        assertThat(download.size()).isEqualTo((long) CONTENT.length);
+        assertThat(download.verified()).isTrue();
+        assertThat(download.fileName()).isEqualTo("report.txt");
+    }
+
+    @Test
+    void finishesOnRangeNotSatisfiableWithTheHashAndNameOfTheFirstResponse() throws IOException {
+        // the whole content arrives, but the connection breaks before the announced end
+        OsApiDownloadClient client = client(1, exchange -> {
+            exchange.getResponseHeaders().set("X-Content-Hash", sha256(CONTENT));
+            exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"report.txt\"");
+            send(exchange, 200, CONTENT, CONTENT.length + 1);
+        }, notSatisfiable(CONTENT.length));
+        Path target = directory.resolve("report.txt");
+
+        OsApiDownloadClient.Download download = client.download("ref-1", target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(CONTENT);
+        assertThat(ranges).containsExactly("-", "bytes=" + CONTENT.length + "-");
+        assertThat(download.hash()).isEqualTo(sha256(CONTENT));
+        assertThat(download.verified()).isTrue();
+        assertThat(download.fileName()).isEqualTo("report.txt");
+    }
+
+    @Test
+    void startsOverOnRangeNotSatisfiableWhenThePartFileIsLonger() throws IOException {
+        OsApiDownloadClient client = client(0, notSatisfiable(CONTENT.length), full(CONTENT));
+        Path target = directory.resolve("report.txt");
+        byte[] longer = Arrays.copyOf(CONTENT, CONTENT.length + 10);
+        Files.write(partOf(target), longer);
+
+        OsApiDownloadClient.Download download = client.download("ref-1", target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(CONTENT);
+        assertThat(ranges).containsExactly("bytes=" + (longer.length - 1) + "-", "-");
+        assertThat(download.fileName()).isEqualTo("report.txt");
+    }
+
+    @Test
+    void startsOverWhenTheContentChangesBetweenParts() throws IOException {
+        OsApiDownloadClient client = client(3, broken(CONTENT, HALF), partial(CHANGED, sha256(CHANGED)), full(CHANGED));
+        Path target = directory.resolve("report.txt");
+
+        OsApiDownloadClient.Download download = client.download("ref-1", target);
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(CHANGED);
+        assertThat(ranges).containsExactly("-", "bytes=" + HALF + "-", "-");
+        assertThat(download.hash()).isEqualTo(sha256(CHANGED));
+    }
+
+    @Test
+    void deletesThePartFileWhenTheHashDoesNotMatch() throws IOException {
+        OsApiDownloadClient client = client(0, exchange -> {
+            exchange.getResponseHeaders().set("X-Content-Hash", sha256(CHANGED));
+            send(exchange, 200, CONTENT, CONTENT.length);
+        });
+        Path target = directory.resolve("report.txt");
+
+        assertThatThrownBy(() -> client.download("ref-1", target))
+            .isInstanceOf(OsApiDownloadException.class)
+            .hasMessageContaining("instead of " + sha256(CHANGED));
+        assertThat(Files.exists(target)).isFalse();
+        assertThat(Files.exists(partOf(target))).isFalse();
+    }
+
+    @Test
+    void keepsThePartFileWhenTheResumesRunOut() throws IOException {
+        OsApiDownloadClient client = client(1, broken(CONTENT, HALF), exchange -> {
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + HALF + "-" + (CONTENT.length - 1) + "/" + CONTENT.length);
+            send(exchange, 206, new byte[10], CONTENT.length - HALF);
+        });
+        Path target = directory.resolve("report.txt");
+
+        assertThatThrownBy(() -> client.download("ref-1", target))
+            .isInstanceOf(OsApiDownloadException.class)
+            .hasMessageContaining("after 1 resumes");
+        assertThat(Files.size(partOf(target))).isEqualTo(HALF + 10L);
+        assertThat(Files.exists(target)).isFalse();
+    }
+
+    @Test
+    void reportsAnInterruptWhileWaitingToResume() throws IOException {
+        OsApiDownloadClient client = client(Duration.ofSeconds(10), 3, broken(CONTENT, HALF));
+        Path target = directory.resolve("report.txt");
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> client.download("ref-1", target))
+                .isInstanceOfSatisfying(OsApiDownloadException.class,
+                    e -> assertThat(e.getReason()).isEqualTo(OsApiDownloadException.Reason.INTERRUPTED));
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+        assertThat(Files.size(partOf(target))).isEqualTo(HALF);
+    }
+
+    @Test
+    void aSinkDownloadCannotStartOver() throws IOException {
+        OsApiDownloadClient client = client(3, broken(CONTENT, HALF), partial(CHANGED, sha256(CHANGED)));
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+
+        assertThatThrownBy(() -> client.download("ref-1", Channels.newChannel(sink)))
+            .isInstanceOf(OsApiDownloadException.class)
+            .hasMessageContaining("cannot be taken back");
+        assertThat(sink.toByteArray()).isEqualTo(Arrays.copyOf(CONTENT, HALF));
+    }
+
+    @Test
+    void reportsAnErrorStatusWithItsBody() throws IOException {
+        OsApiDownloadClient client = client(3, exchange -> send(exchange, 404, "no such reference".getBytes(StandardCharsets.UTF_8), 17));
+
+        assertThatThrownBy(() -> client.download("ref-1", Channels.newChannel(new ByteArrayOutputStream())))
+            .isInstanceOf(OsApiDownloadException.class)
+            .hasMessageContaining("404")
+            .hasMessageContaining("no such reference");
+        assertThat(ranges).hasSize(1);
+    }
+}
@@ -0,0 +1,60 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class TrafficLogTest {
+
+    private static TrafficLog.Record record(String uri, String body) {
+        return new TrafficLog.Record("ewyrys-client", 1_700_000_000_000_000L, 1234, 201, "POST", uri,
+            List.of(new TrafficLog.Header("Content-Type", "application/json"), new TrafficLog.Header("X-Empty", "")),
+            ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void encodedRecordStartsWithItsLengthAndChecksumAndDecodesBack() {
+        TrafficLog.Record record = record("/application?lang=pl", "{\"businessKey\":\"zażółć\"}");
+
+        ByteBuffer encoded = TrafficLog.encode(record);
+        int length = encoded.getInt();
+        int checksum = encoded.getInt();
+        ByteBuffer payload = encoded.slice();
+
+        assertThat(payload.remaining()).isEqualTo(length);
+        assertThat(TrafficLog.checksumMatches(payload, checksum)).isTrue();
+        TrafficLog.Record decoded = TrafficLog.decode(payload);
+        assertThat(decoded.source()).isEqualTo("ewyrys-client");
+        assertThat(decoded.timestampMicros()).isEqualTo(1_700_000_000_000_000L);
+        assertThat(decoded.durationMicros()).isEqualTo(1234);
+        assertThat(decoded.status()).isEqualTo(201);
+        assertThat(decoded.method()).isEqualTo("POST");
+        assertThat(decoded.uri()).isEqualTo("/application?lang=pl");
+        assertThat(decoded.headers()).isEqualTo(record.headers());
+        assertThat(decoded.bodyBytes()).isEqualTo(record.bodyBytes());
+        assertThat(payload.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void checksumDetectsAFlippedByte() {
+        ByteBuffer encoded = TrafficLog.encode(record("/application", "{}"));
+        int checksum = encoded.getInt(Integer.BYTES);
+        ByteBuffer payload = encoded.position(TrafficLog.RECORD_HEADER_BYTES).slice();
+        payload.put(3, (byte) (payload.get(3) ^ 1));
+
+        assertThat(TrafficLog.checksumMatches(payload, checksum)).isFalse();
+    }
+
+    @Test
+    void recordedCredentialsKeepOnlyTheirScheme() {
+        assertThat(TrafficLog.Header.recorded("Authorization", "Bearer eyJ.secret"))
+            .isEqualTo(new TrafficLog.Header("Authorization", "Bearer REDACTED"));
+        assertThat(TrafficLog.Header.recorded("proxy-authorization", "opaque"))
+            .isEqualTo(new TrafficLog.Header("proxy-authorization", "REDACTED"));
+        assertThat(TrafficLog.Header.recorded("Accept", "application/json"))
+            .isEqualTo(new TrafficLog.Header("Accept", "application/json"));
+    }
+}
@@ -0,0 +1,122 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrafficLogWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private static TrafficLog.Record record(String uri, String body) {
+        return new TrafficLog.Record("ewyrys-client", 1L, -1, 204, "PUT", uri, List.of(),
+            ByteBuffer.wrap(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> uris(Path file) throws IOException {
+        List<String> uris = new ArrayList<>();
+        try (TrafficLogReader reader = new TrafficLogReader(file, 64)) {
+            for (TrafficLog.Record record : reader) {
+                uris.add(record.uri());
+            }
+        }
+        return uris;
+    }
+
+    private void write(Path file, String... uris) throws IOException {
+        try (TrafficLogWriter writer = new TrafficLogWriter(file, 1024)) {
+            for (String uri : uris) {
+                writer.append(record(uri, "{\"status\":\"ACCEPTED\"}"));
+            }
+        }
+    }
+
+    @Test
+    void appendsToAnExistingLog() throws IOException {
+        Path file = directory.resolve("traffic.ewtl");
+        write(file, "/application/a", "/application/b");
+        write(file, "/application/c");
+
+        assertThat(uris(file)).containsExactly("/application/a", "/application/b", "/application/c");
+    }
+
+    @Test
+    void countsAppendsThatCannotBeWrittenWithoutThrowing() throws IOException {
+        Path file = directory.resolve("traffic.ewtl");
+        TrafficLogWriter writer = new TrafficLogWriter(file, 1024);
+        writer.append(record("/application/a", "{}"));
+        writer.close();
+
+        writer.append(record("/application/b", "{}"));
+        writer.append(record("/application/c", "{}"));
+
+        assertThat(writer.records()).isEqualTo(1);
+        assertThat(writer.failures()).isEqualTo(2);
+        assertThat(uris(file)).containsExactly("/application/a");
+    }
+
+    @Test
+    void truncatesBodiesLongerThanTheLimit() throws IOException {
+        Path file = directory.resolve("traffic.ewtl");
+        try (TrafficLogWriter writer = new TrafficLogWriter(file, 4)) {
+            writer.append(record("/application/a", "0123456789"));
+        }
+
+        try (TrafficLogReader reader = new TrafficLogReader(file)) {
+            assertThat(new String(reader.iterator().next().bodyBytes(), StandardCharsets.UTF_8)).isEqualTo("0123");
+        }
+    }
+
+    @Test
+    void cutsOffATornTailBeforeAppending() throws IOException {
+        Path file = directory.resolve("traffic.ewtl");
+        write(file, "/application/a", "/application/b");
+        long complete = Files.size(file);
+        // half of a record, as a crash in the middle of a write leaves it
+        ByteBuffer torn = TrafficLog.encode(record("/application/torn", "{}"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(torn.limit(torn.limit() / 2));
+        }
+
+        write(file, "/application/c");
+
+        assertThat(uris(file)).containsExactly("/application/a", "/application/b", "/application/c");
+        assertThat(Files.size(file)).isEqualTo(complete + TrafficLog.encode(record("/application/c", "{\"status\":\"ACCEPTED\"}")).remaining());
+    }
+
+    @Test
+    void cutsOffARecordWithAWrongChecksum() throws IOException {
+        Path file = directory.resolve("traffic.ewtl");
+        write(file, "/application/a");
+        ByteBuffer corrupt = TrafficLog.encode(record("/application/corrupt", "{}"));
+        corrupt.put(corrupt.limit() - 1, (byte) (corrupt.get(corrupt.limit() - 1) ^ 1));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(corrupt);
+        }
+
+        write(file, "/application/b");
+
+        assertThat(uris(file)).containsExactly("/application/a", "/application/b");
+    }
+
+    @Test
+    void refusesAFileThatIsNotATrafficLog() throws IOException {
+        Path file = directory.resolve("notes.txt");
+        Files.writeString(file, "not a traffic log");
+
+        assertThatThrownBy(() -> new TrafficLogWriter(file, 1024)).isInstanceOf(IllegalStateException.class);
+        assertThat(Files.readString(file)).isEqualTo("not a traffic log");
+    }
+}
@@ -0,0 +1,31 @@
+package pl.gov.coi.eunflowruadapterbe.config.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+class TrafficReplayerTest {
+
+    @Test
+    void decodesRecordedQueryParametersOnce() {
+        MultiValueMap<String, String> query = TrafficReplayer.decodedQuery(
+            UriComponentsBuilder.fromUriString("/application?name=Jan%20Kowalski&tag=a%2Bb&tag=%C5%BC").build());
+
+        assertThat(query.get("name")).containsExactly("Jan Kowalski");
+        assertThat(query.get("tag")).containsExactly("a+b", "ż");
+    }
+
+    @Test
+    void rejectsANonPositiveInFlightLimit() throws InterruptedException {
+        TrafficReplayer.Target target = record -> CompletableFuture.completedFuture(200);
+
+        assertThatThrownBy(() -> new TrafficReplayer(target, 0, 0)).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("maxInFlight");
+        assertThat(new TrafficReplayer(target, 0, 1).replay(List.of(), record -> true).sent()).isZero();
+    }
+}
@@ -0,0 +1,144 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import org.junit.jupiter.api.Test;
+
+class BusinessKeyScenarioCatalogueTest {
+
+    private static BusinessKeyScenarioCatalogue bodyCatalogue(String keyField) {
+        return new BusinessKeyScenarioCatalogue("create", "POST", "/application", BusinessKeyScenarioCatalogue.KeySource.BODY, keyField)
+            .scenario("businesskey-ok", aResponse().withStatus(201))
+            .scenario("businesskey-ok-slow", aResponse().withStatus(202))
+            .scenario("businesskey-conflict", aResponse().withStatus(409));
+    }
+
+    private static Request post(String body) {
+        return ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost/application")
+            .withMethod(RequestMethod.POST)
+            .withBody(body.getBytes(UTF_8))
+            .build();
+    }
+
+    private static Request request(RequestMethod method, String url) {
+        return ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost" + url)
+            .withMethod(method)
+            .build();
+    }
+
+    @Test
+    void withoutKeyFieldMatchesValuesContainingAKeyLikeTheOldRegexStubs() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue(null);
+
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"businesskey-ok\"}"))).isEqualTo("businesskey-ok");
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"businesskey-ok-123\"}"))).isEqualTo("businesskey-ok");
+        assertThat(catalogue.extractKey(post("{\"note\":\"x\",\"id\":\"prefix-businesskey-conflict\"}")))
+            .isEqualTo("businesskey-conflict");
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"other\"}"))).isNull();
+    }
+
+    @Test
+    void withoutKeyFieldPrefersTheLongestContainedKey() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue(null);
+
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"businesskey-ok-slow-1\"}"))).isEqualTo("businesskey-ok-slow");
+    }
+
+    @Test
+    void containmentTellsApartKeysWithTheSameHashCode() {
+        BusinessKeyScenarioCatalogue catalogue = new BusinessKeyScenarioCatalogue("create", "POST", "/application",
+            BusinessKeyScenarioCatalogue.KeySource.BODY, null)
+            .scenario("Aa", aResponse().withStatus(201))
+            .scenario("BB", aResponse().withStatus(409));
+
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"x-BB-1\"}"))).isEqualTo("BB");
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"x-Aa-1\"}"))).isEqualTo("Aa");
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"x-AB-1\"}"))).isNull();
+    }
+
+    @Test
+    void mergedScenariosTakePartInContainmentMatching() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue(null);
+        catalogue.merge(new BusinessKeyScenarioCatalogue("create", "POST", "/application",
+            BusinessKeyScenarioCatalogue.KeySource.BODY, null).scenario("businesskey-forbidden", aResponse().withStatus(403)));
+
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"businesskey-forbidden-7\"}"))).isEqualTo("businesskey-forbidden");
+    }
+
+    @Test
+    void withoutKeyFieldPrefersAnExactValueOverAnEarlierContainingOne() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue(null);
+
+        assertThat(catalogue.extractKey(post("{\"note\":\"businesskey-ok-1\",\"businessKey\":\"businesskey-conflict\"}")))
+            .isEqualTo("businesskey-conflict");
+    }
+
+    @Test
+    void scenariosAddedAfterARequestTakePartInContainmentMatching() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue(null);
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"x-businesskey-timeout-1\"}"))).isNull();
+
+        catalogue.scenario("businesskey-timeout", aResponse().withStatus(504));
+
+        assertThat(catalogue.extractKey(post("{\"businessKey\":\"x-businesskey-timeout-1\"}"))).isEqualTo("businesskey-timeout");
+    }
+
+    @Test
+    void mergeRejectsACatalogueThatReadsTheKeyDifferently() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue(null);
+
+        assertThatThrownBy(() -> catalogue.merge(bodyCatalogue("businessKey")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("field businessKey");
+        assertThatThrownBy(() -> catalogue.merge(new BusinessKeyScenarioCatalogue("create", "PUT", "/application",
+            BusinessKeyScenarioCatalogue.KeySource.BODY, null)))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void withKeyFieldReadsOnlyThatFieldExactly() {
+        BusinessKeyScenarioCatalogue catalogue = bodyCatalogue("businessKey");
+
+        assertThat(catalogue.extractKey(post("{\"other\":\"businesskey-conflict\",\"businessKey\":\"businesskey-ok-123\"}")))
+            .isEqualTo("businesskey-ok-123");
+        assertThat(catalogue.find("businesskey-ok-123")).isNull();
+    }
+
+    @Test
+    void pathKeyIsTheLastSegmentWithoutQuery() {
+        BusinessKeyScenarioCatalogue catalogue = new BusinessKeyScenarioCatalogue("update", "PUT", "/application/[^/]+",
+            BusinessKeyScenarioCatalogue.KeySource.PATH, null);
+
+        assertThat(catalogue.extractKey(request(RequestMethod.PUT, "/application/businesskey-ok?x=1")))
+            .isEqualTo("businesskey-ok");
+    }
+
+    @Test
+    void nonJsonBodyHasNoKey() {
+        assertThat(bodyCatalogue(null).extractKey(post("businesskey-ok"))).isNull();
+    }
+
+    @Test
+    void loadRejectsCatalogueWithoutNameOrUrlPath() {
+        assertThatThrownBy(() -> BusinessKeyScenarioCatalogue.load("catalogues/without-url-path.json"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("urlPath");
+    }
+
+    @Test
+    void loadReadsKeySourceIgnoringCase() {
+        BusinessKeyScenarioCatalogue catalogue = BusinessKeyScenarioCatalogue.load("catalogues/path-lower-case.json");
+
+        assertThat(catalogue.extractKey(request(RequestMethod.GET, "/files/reference-ok"))).isEqualTo("reference-ok");
+        assertThat(catalogue.find("reference-ok").getStatus()).isEqualTo(200);
+    }
+}
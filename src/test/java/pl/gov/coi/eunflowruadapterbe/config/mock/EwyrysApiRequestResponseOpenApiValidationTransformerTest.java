@@ -0,0 +1,41 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import java.util.Set;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class EwyrysApiRequestResponseOpenApiValidationTransformerTest {
+
+    private static final Set<String> DECLARED = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+    static {
+        DECLARED.add("Content-Type");
+        DECLARED.add("X-Request-Id");
+    }
+
+    private static String headerKey(HttpHeader... headers) {
+        return EwyrysApiRequestResponseOpenApiValidationTransformer.headerKey(DECLARED, new HttpHeaders(headers)::getHeader);
+    }
+
+    @Test
+    void headerKeyHoldsEveryDeclaredHeader() {
+        assertThat(headerKey(new HttpHeader("Content-Type", "application/json"), new HttpHeader("X-Request-Id", "1")))
+            .isEqualTo("Content-Type: application/json\nX-Request-Id: 1\n");
+    }
+
+    @Test
+    void headerKeyDiffersWhenADeclaredHeaderDiffers() {
+        assertThat(headerKey(new HttpHeader("X-Request-Id", "1")))
+            .isNotEqualTo(headerKey(new HttpHeader("X-Request-Id", "2")))
+            .isNotEqualTo(headerKey());
+    }
+
+    @Test
+    void headerKeyIgnoresUndeclaredHeaders() {
+        assertThat(headerKey(new HttpHeader("X-Trace", "abc"))).isEqualTo(headerKey());
+    }
+}
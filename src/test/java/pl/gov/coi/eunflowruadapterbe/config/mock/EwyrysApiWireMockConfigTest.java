@@ -0,0 +1,54 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import org.junit.jupiter.api.Test;
+
+class EwyrysApiWireMockConfigTest {
+
+    private static final String APPLICATION = "http://localhost/ewyrys-epuc/v1.0/application";
+
+    private final EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(100, "");
+    private final BusinessKeyScenarioTransformer scenarios = new EwyrysApiWireMockConfig().registerApplicationScenarios(registry);
+
+    private ResponseDefinition create(String businessKey) {
+        return scenarios.transform(ImmutableRequest.create()
+                .withAbsoluteUrl(APPLICATION)
+                .withMethod(RequestMethod.POST)
+                .withBody(("{\"businessKey\":\"" + businessKey + "\",\"note\":\"businesskey-conflict\"}").getBytes(UTF_8))
+                .build(),
+            null, null, Parameters.one(BusinessKeyScenarioTransformer.CATALOGUE_PARAMETER, "ewyrys-create-application"));
+    }
+
+    private ResponseDefinition updateStatus(String businessKey, String status) {
+        return scenarios.transform(ImmutableRequest.create()
+                .withAbsoluteUrl(APPLICATION + "/" + businessKey)
+                .withMethod(RequestMethod.PUT)
+                .withBody(("{\"status\":\"" + status + "\"}").getBytes(UTF_8))
+                .build(),
+            null, null, Parameters.one(BusinessKeyScenarioTransformer.CATALOGUE_PARAMETER, "ewyrys-update-application-status"));
+    }
+
+    @Test
+    void createsAndThenUpdatesAKeyThatContainsAScenarioKey() {
+        assertThat(create("businesskey-ok-42").getStatus()).isEqualTo(201);
+        assertThat(registry.status("businesskey-ok-42")).isEqualTo(EwyrysApplicationRegistry.INITIAL_STATUS);
+
+        assertThat(updateStatus("businesskey-ok-42", "SUBMITTED").getStatus()).isEqualTo(204);
+        assertThat(registry.status("businesskey-ok-42")).isEqualTo("SUBMITTED");
+        assertThat(create("businesskey-ok-42").getStatus()).isEqualTo(409);
+    }
+
+    @Test
+    void scenarioKeysAreAnsweredWithoutTheRegistry() {
+        assertThat(create("businesskey-ok").getStatus()).isEqualTo(201);
+        assertThat(create("businesskey-ok").getStatus()).isEqualTo(201);
+        assertThat(updateStatus("businesskey-notfound", "SUBMITTED").getStatus()).isEqualTo(404);
+        assertThat(registry.size()).isZero();
+    }
+}
@@ -0,0 +1,138 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import pl.gov.coi.eunflowruadapterbe.config.mock.EwyrysApplicationRegistry.Outcome;
+
+class EwyrysApplicationRegistryTest {
+
+    private static final int THREADS = 8;
+
+    private static <T> List<T> concurrently(int tasks, Callable<T> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get(10, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentCreatesOfTheSameKeySucceedOnce() throws Exception {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(100, "");
+
+        List<Outcome> outcomes = concurrently(64, () -> registry.create("businesskey-ok"));
+
+        assertThat(outcomes.stream().filter(outcome -> outcome == Outcome.CREATED).count()).isEqualTo(1L);
+        assertThat(outcomes.stream().filter(outcome -> outcome == Outcome.DUPLICATE).count()).isEqualTo(63L);
+        assertThat(registry.size()).isEqualTo(1);
+        assertThat(registry.status("businesskey-ok")).isEqualTo(EwyrysApplicationRegistry.INITIAL_STATUS);
+    }
+
+    @Test
+    void concurrentCreatesNeverExceedTheCapacity() throws Exception {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(500, "");
+        AtomicInteger next = new AtomicInteger();
+
+        List<Outcome> outcomes = concurrently(1000, () -> registry.create("businesskey-" + next.getAndIncrement()));
+
+        assertThat(outcomes.stream().filter(outcome -> outcome == Outcome.CREATED).count()).isEqualTo(500L);
+        assertThat(outcomes.stream().filter(outcome -> outcome == Outcome.FULL).count()).isEqualTo(500L);
+        assertThat(registry.size()).isEqualTo(500);
+    }
+
+    @Test
+    void aFullRegistryStillReportsDuplicates() {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(1, "");
+
+        assertThat(registry.create("businesskey-1")).isEqualTo(Outcome.CREATED);
+        assertThat(registry.create("businesskey-1")).isEqualTo(Outcome.DUPLICATE);
+        assertThat(registry.create("businesskey-2")).isEqualTo(Outcome.FULL);
+        assertThat(registry.size()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentUpdatesFollowTheConfiguredTransitions() throws Exception {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(10, "CREATED>SUBMITTED,SUBMITTED>ACCEPTED|REJECTED");
+        registry.create("businesskey-ok");
+
+        List<Outcome> submitted = concurrently(32, () -> registry.updateStatus("businesskey-ok", "SUBMITTED"));
+        // only CREATED>SUBMITTED is allowed, SUBMITTED>SUBMITTED is not
+        assertThat(submitted.stream().filter(outcome -> outcome == Outcome.UPDATED).count()).isEqualTo(1L);
+
+        List<Outcome> decided = concurrently(32, () -> registry.updateStatus("businesskey-ok",
+            Thread.currentThread().getId() % 2 == 0 ? "ACCEPTED" : "REJECTED"));
+        assertThat(decided.stream().filter(outcome -> outcome == Outcome.UPDATED).count()).isEqualTo(1L);
+        assertThat(registry.status("businesskey-ok")).isIn("ACCEPTED", "REJECTED");
+    }
+
+    @Test
+    void withoutTransitionsAnyChangeIsAllowed() {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(10, " ");
+        registry.create("businesskey-ok");
+
+        assertThat(registry.updateStatus("businesskey-ok", "ACCEPTED")).isEqualTo(Outcome.UPDATED);
+        assertThat(registry.updateStatus("businesskey-ok", "CREATED")).isEqualTo(Outcome.UPDATED);
+        assertThat(registry.updateStatus("businesskey-missing", "ACCEPTED")).isEqualTo(Outcome.UNKNOWN);
+        assertThat(registry.status("businesskey-missing")).isNull();
+    }
+
+    @Test
+    void clearForgetsEveryApplication() {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(10, "");
+        registry.create("businesskey-1");
+        registry.create("businesskey-2");
+
+        registry.clear();
+
+        assertThat(registry.size()).isZero();
+        assertThat(registry.status("businesskey-1")).isNull();
+        assertThat(registry.create("businesskey-1")).isEqualTo(Outcome.CREATED);
+    }
+
+    @Test
+    void snapshotCountsApplicationsPerStatus() {
+        EwyrysApplicationRegistry registry = new EwyrysApplicationRegistry(10, "");
+        registry.create("businesskey-1");
+        registry.create("businesskey-2");
+        registry.updateStatus("businesskey-2", "SUBMITTED");
+
+        Map<String, Object> snapshot = registry.snapshot();
+
+        assertThat(snapshot).containsEntry("applications", 2);
+        assertThat(snapshot).containsEntry("statuses", Map.of("CREATED", 1L, "SUBMITTED", 1L));
+    }
+
+    @Test
+    void rejectsInvalidSettings() {
+        assertThatThrownBy(() -> new EwyrysApplicationRegistry(0, "")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new EwyrysApplicationRegistry(10, "CREATED-SUBMITTED"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("FROM>TO");
+    }
+}
@@ -0,0 +1,142 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.github.tomakehurst.wiremock.http.Fault;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class LatencyProfilesTest {
+
+    private static final Request REQUEST = ImmutableRequest.create()
+        .withAbsoluteUrl("http://localhost/application")
+        .withMethod(RequestMethod.GET)
+        .build();
+    private static final ResponseDefinition OK = aResponse().withStatus(200).build();
+
+    private static LatencyProfiles.Rule rule(String name, LatencyProfiles.Faults faults) {
+        return new LatencyProfiles.Rule(name, null, null, null, LatencyProfiles.Latency.fixed(5), faults);
+    }
+
+    private static LatencyProfiles.Latency percentiles(Map<String, Long> percentiles) {
+        return new LatencyProfiles.Latency("percentiles", null, null, null, null, null, percentiles);
+    }
+
+    @Test
+    void interpolatesLinearlyBetweenPercentiles() {
+        LatencyProfiles.LatencySampler sampler = new LatencyProfiles.LatencySampler(
+            percentiles(Map.of("50", 100L, "90", 500L, "100", 1000L)));
+
+        assertThat(sampler.interpolate(0.0)).isZero();
+        assertThat(sampler.interpolate(0.25)).isEqualTo(50);
+        assertThat(sampler.interpolate(0.5)).isEqualTo(100);
+        assertThat(sampler.interpolate(0.7)).isEqualTo(300);
+        assertThat(sampler.interpolate(0.95)).isEqualTo(750);
+        assertThat(sampler.interpolate(1.0)).isEqualTo(1000);
+    }
+
+    @Test
+    void staysAtTheHighestPercentileGivenAboveIt() {
+        LatencyProfiles.LatencySampler sampler = new LatencyProfiles.LatencySampler(
+            new LatencyProfiles.Latency("percentiles", null, 20L, null, null, null, Map.of("99", 900L)));
+
+        assertThat(sampler.interpolate(0.0)).isEqualTo(20);
+        assertThat(sampler.interpolate(0.995)).isEqualTo(900);
+    }
+
+    @Test
+    void picksTheFaultByTheBandTheRollFallsIn() {
+        LatencyProfiles profiles = new LatencyProfiles(List.of(
+            rule("faults", new LatencyProfiles.Faults(0.2, 502, 0.1, 0.3, 4, 1000))));
+
+        assertThat(profiles.apply(REQUEST, OK, 0.05).getFault()).isEqualTo(Fault.CONNECTION_RESET_BY_PEER);
+        assertThat(profiles.apply(REQUEST, OK, 0.1).getStatus()).isEqualTo(502);
+        assertThat(profiles.apply(REQUEST, OK, 0.29).getStatus()).isEqualTo(502);
+        assertThat(profiles.apply(REQUEST, OK, 0.31).getChunkedDribbleDelay().getNumberOfChunks()).isEqualTo(4);
+        assertThat(profiles.apply(REQUEST, OK, 0.59).getChunkedDribbleDelay()).isNotNull();
+
+        ResponseDefinition untouched = profiles.apply(REQUEST, OK, 0.61);
+        assertThat(untouched.getStatus()).isEqualTo(200);
+        assertThat(untouched.getFault()).isNull();
+        assertThat(untouched.getChunkedDribbleDelay()).isNull();
+        assertThat(untouched.getFixedDelayMilliseconds()).isEqualTo(5);
+
+        assertThat(profiles.statistics().get("faults")).containsEntry("matched", 6L)
+            .containsEntry("connectionResets", 1L)
+            .containsEntry("serverErrors", 2L)
+            .containsEntry("trickles", 2L);
+    }
+
+    @Test
+    void rejectsIncompleteDistributions() {
+        List<LatencyProfiles.Latency> incomplete = List.of(
+            new LatencyProfiles.Latency("fixed", null, null, null, null, null, null),
+            new LatencyProfiles.Latency("uniform", null, 10L, null, null, null, null),
+            new LatencyProfiles.Latency("uniform", null, 10L, 5L, null, null, null),
+            new LatencyProfiles.Latency("lognormal", null, null, null, 80.0, null, null),
+            percentiles(Map.of()),
+            new LatencyProfiles.Latency(null, 10L, null, null, null, null, null));
+
+        for (LatencyProfiles.Latency latency : incomplete) {
+            assertThatThrownBy(() -> new LatencyProfiles(List.of(
+                new LatencyProfiles.Rule("incomplete", null, null, null, latency, null))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("latency distribution");
+        }
+    }
+
+    @Test
+    void rejectsPercentilesThatAreOutOfRangeOrDecrease() {
+        List<LatencyProfiles.Latency> invalid = List.of(
+            percentiles(Map.of("50", 500L, "99", 100L)),
+            new LatencyProfiles.Latency("percentiles", null, 200L, null, null, null, Map.of("50", 100L)),
+            percentiles(Map.of("0", 10L)),
+            percentiles(Map.of("101", 10L)),
+            percentiles(Map.of("50", -1L)));
+
+        for (LatencyProfiles.Latency latency : invalid) {
+            assertThatThrownBy(() -> new LatencyProfiles.LatencySampler(latency)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rejectsFaultProbabilitiesOutsideZeroToOneOrAddingUpToMoreThanOne() {
+        LatencyProfiles profiles = new LatencyProfiles(List.of(rule("kept", null)));
+        List<LatencyProfiles.Faults> invalid = List.of(
+            new LatencyProfiles.Faults(1.5, null, null, null, null, null),
+            new LatencyProfiles.Faults(null, null, -0.1, null, null, null),
+            new LatencyProfiles.Faults(0.6, null, 0.3, 0.2, null, null));
+
+        for (LatencyProfiles.Faults faults : invalid) {
+            assertThatThrownBy(() -> profiles.setRules(List.of(rule("invalid", faults))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'invalid'");
+        }
+        // the rules in place are kept
+        assertThat(profiles.getRules()).extracting(LatencyProfiles.Rule::name).containsExactly("kept");
+        profiles.setRules(List.of(rule("full", new LatencyProfiles.Faults(0.7, null, 0.2, 0.1, null, null))));
+    }
+
+    @Test
+    void keepsTheStatisticsOfRulesThatSurviveAnEdit() {
+        LatencyProfiles profiles = new LatencyProfiles(List.of(rule("kept", null), rule("dropped", null)));
+        profiles.apply(REQUEST, OK, 0.5);
+
+        profiles.addRule(rule("added", null));
+        assertThat(profiles.statistics().get("kept")).containsEntry("matched", 1L);
+
+        profiles.setRules(List.of(rule("added", null), rule("kept", null)));
+        profiles.apply(REQUEST, OK, 0.5);
+
+        assertThat(profiles.statistics().get("kept")).containsEntry("matched", 1L);
+        assertThat(profiles.statistics().get("added")).containsEntry("matched", 1L);
+        assertThat(profiles.statistics()).doesNotContainKey("dropped");
+    }
+}
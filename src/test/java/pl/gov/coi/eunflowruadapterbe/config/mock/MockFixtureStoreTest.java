@@ -0,0 +1,119 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MockFixtureStoreTest {
+
+    private static final String ROOT = "mock-fixture-store-test/";
+    private static final long PRELOAD_LIMIT = 16;
+
+    @TempDir
+    Path temp;
+
+    private static void save(Path classpathEntry, String id, byte[] content) throws IOException {
+        Path file = classpathEntry.resolve(ROOT + id);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+    }
+
+    /**
+     * Indexes the fixtures under {@link #ROOT} of the given directories, in classpath order.
+     */
+    private static MockFixtureStore load(Path... classpathEntries) {
+        URL[] urls = Arrays.stream(classpathEntries).map(entry -> {
+            try {
+                return entry.toUri().toURL();
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+        }).toArray(URL[]::new);
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(urls, MockFixtureStoreTest.class.getClassLoader())) {
+            thread.setContextClassLoader(classLoader);
+            return new MockFixtureStore(ROOT, PRELOAD_LIMIT);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private static byte[] read(MockFixtureStore.Fixture fixture) throws IOException {
+        try (InputStream in = fixture.getStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void loadsSavedFixturesWithTheirContentTypeAndLength() throws IOException {
+        byte[] small = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+        byte[] large = new byte[100];
+        Arrays.fill(large, (byte) 7);
+        save(temp, "ewyrys/small.json", small);
+        save(temp, "osapi/large.bin", large);
+
+        MockFixtureStore store = load(temp);
+
+        assertThat(store.all()).containsOnlyKeys("ewyrys/small.json", "osapi/large.bin");
+        MockFixtureStore.Fixture json = store.get("ewyrys/small.json");
+        assertThat(json.contentType()).isEqualTo("application/json");
+        assertThat(json.length()).isEqualTo(small.length);
+        assertThat(json.isPreloaded()).isTrue();
+        assertThat(json.bytes()).isEqualTo(small);
+        assertThat(read(json)).isEqualTo(small);
+        assertThat(store.get(ROOT + "ewyrys/small.json")).isSameAs(json);
+
+        MockFixtureStore.Fixture binary = store.get("osapi/large.bin");
+        assertThat(binary.contentType()).isEqualTo("application/octet-stream");
+        assertThat(binary.length()).isEqualTo(large.length);
+        assertThat(binary.isPreloaded()).isFalse();
+        assertThat(read(binary)).isEqualTo(large);
+        // each stream starts at the beginning of the mapping
+        assertThat(read(binary)).isEqualTo(large);
+        assertThat(binary.bytes()).isEqualTo(large);
+
+        assertThat(store.get("missing.json")).isNull();
+    }
+
+    @Test
+    void theFirstClasspathEntryWinsWhenAFixtureIsOverridden() throws IOException {
+        Path first = Files.createDirectory(temp.resolve("first"));
+        Path second = Files.createDirectory(temp.resolve("second"));
+        save(first, "ewyrys/response.json", "{\"from\":\"first\"}".getBytes(StandardCharsets.UTF_8));
+        save(second, "ewyrys/response.json", "{\"from\":\"second\"}".getBytes(StandardCharsets.UTF_8));
+        save(second, "ewyrys/other.json", "{}".getBytes(StandardCharsets.UTF_8));
+
+        MockFixtureStore store = load(first, second);
+
+        assertThat(store.all()).containsOnlyKeys("ewyrys/response.json", "ewyrys/other.json");
+        assertThat(new String(store.get("ewyrys/response.json").bytes(), StandardCharsets.UTF_8))
+            .isEqualTo("{\"from\":\"first\"}");
+    }
+
+    @Test
+    void overwritingAFileAfterIndexingKeepsThePreloadedContent() throws IOException {
+        save(temp, "ewyrys/response.json", "{\"version\":1}".getBytes(StandardCharsets.UTF_8));
+        MockFixtureStore store = load(temp);
+
+        save(temp, "ewyrys/response.json", "{\"version\":2}".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(new String(store.get("ewyrys/response.json").bytes(), StandardCharsets.UTF_8))
+            .isEqualTo("{\"version\":1}");
+        assertThat(new String(load(temp).get("ewyrys/response.json").bytes(), StandardCharsets.UTF_8))
+            .isEqualTo("{\"version\":2}");
+    }
+}
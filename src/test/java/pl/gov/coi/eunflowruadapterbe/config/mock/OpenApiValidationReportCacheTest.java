@@ -0,0 +1,131 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.atlassian.oai.validator.report.ValidationReport;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class OpenApiValidationReportCacheTest {
+
+    private final AtomicInteger validations = new AtomicInteger();
+
+    private static OpenApiValidationReportCache.Key key(String url) {
+        return new OpenApiValidationReportCache.Key(false, "POST", url, 0, "Content-Type: application/json\n", 2, 42);
+    }
+
+    private ValidationReport validate() {
+        validations.incrementAndGet();
+        return ValidationReport.empty();
+    }
+
+    @Test
+    void reusesTheReportOfAnIdenticalInteraction() {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(10, Duration.ZERO);
+
+        ValidationReport first = cache.get(key("/a"), this::validate);
+        ValidationReport second = cache.get(key("/a"), this::validate);
+
+        assertThat(second).isSameAs(first);
+        assertThat(validations.get()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void differentHeadersAreDifferentEntries() {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(10, Duration.ZERO);
+
+        cache.get(new OpenApiValidationReportCache.Key(false, "POST", "/a", 0, "X-Request-Id: 1\n", 2, 42), this::validate);
+        cache.get(new OpenApiValidationReportCache.Key(false, "POST", "/a", 0, "", 2, 42), this::validate);
+
+        assertThat(validations.get()).isEqualTo(2);
+    }
+
+    @Test
+    void evictsAnEntryNotReferencedSinceTheHandLastPassed() {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(2, Duration.ZERO);
+        cache.get(key("/a"), this::validate);
+        cache.get(key("/b"), this::validate);
+        cache.get(key("/a"), this::validate);
+
+        cache.get(key("/c"), this::validate);
+
+        assertThat(cache.size()).isEqualTo(2);
+        validations.set(0);
+        cache.get(key("/a"), this::validate);
+        cache.get(key("/c"), this::validate);
+        assertThat(validations.get()).isZero();
+        cache.get(key("/b"), this::validate);
+        assertThat(validations.get()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntriesAreValidatedAgainWithoutGrowingTheCache() throws InterruptedException {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(2, Duration.ofMillis(1));
+        cache.get(key("/a"), this::validate);
+        Thread.sleep(5);
+
+        cache.get(key("/a"), this::validate);
+
+        assertThat(validations.get()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroMaxSizeDisablesCaching() {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(0, Duration.ZERO);
+
+        cache.get(key("/a"), this::validate);
+        cache.get(key("/a"), this::validate);
+
+        assertThat(validations.get()).isEqualTo(2);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void staysBoundedUnderConcurrentMisses() throws Exception {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(64, Duration.ZERO);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        cache.get(key("/" + ThreadLocalRandom.current().nextInt(256)), ValidationReport::empty);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(64);
+        assertThat(cache.getHits() + cache.getMisses()).isEqualTo(160_000);
+    }
+
+    @Test
+    void clearEmptiesTheCacheAndItsCounters() {
+        OpenApiValidationReportCache cache = new OpenApiValidationReportCache(4, Duration.ZERO);
+        cache.get(key("/a"), this::validate);
+        cache.get(key("/a"), this::validate);
+
+        cache.clear();
+
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getHits()).isZero();
+        cache.get(key("/a"), this::validate);
+        assertThat(validations.get()).isEqualTo(2);
+    }
+}
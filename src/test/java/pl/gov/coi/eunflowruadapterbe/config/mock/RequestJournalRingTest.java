@@ -0,0 +1,122 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RequestJournalRingTest {
+
+    private static void record(RequestJournalRing journal, String url, String body) {
+        journal.record(Instant.EPOCH, "POST", url, 201, 3, "Content-Type: application/json",
+            body == null ? null : body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> urls(RequestJournalRing journal) {
+        return journal.query(entry -> true, Integer.MAX_VALUE).stream().map(recorded -> recorded.entry().url()).toList();
+    }
+
+    @Test
+    void roundsTheCapacityUpToAPowerOfTwo() {
+        assertThat(new RequestJournalRing(1, 16, false).capacity()).isEqualTo(1);
+        assertThat(new RequestJournalRing(5, 16, false).capacity()).isEqualTo(8);
+        assertThat(new RequestJournalRing(8, 16, false).capacity()).isEqualTo(8);
+    }
+
+    @Test
+    void keepsTheNewestEntriesNewestFirstOnceItWrapsAround() {
+        RequestJournalRing journal = new RequestJournalRing(4, 16, false);
+        for (int i = 0; i < 10; i++) {
+            record(journal, "/application/" + i, "{}");
+        }
+
+        assertThat(urls(journal)).containsExactly("/application/9", "/application/8", "/application/7", "/application/6");
+        assertThat(journal.recorded()).isEqualTo(10L);
+        assertThat(journal.dropped()).isZero();
+    }
+
+    @Test
+    void appliesTheFilterAndTheLimit() {
+        RequestJournalRing journal = new RequestJournalRing(16, 16, false);
+        for (int i = 0; i < 10; i++) {
+            record(journal, "/application/" + i, "{}");
+        }
+
+        List<RequestJournalRing.Recorded> even = journal.query(entry -> entry.url().endsWith("0")
+            || entry.url().endsWith("2") || entry.url().endsWith("4"), 2);
+
+        assertThat(even.stream().map(recorded -> recorded.entry().url()).toList())
+            .containsExactly("/application/4", "/application/2");
+    }
+
+    @Test
+    void truncatesBodiesOnAndOffHeap() {
+        for (boolean offHeap : new boolean[] {false, true}) {
+            RequestJournalRing journal = new RequestJournalRing(2, 4, offHeap);
+            record(journal, "/application/long", "0123456789");
+            record(journal, "/application/none", null);
+
+            List<RequestJournalRing.Recorded> recorded = journal.query(entry -> true, 10);
+
+            assertThat(journal.isOffHeap()).isEqualTo(offHeap);
+            assertThat(recorded.get(0).body()).isEmpty();
+            assertThat(new String(recorded.get(1).body(), StandardCharsets.UTF_8)).isEqualTo("0123");
+            assertThat(recorded.get(1).entry().bodyBytes()).isEqualTo(10);
+            assertThat(recorded.get(1).entry().keptBodyBytes()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void clearHidesWhatWasRecordedBefore() {
+        RequestJournalRing journal = new RequestJournalRing(8, 16, false);
+        record(journal, "/application/old", "{}");
+
+        journal.clear();
+        record(journal, "/application/new", "{}");
+
+        assertThat(urls(journal)).containsExactly("/application/new");
+    }
+
+    @Test
+    void concurrentWritersNeverMixEntriesAndBodies() throws InterruptedException {
+        RequestJournalRing journal = new RequestJournalRing(64, 32, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    String url = "/application/" + thread + "-" + i;
+                    record(journal, url, url);
+                }
+            });
+        }
+        // read while writing: every entry returned must carry its own body
+        for (int i = 0; i < 200; i++) {
+            for (RequestJournalRing.Recorded recorded : journal.query(entry -> true, 64)) {
+                assertThat(new String(recorded.body(), StandardCharsets.UTF_8)).isEqualTo(recorded.entry().url());
+            }
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(journal.recorded()).isEqualTo(40_000L);
+        List<RequestJournalRing.Recorded> last = journal.query(entry -> true, Integer.MAX_VALUE);
+        assertThat(last.size()).isLessThanOrEqualTo(64);
+        assertThat(last.size() + journal.dropped()).isGreaterThanOrEqualTo(64L);
+        for (int i = 1; i < last.size(); i++) {
+            assertThat(last.get(i).entry().sequence()).isLessThan(last.get(i - 1).entry().sequence());
+        }
+    }
+
+    @Test
+    void rejectsInvalidCapacities() {
+        assertThatThrownBy(() -> new RequestJournalRing(0, 16, false)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RequestJournalRing((1 << 24) + 1, 16, false)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
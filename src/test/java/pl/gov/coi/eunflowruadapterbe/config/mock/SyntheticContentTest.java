@@ -0,0 +1,76 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class SyntheticContentTest {
+
+    @Test
+    void parsesSizesWithBinaryUnits() {
+        assertThat(SyntheticContent.parseSize("1024")).isEqualTo(1024L);
+        assertThat(SyntheticContent.parseSize(" 100M ")).isEqualTo(100L << 20);
+        assertThat(SyntheticContent.parseSize("5g")).isEqualTo(5L << 30);
+        assertThat(SyntheticContent.parseSize("0")).isEqualTo(0L);
+    }
+
+    @Test
+    void rejectsMissingMalformedNegativeAndOverflowingSizes() {
+        for (String size : new String[] {null, " ", "abc", "g", "-1", "1.5g", "99999999t"}) {
+            assertThatThrownBy(() -> SyntheticContent.parseSize(size)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void rangeStreamMatchesTheSameBytesOfTheWholeContent() throws IOException {
+        SyntheticContent content = new SyntheticContent(SyntheticContent.seedOf("range"), 10_000, 0);
+        byte[] whole = read(content.getStream());
+
+        assertThat(whole).hasSize(10_000);
+        assertThat(read(content.stream(1_234, 5_679))).isEqualTo(Arrays.copyOfRange(whole, 1_234, 5_679));
+        assertThat(read(new SyntheticContent(SyntheticContent.seedOf("range"), 10_000, 0).getStream())).isEqualTo(whole);
+    }
+
+    @Test
+    void throttledStreamReadsNothingIntoAnEmptyWindow() throws IOException {
+        SyntheticContent content = new SyntheticContent(SyntheticContent.seedOf("throttled"), 16, 1 << 20);
+
+        try (InputStream in = content.getStream()) {
+            assertThat(in.read(new byte[0], 0, 0)).isZero();
+            assertThat(in.readAllBytes()).isEqualTo(read(new SyntheticContent(SyntheticContent.seedOf("throttled"), 16, 0).getStream()));
+        }
+    }
+
+    @Test
+    void digestIsComputedOnceInTheBackground() throws Exception {
+        SyntheticContent content = new SyntheticContent(SyntheticContent.seedOf("digest"), 3 * 65_536 + 17, 0);
+
+        CompletableFuture<String> digest = content.digest("SHA-256");
+
+        assertThat(content.digest("SHA-256")).isSameAs(digest);
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(read(content.getStream())));
+        assertThat(digest.get(5, TimeUnit.SECONDS)).isEqualTo(expected);
+    }
+
+    @Test
+    void unsupportedDigestAlgorithmIsRejectedRightAway() {
+        SyntheticContent content = new SyntheticContent(1, 16, 0);
+
+        assertThatThrownBy(() -> content.digest("NO-SUCH-DIGEST")).isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("NO-SUCH-DIGEST");
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            return in.readAllBytes();
+        }
+    }
+}
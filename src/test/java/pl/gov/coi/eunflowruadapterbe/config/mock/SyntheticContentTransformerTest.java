@@ -0,0 +1,115 @@
+package pl.gov.coi.eunflowruadapterbe.config.mock;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class SyntheticContentTransformerTest {
+
+    private final SyntheticContentTransformer transformer = new SyntheticContentTransformer();
+
+    private Response transform(Map<String, Object> parameters, String range) {
+        ImmutableRequest.Builder request = ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost/files/reference")
+            .withMethod(RequestMethod.GET);
+        if (range != null) {
+            request.withHeader("Range", range);
+        }
+        return transformer.transform(request.build(), Response.response().status(200).build(), null,
+            Parameters.from(parameters));
+    }
+
+    @Test
+    void answersInvalidSizeWith500() {
+        Response response = transform(Map.of("size", "lots"), null);
+
+        assertThat(response.getStatus()).isEqualTo(500);
+        assertThat(response.getBodyAsString()).contains("Invalid size: lots");
+    }
+
+    @Test
+    void answersMissingSizeWith500() {
+        Response response = transform(Map.of("seed", "reference"), null);
+
+        assertThat(response.getStatus()).isEqualTo(500);
+        assertThat(response.getBodyAsString()).contains("size is required");
+    }
+
+    @Test
+    void sendsTheDigestOfTheWholeContentWithARange() {
+        Map<String, Object> parameters = Map.of("size", "1m", "seed", "reference");
+        SyntheticContent content = new SyntheticContent(SyntheticContent.seedOf("reference"), 1L << 20, 0);
+
+        Response response = transform(parameters, "bytes=100-199");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeaders().getHeader("Content-Range").firstValue()).isEqualTo("bytes 100-199/1048576");
+        assertThat(response.getHeaders().getHeader(SyntheticContentTransformer.DEFAULT_HASH_HEADER).firstValue())
+            .isEqualTo(content.digest("SHA-256").join());
+    }
+
+    @Test
+    void sendsAGivenHashAsItIs() {
+        Response response = transform(Map.of("size", "5g", "hash", "00ff"), "bytes=0-9");
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeaders().getHeader(SyntheticContentTransformer.DEFAULT_HASH_HEADER).firstValue())
+            .isEqualTo("00ff");
+    }
+
+    @Test
+    void answersARangeOutsideTheContentWith416() {
+        Response response = transform(Map.of("size", "1k"), "bytes=2048-");
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeaders().getHeader("Content-Range").firstValue()).isEqualTo("bytes */1024");
+    }
+
+    @Test
+    void answersAnInvalidRangeWithTheWholeContent() {
+        Response response = transform(Map.of("size", "1k"), "bytes=500-100");
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeaders().getHeader("Content-Range").isPresent()).isFalse();
+        assertThat(response.getHeaders().getHeader("Content-Length").firstValue()).isEqualTo("1024");
+    }
+
+    @Test
+    void prepareChecksTheHashAlgorithmOfARegisteredStub() {
+        assertThatThrownBy(() -> SyntheticContentTransformer.prepare(aResponse()
+            .withTransformers(SyntheticContentTransformer.NAME)
+            .withTransformerParameter("size", "64k")
+            .withTransformerParameter("hashAlgorithm", "NO-SUCH-DIGEST")
+            .build(), false)).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("NO-SUCH-DIGEST");
+    }
+
+    @Test
+    void prepareRejectsInvalidParametersAndIgnoresOtherStubs() {
+        assertThatThrownBy(() -> SyntheticContentTransformer.prepare(aResponse()
+            .withTransformers(SyntheticContentTransformer.NAME)
+            .withTransformerParameter("size", "-5")
+            .build(), false)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(SyntheticContentTransformer.prepare(aResponse().withStatus(200).withBody("plain").build(), true)).isFalse();
+    }
+
+    @Test
+    void prepareReportsContentWhoseFirstRequestComputesTheDigest() {
+        assertThat(SyntheticContentTransformer.prepare(aResponse()
+            .withTransformers(SyntheticContentTransformer.NAME)
+            .withTransformerParameter("size", "5g")
+            .build(), false)).isTrue();
+        assertThat(SyntheticContentTransformer.prepare(aResponse()
+            .withTransformers(SyntheticContentTransformer.NAME)
+            .withTransformerParameter("size", "5g")
+            .withTransformerParameter("hash", "00ff")
+            .build(), false)).isFalse();
+    }
+}